@@ -3,6 +3,9 @@ import ast.*;
 import ir.*;
 import regalloc.*;
 import mips.*;
+import diagnostics.*;
+import symboltable.SymbolTable;
+import symboltable.SymbolTableDump;
 import java.util.List;
 
 /**
@@ -18,13 +21,52 @@ public class Main
 {
     public static void main(String argv[])
     {
-        if (argv.length != 2) {
-            System.err.println("Usage: java Main <input.txt> <output.s>");
+        // Leading options: --regalloc=graph|linear|auto, --bounds-check=unsigned|legacy, --gc,
+        // --dump-symbol-table (Graphviz snapshots of the symbol table in ./output/),
+        // --log=<category>[:<level>],... (diagnostics, e.g. --log=parser:trace,regalloc)
+        RegisterAllocator.Strategy strategy = RegisterAllocator.Strategy.AUTO;
+        boolean legacyBoundsCheck = false;
+        boolean garbageCollection = false;
+        boolean dumpSymbolTable = false;
+        int first = 0;
+        while (first < argv.length && argv[first].startsWith("--")) {
+            String option = argv[first++];
+            if (option.equals("--regalloc=graph")) {
+                strategy = RegisterAllocator.Strategy.GRAPH_COLORING;
+            } else if (option.equals("--regalloc=linear")) {
+                strategy = RegisterAllocator.Strategy.LINEAR_SCAN;
+            } else if (option.equals("--regalloc=auto")) {
+                strategy = RegisterAllocator.Strategy.AUTO;
+            } else if (option.equals("--bounds-check=unsigned")) {
+                legacyBoundsCheck = false;
+            } else if (option.equals("--bounds-check=legacy")) {
+                legacyBoundsCheck = true;
+            } else if (option.equals("--gc")) {
+                garbageCollection = true;
+            } else if (option.equals("--dump-symbol-table")) {
+                dumpSymbolTable = true;
+            } else if (option.startsWith("--log=")) {
+                try {
+                    Diagnostics.configure(option.substring("--log=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Unknown category or level in " + option);
+                    System.exit(1);
+                }
+            } else {
+                System.err.println("Unknown option: " + option);
+                System.exit(1);
+            }
+        }
+
+        if (argv.length - first != 2) {
+            System.err.println("Usage: java Main [--regalloc=graph|linear|auto] "
+                + "[--bounds-check=unsigned|legacy] [--gc] [--dump-symbol-table] "
+                + "[--log=<category>[:<level>],...] <input.txt> <output.s>");
             System.exit(1);
         }
 
-        String inputFileName = argv[0];
-        String outputFileName = argv[1];
+        String inputFileName = argv[first];
+        String outputFileName = argv[first + 1];
 
         try {
             // Step 1: Parse L source to AST (from ex4)
@@ -35,37 +77,52 @@ public class Main
             AstProgram ast = (AstProgram) parser.parse().value;
 
             // Step 2: Semantic analysis (from ex4)
-            ast.semantMe();
+            SymbolTableDump dump = dumpSymbolTable ? new SymbolTableDump("./output/") : null;
+            SymbolTable.getInstance().setDump(dump);
+            try {
+                ast.semantMe();
+            } finally {
+                if (dump != null) {
+                    dump.close();
+                }
+            }
 
             // Step 3: Person A - Generate IR
             ast.irMe();
             Ir ir = Ir.getInstance();
             List<IrCommand> commands = ir.getCommands();
 
-            System.out.println("[Person A] IR Generation: " + commands.size() + " commands");
+            Diagnostics.log(Category.IR, Level.INFO, "[Person A] IR Generation: %d commands in %d function units",
+                commands.size(), ir.getFunctions().size());
+            if (Diagnostics.isEnabled(Category.IR, Level.DEBUG)) {
+                ir.printIR();
+            }
 
             // Step 4: Person B - Register Allocation
-            RegisterAllocator allocator = new RegisterAllocator(true);
-            RegisterAllocation allocation = allocator.allocate(commands);
+            RegisterAllocator allocator = new RegisterAllocator(
+                Diagnostics.isEnabled(Category.REGALLOC, Level.DEBUG), strategy);
+            RegisterAllocation allocation = allocator.allocate(ir);
 
-            if (!allocation.isSuccess()) {
-                // Register allocation failed - write failure message
-                FileWriter fw = new FileWriter(outputFileName);
-                fw.write("Register Allocation Failed");
-                fw.close();
-                System.out.println("[Person B] Register Allocation: FAILED (too many live temporaries)");
-                return;
-            }
-
-            System.out.println("[Person B] Register Allocation: SUCCESS");
+            Diagnostics.log(Category.REGALLOC, Level.INFO, "[Person B] Register Allocation: SUCCESS (%d units, "
+                + "%d by linear scan, %d rounds, %d temps spilled, %d loads forwarded, %d moves coalesced)",
+                allocator.getUnitCount(), allocator.getLinearScanUnitCount(), allocator.getRounds(),
+                allocator.getSpilledTempCount(), allocator.getForwardedLoadCount(), allocator.getCoalescedMoveCount());
 
             // Step 5: Person C - MIPS Generation
             MipsTranslator translator = new MipsTranslator(outputFileName);
-            translator.translate(commands, allocation);
+            translator.setLegacyBoundsCheck(legacyBoundsCheck);
+            translator.setGarbageCollection(garbageCollection);
+            translator.translate(ir.getFunctions(), ir.getVtables(), allocation);
             translator.close();
 
-            System.out.println("[Person C] MIPS Generation: SUCCESS");
-            System.out.println("Compilation complete: " + outputFileName);
+            Diagnostics.log(Category.MIPS, Level.INFO, "[Person C] Peephole: %d instructions removed",
+                translator.getPeephole().getRemovedCount());
+            if (Diagnostics.isEnabled(Category.MIPS, Level.DEBUG)) {
+                Diagnostics.out().print(translator.getPeephole().getReport());
+            }
+
+            Diagnostics.log(Category.MIPS, Level.INFO, "[Person C] MIPS Generation: SUCCESS");
+            Diagnostics.log(Category.MIPS, Level.INFO, "Compilation complete: %s", outputFileName);
 
         } catch (SemanticException e) {
             System.err.println("Semantic Error: " + e.getMessage());
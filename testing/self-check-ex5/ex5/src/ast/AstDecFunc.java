@@ -1,8 +1,14 @@
 package ast;
 
 import ir.Ir;
-import ir.IrCommandLabel;
+import ir.IrCommandCallFunc;
+import ir.IrCommandMove;
+import ir.IrCommandParameter;
+import ir.IrCommandStore;
 import temp.Temp;
+import temp.TempFactory;
+import java.util.ArrayList;
+import java.util.List;
 import types.*;
 import symboltable.*;
 import types.TypeVoid;
@@ -16,6 +22,11 @@ public class AstDecFunc extends AstDec
 	public String name;
 	public AstTypeNameList params;
 	public AstStmtList body;
+	public TypeFunction methodType = null;  // set by the class if this is a method
+	private TypeFunction funcType = null;   // set by semantMe for a global function
+
+	/* Implicit first parameter of every method: the receiver object */
+	public static final String THIS_VAR = "this";
 
 	/******************/
 	/* CONSTRUCTOR(S) */
@@ -110,7 +121,7 @@ public class AstDecFunc extends AstDec
 		/* [1] Enter the Function Type to the Symbol Table */
 		/* (Do this BEFORE semanting body for recursion)   */
 		/***************************************************/
-		TypeFunction funcType = new TypeFunction(returnTypeFromTable, name, type_list);
+		funcType = new TypeFunction(returnTypeFromTable, name, type_list);
 		SymbolTable.getInstance().enter(name, funcType);
 
 		/****************************/
@@ -143,23 +154,38 @@ public class AstDecFunc extends AstDec
 		/*****************/
 		/* [5] End Scope */
 		/*****************/
+		SymbolTable.getInstance().snapshot(name);
 		SymbolTable.getInstance().endScope();
 	}
 
     public Temp irMe()
     {
-        Ir.getInstance().AddIrCommand(new IrCommandLabel(name));
-
-        // Allocate parameter variables
-        TypeFunction funcType = (TypeFunction) SymbolTable.getInstance().find(name);
+        // Parameters, in argument order (a method receives its object first)
+        TypeFunction funcType = (methodType != null) ? methodType : this.funcType;
+        List<String> paramVarNames = new ArrayList<>();
+        if (methodType != null) {
+            paramVarNames.add(THIS_VAR);
+        }
         if (funcType != null && funcType.paramVarNames != null) {
-            for (String paramVarName : funcType.paramVarNames) {
-                Ir.getInstance().AddIrCommand(new ir.IrCommandAllocate(paramVarName));
-            }
+            paramVarNames.addAll(funcType.paramVarNames);
+        }
+        Ir.getInstance().beginFunction(name, paramVarNames);
+
+        // The first parameters arrive in $a0-$a3: copy them out of the
+        // argument registers at once, into their variables
+        int inRegisters = Math.min(paramVarNames.size(), IrCommandCallFunc.REGISTER_ARGUMENTS);
+        for (int i = 0; i < inRegisters; i++) {
+            Temp argument = TempFactory.getInstance().getFreshTemp();
+            Temp value = TempFactory.getInstance().getFreshTemp();
+            Ir.getInstance().AddIrCommand(new IrCommandParameter(argument, i));
+            Ir.getInstance().AddIrCommand(new IrCommandMove(value, argument));
+            Ir.getInstance().AddIrCommand(new IrCommandStore(paramVarNames.get(i), value));
         }
 
         if (body != null) body.irMe();
 
+        Ir.getInstance().endFunction();
+
         return null;
     }
 
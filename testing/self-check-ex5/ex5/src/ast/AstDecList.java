@@ -1,5 +1,7 @@
 package ast;
 
+import ir.Ir;
+import ir.IrFunction;
 import temp.Temp;
 import types.*;
 
@@ -69,7 +71,9 @@ public class AstDecList extends AstNode
         /*******************************************/
         /* [1] First pass: Generate all globals   */
         /*     (variable declarations only)       */
+        /*     into the global init unit          */
         /*******************************************/
+        Ir.getInstance().beginFunction(IrFunction.GLOBAL_INIT);
         AstDecList it = this;
         while (it != null)
         {
@@ -79,6 +83,7 @@ public class AstDecList extends AstNode
             }
             it = it.tail;
         }
+        Ir.getInstance().endFunction();
 
         /*******************************************/
         /* [2] Second pass: Generate everything else */
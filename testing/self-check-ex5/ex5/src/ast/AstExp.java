@@ -4,10 +4,30 @@ import types.*;
 
 public abstract class AstExp extends AstNode
 {
+    /***********************************************/
+    /* The type found by semantMe, read by irMe so */
+    /* IR generation never re-runs the analysis    */
+    /***********************************************/
+    private Type resolvedType = null;
+
+    /***********************************************/
+    /* Check the node and record its type          */
+    /***********************************************/
+    public final Type semantMe() throws SemanticException
+    {
+        resolvedType = semantType();
+        return resolvedType;
+    }
+
+    public Type getType()
+    {
+        return resolvedType;
+    }
+
     /***********************************************/
     /* The default semantic action for an AST node */
     /***********************************************/
-    public Type semantMe() throws SemanticException
+    protected Type semantType() throws SemanticException
     {
         return null;
     }
@@ -1,10 +1,17 @@
 package ast;
 
 import ir.Ir;
+import ir.IrCommandArgument;
 import ir.IrCommandCallFunc;
+import ir.IrCommandLoad;
+import ir.IrCommandMethodCall;
+import ir.IrCommandMove;
 import temp.Temp;
+import java.util.ArrayList;
+import java.util.List;
 import types.*;
 import symboltable.*;
+import diagnostics.*;
 
 public class AstExpCall extends AstExp
 {
@@ -14,7 +21,9 @@ public class AstExpCall extends AstExp
 	public String funcName;
 	public AstExpList params;
     public AstVar var;
-    private String cachedClassName = null;  // Cache class name for method calls
+    private int cachedVtableOffset = -1;    // Slot of the method in the receiver's vtable
+    private TypeFunction cachedFuncType = null;  // Callee type, found during semantMe
+    private TypeClass implicitThisClass = null;  // Class of "this" for an unqualified method call
 
 	/******************/
 	/* CONSTRUCTOR(S) */
@@ -29,10 +38,10 @@ public class AstExpCall extends AstExp
         /***************************************/
         /* PRINT CORRESPONDING DERIVATION RULE */
         /***************************************/
-        if (var != null && params != null) System.out.print("====================== callExp ->  var DOT ID LPAREN expList RPAREN\n");
-        if (var == null && params != null) System.out.print("====================== callExp ->  ID LPAREN expList RPAREN\n");
-        if (var != null && params == null) System.out.print("====================== callExp ->  var DOT ID LPAREN RPAREN\n");
-        if (var == null && params == null) System.out.print("====================== callExp ->  ID LPAREN RPAREN\n");
+        if (var != null && params != null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== callExp ->  var DOT ID LPAREN expList RPAREN");
+        if (var == null && params != null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== callExp ->  ID LPAREN expList RPAREN");
+        if (var != null && params == null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== callExp ->  var DOT ID LPAREN RPAREN");
+        if (var == null && params == null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== callExp ->  ID LPAREN RPAREN");
 
         /*******************************/
         /* COPY INPUT DATA MEMBERS ... */
@@ -72,7 +81,7 @@ public class AstExpCall extends AstExp
         if (var != null) AstGraphviz.getInstance().logEdge(serialNumber,var.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		TypeFunction funcType = null;
 		
@@ -106,34 +115,9 @@ public class AstExpCall extends AstExp
 
 			funcType = (TypeFunction) memberType;
 
-			// Cache the class name WHERE THE METHOD IS ACTUALLY DEFINED (for inheritance)
-			// Search up the inheritance hierarchy to find which class defines this method
-			TypeClass definingClass = classType;
-			boolean foundInCurrent = false;
-			while (definingClass != null)
-			{
-				// Check if this class defines the method
-				for (TypeList it = definingClass.dataMembers; it != null; it = it.tail)
-				{
-					if (it.head != null && funcName.equals(it.head.name))
-					{
-						foundInCurrent = true;
-						break;
-					}
-				}
-				if (foundInCurrent)
-				{
-					cachedClassName = definingClass.name;
-					break;
-				}
-				definingClass = definingClass.father;
-			}
-
-			// Fallback to object's class if not found (shouldn't happen)
-			if (cachedClassName == null)
-			{
-				cachedClassName = classType.name;
-			}
+			// Overrides keep their father's slot, so the slot in the static
+			// class is the right one for every subclass the object may have
+			cachedVtableOffset = classType.getMethodOffset(funcName);
 		}
 		else
 		{
@@ -151,8 +135,17 @@ public class AstExpCall extends AstExp
 			}
 			
 			funcType = (TypeFunction) t;
+
+			// A method of the enclosing class (or an ancestor) called by
+			// its bare name: a dispatch on the implicit "this"
+			if (funcType.method && AstDecClass.currentClass != null)
+			{
+				implicitThisClass = AstDecClass.currentClass;
+			}
 		}
 		
+		cachedFuncType = funcType;
+
 		/**************************************/
 		/* [2] Check argument count and types */
 		/**************************************/
@@ -220,45 +213,54 @@ public class AstExpCall extends AstExp
 
     public Temp irMe()
     {
-        // First, we need to find the function to get parameter names
-        TypeFunction funcType = null;
-        String callName = funcName;  // Will be modified for method calls
-        try {
-            if (var != null) {
-                // For method calls, use cached class name (can't call semantMe again)
-                if (cachedClassName != null) {
-                    callName = cachedClassName + "_" + funcName;
-                }
-                // Try to find funcType in symbol table (may not work during IR phase)
-                funcType = (TypeFunction) symboltable.SymbolTable.getInstance().find(funcName);
-            } else {
-                funcType = (TypeFunction) symboltable.SymbolTable.getInstance().find(funcName);
-            }
-        } catch (Exception e) {
-            // If we can't find it, just call without parameters
-        }
+        // Use the callee found during semantic analysis (can't call semantMe again)
+        TypeFunction funcType = cachedFuncType;
 
-        // Store each argument into its corresponding parameter variable
+        // Evaluate the arguments: a method gets its object first
+        List<Temp> arguments = new ArrayList<>();
+        if (var != null) {
+            arguments.add(var.irMe());
+        } else if (implicitThisClass != null) {
+            Temp self = temp.TempFactory.getInstance().getFreshTemp();
+            Ir.getInstance().AddIrCommand(new IrCommandLoad(self, AstDecFunc.THIS_VAR));
+            arguments.add(self);
+        }
         if (funcType != null && params != null && funcType.paramVarNames != null) {
             AstExpList argList = params;
-            int paramIndex = 0;
-
-            while (argList != null && paramIndex < funcType.paramVarNames.size()) {
-                // Evaluate the argument expression
-                Temp argTemp = argList.head.irMe();
-
-                // Store it into the parameter variable using the name from TypeFunction
-                String paramVarName = funcType.paramVarNames.get(paramIndex);
-                Ir.getInstance().AddIrCommand(new ir.IrCommandStore(paramVarName, argTemp));
+            int count = 0;
 
+            while (argList != null && count < funcType.paramVarNames.size()) {
+                arguments.add(argList.head.irMe());
                 argList = argList.tail;
-                paramIndex++;
+                count++;
             }
         }
 
-        // Call the function (with prefixed name for methods)
+        // Pass them only once all are evaluated (a nested call would overwrite them):
+        // the stack ones first, then the first four into fresh temps the
+        // register allocator precolors with $a0-$a3, right before the call
+        for (int i = IrCommandCallFunc.REGISTER_ARGUMENTS; i < arguments.size(); i++) {
+            Ir.getInstance().AddIrCommand(new IrCommandArgument(i, arguments.get(i)));
+        }
+        List<Temp> registerArguments = new ArrayList<>();
+        for (int i = 0; i < arguments.size() && i < IrCommandCallFunc.REGISTER_ARGUMENTS; i++) {
+            Temp argument = temp.TempFactory.getInstance().getFreshTemp();
+            Ir.getInstance().AddIrCommand(new IrCommandMove(argument, arguments.get(i)));
+            registerArguments.add(argument);
+        }
+
+        // Call the function, or the method through the object's vtable
         Temp resultTemp = temp.TempFactory.getInstance().getFreshTemp();
-        Ir.getInstance().AddIrCommand(new IrCommandCallFunc(callName, resultTemp));
+        if (var != null || implicitThisClass != null) {
+            // The enclosing class is frozen by now: its layout has the
+            // slots of the methods it declares, not only the inherited ones
+            int vtableOffset = (var != null) ? cachedVtableOffset : implicitThisClass.getMethodOffset(funcName);
+            Temp object = registerArguments.remove(0);
+            Ir.getInstance().AddIrCommand(new IrCommandMethodCall(resultTemp, object, funcName,
+                vtableOffset, registerArguments, arguments.size()));
+        } else {
+            Ir.getInstance().AddIrCommand(new IrCommandCallFunc(funcName, resultTemp, registerArguments, arguments.size()));
+        }
 
         return resultTemp;
     }
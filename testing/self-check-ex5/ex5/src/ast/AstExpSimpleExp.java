@@ -2,6 +2,7 @@ package ast;
 
 import temp.Temp;
 import types.Type;
+import diagnostics.*;
 
 public class AstExpSimpleExp extends AstExp
 {
@@ -20,7 +21,7 @@ public class AstExpSimpleExp extends AstExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== exp -> simpleExp\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> simpleExp");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -48,7 +49,7 @@ public class AstExpSimpleExp extends AstExp
         if (value  != null) AstGraphviz.getInstance().logEdge(serialNumber,value.serialNumber);
 	}
 
-    public Type semantMe()
+    protected Type semantType()
     {
         return value.semantMe();
     }
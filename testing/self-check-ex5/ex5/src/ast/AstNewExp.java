@@ -4,6 +4,7 @@ import types.*;
 import symboltable.*;
 import temp.*;
 import ir.*;
+import diagnostics.*;
 
 public class AstNewExp extends AstExp
 {
@@ -23,8 +24,8 @@ public class AstNewExp extends AstExp
         /***************************************/
         /* PRINT CORRESPONDING DERIVATION RULE */
         /***************************************/
-        if (exp != null) {System.out.print("====================== newExp -> NEW type LBRACK exp RBRACK\n");}
-        if (exp == null) {System.out.print("====================== newExp -> NEW type\n");}
+        if (exp != null) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== newExp -> NEW type LBRACK exp RBRACK");}
+        if (exp == null) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== newExp -> NEW type");}
 
         /*******************************/
         /* COPY INPUT DATA MEMBERS ... */
@@ -64,7 +65,7 @@ public class AstNewExp extends AstExp
         if (exp != null) {AstGraphviz.getInstance().logEdge(serialNumber,exp.serialNumber);}
     }
 
-    public Type semantMe() throws SemanticException
+    protected Type semantType() throws SemanticException
     {
         /**************************************/
         /* [1] Find the type in symbol table  */
@@ -125,30 +126,17 @@ public class AstNewExp extends AstExp
         /**************************************/
         /* [2] Object allocation: new ClassName */
         /**************************************/
-        Type t = SymbolTable.getInstance().find(type.name);
+        Type t = getType();
         if (t != null && t.isClass())
         {
             TypeClass classType = (TypeClass) t;
 
-            // Count fields in class (including inherited)
-            int fieldCount = 0;
-            for (TypeClass c = classType; c != null; c = c.father)
-            {
-                for (TypeList it = c.dataMembers; it != null; it = it.tail)
-                {
-                    if (it.head != null)
-                    {
-                        fieldCount++;
-                    }
-                }
-            }
-
-            // Calculate size needed (number of fields * 4 bytes per field)
-            int sizeInBytes = fieldCount * 4;
-            if (sizeInBytes == 0) sizeInBytes = 4; // Minimum 1 word
+            // The vtable pointer and every field, inherited ones included
+            int sizeInBytes = classType.getObjectSize();
+            String vtableLabel = classType.getMethodNames().isEmpty() ? null : classType.getVtableLabel();
 
             // Emit NEW_OBJECT command
-            Ir.getInstance().AddIrCommand(new IrCommandNewObject(dst, type.name, sizeInBytes));
+            Ir.getInstance().AddIrCommand(new IrCommandNewObject(dst, type.name, sizeInBytes, vtableLabel));
 
             return dst;
         }
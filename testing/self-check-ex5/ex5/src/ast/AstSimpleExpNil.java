@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import ir.Ir;
 import ir.IrCommandNilConst;
+import diagnostics.*;
 
 public class AstSimpleExpNil extends AstSimpleExp
 {
@@ -22,7 +23,7 @@ public class AstSimpleExpNil extends AstSimpleExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== simpleExp -> NIL\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== simpleExp -> NIL");
 	}
 
 	/************************************************/
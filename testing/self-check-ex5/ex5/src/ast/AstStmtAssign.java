@@ -6,6 +6,7 @@ import ir.IrCommandArrayStore;
 import ir.IrCommandFieldStore;
 import temp.Temp;
 import types.*;
+import diagnostics.*;
 
 public class AstStmtAssign extends AstStmt
 {
@@ -28,7 +29,7 @@ public class AstStmtAssign extends AstStmt
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== stmt -> var ASSIGN exp SEMICOLON\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmt -> var ASSIGN exp SEMICOLON");
 
 		/*******************************/
 		/* COPY INPUT DATA MENBERS ... */
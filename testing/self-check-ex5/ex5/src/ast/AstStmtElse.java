@@ -1,6 +1,7 @@
 package ast;
 
 import temp.Temp;
+import diagnostics.*;
 
 public class AstStmtElse extends AstNode
 {
@@ -19,7 +20,7 @@ public class AstStmtElse extends AstNode
         /***************************************/
         /* PRINT CORRESPONDING DERIVATION RULE */
         /***************************************/
-        System.out.print("====================== stmtElse ->  ELSE LBRACE stmtList RBRACE\n");
+        Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmtElse ->  ELSE LBRACE stmtList RBRACE");
 
         /*******************************/
         /* COPY INPUT DATA MEMBERS ... */
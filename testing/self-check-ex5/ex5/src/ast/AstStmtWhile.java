@@ -4,6 +4,7 @@ import ir.*;
 import temp.Temp;
 import types.*;
 import symboltable.*;
+import diagnostics.*;
 
 public class AstStmtWhile extends AstStmt
 {
@@ -23,7 +24,7 @@ public class AstStmtWhile extends AstStmt
         /***************************************/
         /* PRINT CORRESPONDING DERIVATION RULE */
         /***************************************/
-        System.out.print("====================== stmt -> WHILE LPAREN exp RPAREN LBRACE stmtList RBRACE\n");
+        Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmt -> WHILE LPAREN exp RPAREN LBRACE stmtList RBRACE");
 
         /*******************************/
         /* COPY INPUT DATA MEMBERS ... */
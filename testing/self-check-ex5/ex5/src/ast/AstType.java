@@ -1,5 +1,7 @@
 package ast;
 
+import diagnostics.*;
+
 public class AstType extends AstNode
 {
     public static final int INT = 0;
@@ -22,10 +24,10 @@ public class AstType extends AstNode
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		if(type == INT) {System.out.print("====================== type -> TYPE_INT\n");}
-        if(type == STRING) {System.out.print("====================== type -> TYPE_STRING\n");}
-        if(type == VOID) {System.out.print("====================== type -> TYPE_VOID\n");}
-        if(type == ID) {System.out.print("====================== type -> ID\n");}
+		if(type == INT) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== type -> TYPE_INT");}
+        if(type == STRING) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== type -> TYPE_STRING");}
+        if(type == VOID) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== type -> TYPE_VOID");}
+        if(type == ID) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== type -> ID");}
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -168,7 +168,9 @@ public class AstTypeName extends AstNode
 			}
 
 			TypeFunction funcType = new TypeFunction(returnTypeFromTable, name, paramTypes);
+			funcType.method = true;
 			resultType = funcType;
+			funcDec.methodType = funcType;  // the symbol table no longer has it during irMe
 
 			/************************************************/
 			/* [4] Analyze method body                      */
@@ -200,6 +202,7 @@ public class AstTypeName extends AstNode
 			AstStmtReturn.expectedReturnType = null;
 
 			// End method scope
+			SymbolTable.getInstance().snapshot(name);
 			SymbolTable.getInstance().endScope();
 
 			// Method type was already entered, so return early
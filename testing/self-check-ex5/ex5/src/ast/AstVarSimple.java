@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import types.*;
 import symboltable.*;
+import diagnostics.*;
 
 public class AstVarSimple extends AstVar
 {
@@ -28,7 +29,7 @@ public class AstVarSimple extends AstVar
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.format("====================== var -> ID( %s )\n",name);
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== var -> ID( %s )", name);
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -55,7 +56,7 @@ public class AstVarSimple extends AstVar
 			String.format("SIMPLE\nVAR\n(%s)",name));
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
         SymbolTableEntry entry = SymbolTable.getInstance().findEntry(name);
 		if (entry == null)
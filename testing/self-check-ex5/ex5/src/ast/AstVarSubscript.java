@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import ir.Ir;
 import ir.IrCommandArrayAccess;
+import diagnostics.*;
 
 public class AstVarSubscript extends AstVar
 {
@@ -25,7 +26,7 @@ public class AstVarSubscript extends AstVar
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== var -> var [ exp ]\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== var -> var [ exp ]");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -65,7 +66,7 @@ public class AstVarSubscript extends AstVar
 		if (subscript != null) AstGraphviz.getInstance().logEdge(serialNumber,subscript.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		/**************************************/
 		/* [1] Get the type of the var prefix */
@@ -45,36 +45,7 @@ public class CFG {
     
     
     private List<IrCommand> extractCommandsFromIr(Ir ir) {
-        List<IrCommand> commands = new ArrayList<>();
-        
-        try {
-            // Use reflection to access the head and tail fields of Ir
-            java.lang.reflect.Field headField = Ir.class.getDeclaredField("head");
-            java.lang.reflect.Field tailField = Ir.class.getDeclaredField("tail");
-            headField.setAccessible(true);
-            tailField.setAccessible(true);
-            
-            IrCommand head = (IrCommand) headField.get(ir);
-            IrCommandList tail = (IrCommandList) tailField.get(ir);
-            
-            // Add head command
-            if (head != null) {
-                commands.add(head);
-            }
-            
-            // Add tail commands
-            IrCommandList current = tail;
-            while (current != null) {
-                if (current.head != null) {
-                    commands.add(current.head);
-                }
-                current = current.tail;
-            }
-        } catch (Exception e) {
-            System.err.println("Error extracting IR commands: " + e.getMessage());
-        }
-        
-        return commands;
+        return ir.getCommands();
     }
     
     // Create nodes from commands
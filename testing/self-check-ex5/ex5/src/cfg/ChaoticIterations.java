@@ -99,89 +99,64 @@ public class ChaoticIterations {
     }
 
     private InitializationState applyTransferFunction(IrCommand command, InitializationState state) {
-        if (command instanceof IRcommandConstInt) {
-            IRcommandConstInt cmd = (IRcommandConstInt) command;
-            String tempName = "Temp_" + cmd.t.getSerialNumber();
-            state.markInitialized(tempName);
-
-        } else if (command instanceof IrCommandLoad) {
-            IrCommandLoad cmd = (IrCommandLoad) command;
-            String varName = cmd.varName;
-            String tempName = "Temp_" + cmd.dst.getSerialNumber();
-
-            if (!state.isInitialized(varName)) {
-                uninitializedVariables.add(varName);
-            }
-
-            if (state.isInitialized(varName)) {
-                state.markInitialized(tempName);
-            }
-
-        } else if (command instanceof IrCommandStore) {
-            IrCommandStore cmd = (IrCommandStore) command;
-            String varName = cmd.varName;
-            state.markInitialized(varName);
-
-        } else if (command instanceof IrCommandBinopAddIntegers) {
-            IrCommandBinopAddIntegers cmd = (IrCommandBinopAddIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopSubIntegers) {
-            IrCommandBinopSubIntegers cmd = (IrCommandBinopSubIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopMulIntegers) {
-            IrCommandBinopMulIntegers cmd = (IrCommandBinopMulIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopDivIntegers) {
-            IrCommandBinopDivIntegers cmd = (IrCommandBinopDivIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopLtIntegers) {
-            IrCommandBinopLtIntegers cmd = (IrCommandBinopLtIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopEqIntegers) {
-            IrCommandBinopEqIntegers cmd = (IrCommandBinopEqIntegers) command;
-            handleBinop(cmd.dst, cmd.t1, cmd.t2, state);
-
-        } else if (command instanceof IrCommandBinopMinusInteger) {
-            IrCommandBinopMinusInteger cmd = (IrCommandBinopMinusInteger) command;
-            String dstName = "Temp_" + cmd.dst.getSerialNumber();
-            String srcName = "Temp_" + cmd.t.getSerialNumber();
-
-            if (state.isInitialized(srcName)) {
-                state.markInitialized(dstName);
-            }
-
-        } else if (command instanceof IrCommandCallFunc) {
-            IrCommandCallFunc cmd = (IrCommandCallFunc) command;
-            String tempName = "Temp_" + cmd.t.getSerialNumber();
+        switch (command.opcode) {
+            case LOAD: {
+                IrCommandLoad cmd = (IrCommandLoad) command;
+                String varName = cmd.varName;
+                String tempName = "Temp_" + cmd.dst.getSerialNumber();
+
+                if (!state.isInitialized(varName)) {
+                    uninitializedVariables.add(varName);
+                }
 
-            if (!state.isInitialized(tempName)) {
-                uninitializedVariables.add(tempName);
+                if (state.isInitialized(varName)) {
+                    state.markInitialized(tempName);
+                }
+                break;
             }
-
-        } else if (command instanceof IrCommandJumpIfEqToZero) {
-            IrCommandJumpIfEqToZero cmd = (IrCommandJumpIfEqToZero) command;
-            String tempName = "Temp_" + cmd.t.getSerialNumber();
-
-            if (!state.isInitialized(tempName)) {
-                uninitializedVariables.add(tempName);
+            case STORE:
+                state.markInitialized(((IrCommandStore) command).varName);
+                break;
+
+            case CALL_FUNC:
+            case JUMP_IF_EQ_TO_ZERO: {
+                Temp[] temps = (command.opcode == IrOpcode.CALL_FUNC) ? command.defs() : command.uses();
+                for (Temp t : temps) {
+                    String tempName = "Temp_" + t.getSerialNumber();
+                    if (!state.isInitialized(tempName)) {
+                        uninitializedVariables.add(tempName);
+                    }
+                }
+                break;
             }
+            case CONST_INT:
+            case BINOP_ADD:
+            case BINOP_SUB:
+            case BINOP_MUL:
+            case BINOP_DIV:
+            case BINOP_LT:
+            case BINOP_EQ:
+            case NEG:
+            case MOVE:
+                // The result is initialized once every operand is
+                handleDefs(command.defs(), command.uses(), state);
+                break;
+
+            default:
+                break;
         }
 
         return state;
     }
 
-    private void handleBinop(Temp dst, Temp t1, Temp t2, InitializationState state) {
-        String dstName = "Temp_" + dst.getSerialNumber();
-        String t1Name = "Temp_" + t1.getSerialNumber();
-        String t2Name = "Temp_" + t2.getSerialNumber();
-
-        if (state.isInitialized(t1Name) && state.isInitialized(t2Name)) {
-            state.markInitialized(dstName);
+    private void handleDefs(Temp[] defs, Temp[] uses, InitializationState state) {
+        for (Temp use : uses) {
+            if (!state.isInitialized("Temp_" + use.getSerialNumber())) {
+                return;
+            }
+        }
+        for (Temp def : defs) {
+            state.markInitialized("Temp_" + def.getSerialNumber());
         }
     }
     
@@ -217,7 +192,7 @@ public class ChaoticIterations {
             IrCommand cmd = node.getCommand();
             InitializationState inState = inStates.get(node);
 
-            if (cmd instanceof IrCommandLoad) {
+            if (cmd.opcode == IrOpcode.LOAD) {
                 IrCommandLoad load = (IrCommandLoad) cmd;
                 if (!inState.isInitialized(load.varName)) {
                     if (!load.varName.startsWith("Temp_")) {
@@ -225,21 +200,9 @@ public class ChaoticIterations {
                         result.add(cleanName);
                     }
                 }
-            } else if (cmd instanceof IrCommandCallFunc) {
-                IrCommandCallFunc call = (IrCommandCallFunc) cmd;
-                String tempName = "Temp_" + call.t.getSerialNumber();
-                if (!inState.isInitialized(tempName)) {
-
-                }
-            } else if (cmd instanceof IrCommandJumpIfEqToZero) {
-                IrCommandJumpIfEqToZero jump = (IrCommandJumpIfEqToZero) cmd;
-                String tempName = "Temp_" + jump.t.getSerialNumber();
-                if (!inState.isInitialized(tempName)) {
-
-                }
             }
         }
 
         return new ArrayList<>(result);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package diagnostics;
+
+/**
+ * Compiler phase a diagnostic message comes from
+ */
+public enum Category
+{
+    PARSER,
+    SEMANT,
+    IR,
+    REGALLOC,
+    MIPS
+}
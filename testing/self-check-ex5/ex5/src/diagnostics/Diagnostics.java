@@ -0,0 +1,89 @@
+package diagnostics;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Diagnostics
+ *
+ * One channel for the trace and progress output of every phase. A
+ * message has a Category (the phase) and a Level, and is printed only if
+ * its category is enabled at that level or a more detailed one. By
+ * default only errors are, so a successful compile prints nothing.
+ *
+ * A disabled message costs one array lookup: log() formats only after
+ * the check. Callers that build a long report (the liveness tables of
+ * the register allocator, the IR listing) test isEnabled() first and
+ * then print to out().
+ *
+ *   Diagnostics.log(Category.PARSER, Level.TRACE, "var -> ID( %s )", name);
+ *
+ * Main enables categories from its --log option (see configure).
+ */
+public final class Diagnostics
+{
+    // Most detailed enabled level per category, as a Level ordinal
+    private static final int[] threshold = new int[Category.values().length];
+
+    static {
+        Arrays.fill(threshold, Level.ERROR.ordinal());
+    }
+
+    private static PrintStream out = System.out;
+
+    private Diagnostics() {}
+
+    public static boolean isEnabled(Category category, Level level)
+    {
+        return level.ordinal() <= threshold[category.ordinal()];
+    }
+
+    /**
+     * Print a message (String.format of format and args) if enabled
+     */
+    public static void log(Category category, Level level, String format, Object... args)
+    {
+        if (level.ordinal() > threshold[category.ordinal()]) {
+            return;
+        }
+        out.println(args.length == 0 ? format : String.format(format, args));
+    }
+
+    /**
+     * Where enabled messages go (standard output)
+     */
+    public static PrintStream out()
+    {
+        return out;
+    }
+
+    /**
+     * Print messages of category up to level
+     */
+    public static void enable(Category category, Level level)
+    {
+        threshold[category.ordinal()] = level.ordinal();
+    }
+
+    /**
+     * Enable categories from a spec such as "parser:trace,regalloc".
+     * An item is a category name or "all", optionally followed by a level;
+     * the level defaults to DEBUG.
+     *
+     * @throws IllegalArgumentException for an unknown category or level
+     */
+    public static void configure(String spec)
+    {
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split(":");
+            Level level = (parts.length > 1) ? Level.valueOf(parts[1].toUpperCase()) : Level.DEBUG;
+            if (parts[0].equalsIgnoreCase("all")) {
+                for (Category category : Category.values()) {
+                    enable(category, level);
+                }
+            } else {
+                enable(Category.valueOf(parts[0].toUpperCase()), level);
+            }
+        }
+    }
+}
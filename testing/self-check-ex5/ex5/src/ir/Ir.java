@@ -1,86 +1,150 @@
 package ir;
 
+import diagnostics.Diagnostics;
+import java.io.PrintStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import temp.TempFactory;
 
 public class Ir
 {
-	private IrCommand head=null;
-	private IrCommandList tail=null;
+	private final List<IrFunction> functions = new ArrayList<>();
+	private final Map<String, List<String>> vtables = new LinkedHashMap<>();  // label -> method labels
+	private IrFunction current = null;
 
-	// Add IR command
+	// Add IR command (amortized O(1)) to the open function unit
 	public void AddIrCommand(IrCommand cmd)
 	{
-		if ((head == null) && (tail == null))
+		if (current == null)
 		{
-			this.head = cmd;
-		}
-		else if ((head != null) && (tail == null))
-		{
-			this.tail = new IrCommandList(cmd,null);
-		}
-		else
-		{
-			IrCommandList it = tail;
-			while ((it != null) && (it.tail != null))
-			{
-				it = it.tail;
-			}
-			it.tail = new IrCommandList(cmd,null);
+			throw new IllegalStateException("IR command emitted outside of a function unit: " + cmd);
 		}
+		current.add(cmd);
 	}
 
-	// Print IR to standard output
-	public void printIR()
+	/**
+	 * Open a new function unit without parameters
+	 */
+	public void beginFunction(String name)
 	{
-		System.out.println("\n==================== IR CODE ====================");
+		beginFunction(name, Collections.<String>emptyList());
+	}
 
-		// Print head command
-		if (head != null)
+	/**
+	 * Open a new function unit and emit its FUNCTION_ENTRY.
+	 * Every command added until endFunction() belongs to this unit.
+	 *
+	 * @param parameters variable names of the parameters, in order
+	 */
+	public void beginFunction(String name, List<String> parameters)
+	{
+		if (current != null)
 		{
-			System.out.println(head);
+			throw new IllegalStateException("function " + name + " begins inside " + current.getName());
 		}
+		current = new IrFunction(name, parameters, TempFactory.getInstance().getNextSerialNumber());
+		functions.add(current);
+		AddIrCommand(new IrCommandFunctionEntry(name));
+	}
+
+	/**
+	 * Emit FUNCTION_EXIT for the open unit and close it
+	 */
+	public void endFunction()
+	{
+		AddIrCommand(new IrCommandFunctionExit(current.getName()));
+		current.close(TempFactory.getInstance().getNextSerialNumber());
+		current = null;
+	}
+
+	/**
+	 * Record a class's dispatch table
+	 *
+	 * @param label data label of the table
+	 * @param methodLabels code label of each slot, in slot order
+	 */
+	public void addVtable(String label, List<String> methodLabels)
+	{
+		vtables.put(label, methodLabels);
+	}
 
-		// Print tail commands
-		IrCommandList it = tail;
-		while (it != null)
+	/**
+	 * Dispatch tables by label, in declaration order
+	 */
+	public Map<String, List<String>> getVtables()
+	{
+		return Collections.unmodifiableMap(vtables);
+	}
+
+	/**
+	 * Function units in emission order (the global initialization unit comes first)
+	 */
+	public List<IrFunction> getFunctions()
+	{
+		return Collections.unmodifiableList(functions);
+	}
+
+	// Print IR to the diagnostics output
+	public void printIR()
+	{
+		PrintStream out = Diagnostics.out();
+		out.println("\n==================== IR CODE ====================");
+
+		for (IrFunction function : functions)
 		{
-			if (it.head != null)
-			{
-				System.out.println(it.head);
-			}
-			it = it.tail;
+			out.print(function);
 		}
 
-		System.out.println("=================================================\n");
+		out.println("=================================================\n");
 	}
 
 	/**
-	 * Get all IR commands as a list
-	 * (Added for Person B - Register Allocation)
+	 * Read-only view of all IR commands, unit after unit (no copy is made).
+	 * The view reflects the units as they are when it is created.
 	 */
 	public List<IrCommand> getCommands()
 	{
-		List<IrCommand> commands = new ArrayList<>();
+		return new AllCommands();
+	}
+
+	private class AllCommands extends AbstractList<IrCommand> implements RandomAccess
+	{
+		// start[k] = index of the first command of functions.get(k)
+		private final int[] start = new int[functions.size() + 1];
 
-		// Add head command
-		if (head != null)
+		AllCommands()
 		{
-			commands.add(head);
+			for (int k = 0; k < functions.size(); k++)
+			{
+				start[k + 1] = start[k] + functions.get(k).getProgram().size();
+			}
 		}
 
-		// Add tail commands
-		IrCommandList it = tail;
-		while (it != null)
+		public IrCommand get(int index)
 		{
-			if (it.head != null)
+			if (index < 0 || index >= size())
+			{
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+			}
+			int lo = 0;
+			int hi = functions.size() - 1;
+			while (lo < hi)
 			{
-				commands.add(it.head);
+				int mid = (lo + hi + 1) >>> 1;
+				if (start[mid] <= index) lo = mid; else hi = mid - 1;
 			}
-			it = it.tail;
+			return functions.get(lo).getProgram().get(index - start[lo]);
 		}
 
-		return commands;
+		public int size()
+		{
+			return start[functions.size()];
+		}
 	}
 
 	// Singleton implementation
@@ -1,7 +1,24 @@
 package ir;
 
+import temp.Temp;
+
 public abstract class IrCommand
 {
+	// Shared empty array for commands that read or write no temps
+	protected static final Temp[] NO_TEMPS = new Temp[0];
+
+	// Kind of this command, for switch-based dispatch
+	public final IrOpcode opcode;
+
+	// Temps read / written by this command, filled in by the constructor
+	protected Temp[] uses = NO_TEMPS;
+	protected Temp[] defs = NO_TEMPS;
+
+	protected IrCommand(IrOpcode opcode)
+	{
+		this.opcode = opcode;
+	}
+
 	// Label Factory
 	protected static int labelCounter = 0;
 	public static String getFreshLabel(String msg)
@@ -9,5 +26,64 @@ public abstract class IrCommand
 		return String.format("Label_%d_%s", labelCounter++,msg);
 	}
 
+	/**
+	 * Temps read by this command (no null entries).
+	 * The array is shared: callers must not modify it.
+	 */
+	public Temp[] uses()
+	{
+		return uses;
+	}
+
+	/**
+	 * Temps written by this command (no null entries).
+	 * The array is shared: callers must not modify it.
+	 */
+	public Temp[] defs()
+	{
+		return defs;
+	}
+
+	/**
+	 * Replace a temp this command reads (fields and uses() array).
+	 * Used by the register allocator when it rewrites spilled temps.
+	 */
+	public void replaceUse(Temp from, Temp to)
+	{
+		// Commands that read no temps have nothing to replace
+	}
+
+	/**
+	 * Replace a temp this command writes (fields and defs() array)
+	 */
+	public void replaceDef(Temp from, Temp to)
+	{
+		// Commands that write no temps have nothing to replace
+	}
+
+	/**
+	 * Double-dispatch to the visitor overload for this command's class
+	 */
+	public abstract void accept(IrVisitor visitor);
+
 	public abstract String toString();
+
+	// Pack the non-null temps into an array (NO_TEMPS when there are none)
+	protected static Temp[] temps(Temp... ts)
+	{
+		int n = 0;
+		for (Temp t : ts)
+		{
+			if (t != null) n++;
+		}
+		if (n == 0) return NO_TEMPS;
+
+		Temp[] result = new Temp[n];
+		int i = 0;
+		for (Temp t : ts)
+		{
+			if (t != null) result[i++] = t;
+		}
+		return result;
+	}
 }
@@ -37,10 +37,14 @@ public class IrCommandArrayAccess extends IrCommand
 
 	public IrCommandArrayAccess(Temp dst, Temp array, Temp index, int elementSize)
 	{
+		super(IrOpcode.ARRAY_ACCESS);
 		this.dst = dst;
 		this.array = array;
 		this.index = index;
 		this.elementSize = elementSize;
+
+		this.uses = temps(array, index);
+		this.defs = temps(dst);
 	}
 
 	// Simplified constructor assuming 4-byte elements (ints)
@@ -49,6 +53,24 @@ public class IrCommandArrayAccess extends IrCommand
 		this(dst, array, index, 4);
 	}
 
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (array == from) array = to;
+		if (index == from) index = to;
+		this.uses = temps(array, index);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		String dstStr = (dst != null) ? "Temp_" + dst.getSerialNumber() : "(null)";
@@ -10,11 +10,33 @@ public class IrCommandBinopDivIntegers extends IrCommand
 
 	public IrCommandBinopDivIntegers(Temp dst, Temp t1, Temp t2)
 	{
+		super(IrOpcode.BINOP_DIV);
 		this.dst = dst;
 		this.t1 = t1;
 		this.t2 = t2;
+
+		this.uses = temps(t1, t2);
+		this.defs = temps(dst);
 	}
 
+    public void replaceUse(Temp from, Temp to)
+    {
+        if (t1 == from) t1 = to;
+        if (t2 == from) t2 = to;
+        this.uses = temps(t1, t2);
+    }
+
+    public void replaceDef(Temp from, Temp to)
+    {
+        if (dst == from) dst = to;
+        this.defs = temps(dst);
+    }
+
+    public void accept(IrVisitor visitor)
+    {
+        visitor.visit(this);
+    }
+
     public String toString()
     {
 		String dstStr = (dst != null) ? "Temp_" + dst.getSerialNumber() : "(null)";
@@ -10,9 +10,31 @@ public class IrCommandBinopEqIntegers extends IrCommand
 
 	public IrCommandBinopEqIntegers(Temp dst, Temp t1, Temp t2)
 	{
+		super(IrOpcode.BINOP_EQ);
 		this.dst = dst;
 		this.t1 = t1;
 		this.t2 = t2;
+
+		this.uses = temps(t1, t2);
+		this.defs = temps(dst);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (t1 == from) t1 = to;
+		if (t2 == from) t2 = to;
+		this.uses = temps(t1, t2);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
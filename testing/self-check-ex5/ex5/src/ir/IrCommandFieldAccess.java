@@ -33,10 +33,14 @@ public class IrCommandFieldAccess extends IrCommand
 
 	public IrCommandFieldAccess(Temp dst, Temp object, int fieldOffset, String fieldName)
 	{
+		super(IrOpcode.FIELD_ACCESS);
 		this.dst = dst;
 		this.object = object;
 		this.fieldOffset = fieldOffset;
 		this.fieldName = fieldName;
+
+		this.uses = temps(object);
+		this.defs = temps(dst);
 	}
 
 	// Simplified constructor without field name
@@ -45,6 +49,23 @@ public class IrCommandFieldAccess extends IrCommand
 		this(dst, object, fieldOffset, "");
 	}
 
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (object == from) object = to;
+		this.uses = temps(object);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		if (fieldName != null && !fieldName.isEmpty()) {
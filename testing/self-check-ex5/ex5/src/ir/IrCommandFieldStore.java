@@ -34,10 +34,13 @@ public class IrCommandFieldStore extends IrCommand
 
 	public IrCommandFieldStore(Temp object, int fieldOffset, Temp value, String fieldName)
 	{
+		super(IrOpcode.FIELD_STORE);
 		this.object = object;
 		this.fieldOffset = fieldOffset;
 		this.value = value;
 		this.fieldName = fieldName;
+
+		this.uses = temps(object, value);
 	}
 
 	// Simplified constructor without field name
@@ -46,6 +49,18 @@ public class IrCommandFieldStore extends IrCommand
 		this(object, fieldOffset, value, "");
 	}
 
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (object == from) object = to;
+		if (value == from) value = to;
+		this.uses = temps(object, value);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		if (fieldName != null && !fieldName.isEmpty()) {
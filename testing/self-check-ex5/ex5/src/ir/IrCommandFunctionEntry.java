@@ -0,0 +1,36 @@
+package ir;
+
+/**
+ * IR Command marking the entry of a function unit
+ *
+ * Semantics:
+ * - First command of every IrFunction
+ * - Code generation emits the function label and prologue here
+ * - For the global initialization unit, this is the program entry point
+ *
+ * Usage Pattern:
+ *   FUNCTION_ENTRY name
+ *
+ * Example:
+ *   FUNCTION_ENTRY fib
+ */
+public class IrCommandFunctionEntry extends IrCommand
+{
+	public String functionName;
+
+	public IrCommandFunctionEntry(String functionName)
+	{
+		super(IrOpcode.FUNCTION_ENTRY);
+		this.functionName = functionName;
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("FUNCTION_ENTRY %s", functionName);
+	}
+}
@@ -0,0 +1,37 @@
+package ir;
+
+/**
+ * IR Command marking the exit of a function unit
+ *
+ * Semantics:
+ * - Last command of every IrFunction
+ * - Reached when control falls off the end of the body
+ *   (acts as an implicit RETURN_VOID)
+ * - Has no successors in the control flow graph
+ *
+ * Usage Pattern:
+ *   FUNCTION_EXIT name
+ *
+ * Example:
+ *   FUNCTION_EXIT fib
+ */
+public class IrCommandFunctionExit extends IrCommand
+{
+	public String functionName;
+
+	public IrCommandFunctionExit(String functionName)
+	{
+		super(IrOpcode.FUNCTION_EXIT);
+		this.functionName = functionName;
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("FUNCTION_EXIT %s", functionName);
+	}
+}
@@ -9,8 +9,22 @@ public class IrCommandJumpIfEqToZero extends IrCommand
 
 	public IrCommandJumpIfEqToZero(Temp t, String labelName)
 	{
+		super(IrOpcode.JUMP_IF_EQ_TO_ZERO);
 		this.t          = t;
 		this.labelName = labelName;
+
+		this.uses = temps(t);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (t == from) t = to;
+		this.uses = temps(t);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
@@ -9,8 +9,22 @@ public class IrCommandLoad extends IrCommand
 
 	public IrCommandLoad(Temp dst, String varName)
 	{
+		super(IrOpcode.LOAD);
 		this.dst      = dst;
 		this.varName = varName;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
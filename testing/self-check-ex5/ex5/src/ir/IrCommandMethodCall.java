@@ -1,15 +1,19 @@
 package ir;
 
 import temp.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * IR Command for Method Call
  *
  * Semantics:
- * - Calls a method on an object
- * - Object is passed as implicit first parameter (like 'this')
- * - May use vtable for dynamic dispatch (depends on implementation)
+ * - Calls a method on an object through the object's dispatch table:
+ *   word 0 of the object points to its class's vtable, and the method's
+ *   slot sits at vtableOffset in it, so the call is a load and a jalr
+ * - Object is passed as implicit first parameter (like 'this') in $a0,
+ *   the next three arguments in $a1-$a3 and the others on the stack
+ *   through ARGUMENT commands, as with CALL_FUNC
  * - Returns result in dst
  *
  * Runtime checks needed:
@@ -23,9 +27,9 @@ import java.util.List;
  *   Temp dst = METHOD_CALL(t_object, method_name, [t_arg1, t_arg2])
  *
  * Example:
- *   Temp_10 := METHOD_CALL(Temp_5, "getX", [])
+ *   Temp_10 := METHOD_CALL(Temp_5.getX() @ vtable+4)
  *   // Temp_5 points to object
- *   // Calls method getX() on object
+ *   // Calls the getX() of the object's class, found in slot 1
  *   // Temp_10 will contain return value
  */
 public class IrCommandMethodCall extends IrCommand
@@ -33,14 +37,50 @@ public class IrCommandMethodCall extends IrCommand
 	public Temp dst;             // Destination: will hold return value (null for void)
 	public Temp object;          // Object to call method on
 	public String methodName;    // Name of method to call
-	public List<Temp> arguments; // Method arguments (excluding implicit object)
+	public int vtableOffset;     // Byte offset of the method's slot in the vtable
+	public List<Temp> arguments; // Register arguments after the object (at most 3)
+	public int argumentCount;    // All arguments, the object included
 
-	public IrCommandMethodCall(Temp dst, Temp object, String methodName, List<Temp> arguments)
+	public IrCommandMethodCall(Temp dst, Temp object, String methodName, int vtableOffset,
+	                           List<Temp> arguments, int argumentCount)
 	{
+		super(IrOpcode.METHOD_CALL);
 		this.dst = dst;
 		this.object = object;
 		this.methodName = methodName;
-		this.arguments = arguments;
+		this.vtableOffset = vtableOffset;
+		this.arguments = (arguments == null) ? new ArrayList<>() : arguments;
+		this.argumentCount = argumentCount;
+
+		this.uses = usedTemps();
+		this.defs = temps(dst);
+	}
+
+	// The object followed by the arguments
+	private Temp[] usedTemps()
+	{
+		List<Temp> used = new ArrayList<>();
+		used.add(object);
+		used.addAll(arguments);
+		return temps(used.toArray(new Temp[0]));
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (object == from) object = to;
+		arguments.replaceAll(a -> (a == from) ? to : a);
+		this.uses = usedTemps();
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
@@ -55,14 +95,15 @@ public class IrCommandMethodCall extends IrCommand
 			object.getSerialNumber(),
 			methodName));
 
-		if (arguments != null && !arguments.isEmpty()) {
-			for (int i = 0; i < arguments.size(); i++) {
-				if (i > 0) sb.append(", ");
-				sb.append(String.format("Temp_%d", arguments.get(i).getSerialNumber()));
-			}
+		for (int i = 0; i < arguments.size(); i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(String.format("Temp_%d", arguments.get(i).getSerialNumber()));
+		}
+		if (argumentCount > arguments.size() + 1) {
+			sb.append(String.format(" + %d on the stack", argumentCount - arguments.size() - 1));
 		}
 
-		sb.append("))");
+		sb.append(String.format(") @ vtable+%d)", vtableOffset));
 
 		return sb.toString();
 	}
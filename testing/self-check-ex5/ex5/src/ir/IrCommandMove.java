@@ -0,0 +1,65 @@
+package ir;
+
+import temp.Temp;
+
+/**
+ * IR Command for copying one temp into another
+ *
+ * Semantics:
+ * - Inserted by the register allocator when a variable load can reuse
+ *   a value already held in a temp
+ * - dst and src are move-related: if coalescing gives them the same
+ *   register, the copy disappears from the generated code
+ * - varName, if set, is the variable the move replaced a load from; the
+ *   move can be turned back into that load when registers run short
+ *
+ * Usage Pattern:
+ *   Temp dst = src
+ *
+ * Example:
+ *   Temp_12 := MOVE Temp_7
+ */
+public class IrCommandMove extends IrCommand
+{
+	public Temp dst;
+	public Temp src;
+	public String varName;  // Variable that also holds the value (null if none)
+
+	public IrCommandMove(Temp dst, Temp src)
+	{
+		this(dst, src, null);
+	}
+
+	public IrCommandMove(Temp dst, Temp src, String varName)
+	{
+		super(IrOpcode.MOVE);
+		this.dst = dst;
+		this.src = src;
+		this.varName = varName;
+
+		this.uses = temps(src);
+		this.defs = temps(dst);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (src == from) src = to;
+		this.uses = temps(src);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("Temp_%d := MOVE Temp_%d", dst.getSerialNumber(), src.getSerialNumber());
+	}
+}
@@ -7,20 +7,21 @@ import temp.*;
  *
  * Semantics:
  * - Allocates object on heap
- * - Object layout: [vtable ptr (optional)][field0][field1]...[fieldN-1]
+ * - Object layout: [vtable ptr][field0][field1]...[fieldN-1]
+ * - The vtable pointer is set to the class's dispatch table (null if
+ *   the class has no methods); the fields start out zero
  * - Returns address of object in dst
  * - Data members initialized separately after allocation
  *
  * Memory calculation:
- * - Total bytes = number of fields * 4 (assuming all fields are 4 bytes)
- * - May include vtable pointer if using dynamic dispatch
+ * - Total bytes = 4 (vtable pointer) + number of fields * 4
  *
  * Usage Pattern:
  *   Temp dst = NEW_OBJECT(class_name, size_in_bytes)
  *
  * Example:
- *   Temp_8 := NEW_OBJECT("Point", size=8)
- *   // Creates object with 2 fields (8 bytes)
+ *   Temp_8 := NEW_OBJECT("Point", size=12)
+ *   // Creates object with 2 fields (12 bytes with the vtable pointer)
  *   // Temp_8 will point to newly allocated object
  */
 public class IrCommandNewObject extends IrCommand
@@ -28,12 +29,28 @@ public class IrCommandNewObject extends IrCommand
 	public Temp dst;        // Destination: will hold address of new object
 	public String className; // Name of the class
 	public int sizeInBytes; // Total size in bytes
+	public String vtableLabel; // Dispatch table of the class (null if it has no methods)
 
-	public IrCommandNewObject(Temp dst, String className, int sizeInBytes)
+	public IrCommandNewObject(Temp dst, String className, int sizeInBytes, String vtableLabel)
 	{
+		super(IrOpcode.NEW_OBJECT);
 		this.dst = dst;
 		this.className = className;
 		this.sizeInBytes = sizeInBytes;
+		this.vtableLabel = vtableLabel;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
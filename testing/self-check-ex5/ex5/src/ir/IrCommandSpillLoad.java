@@ -0,0 +1,47 @@
+package ir;
+
+import temp.Temp;
+
+/**
+ * IR Command for reloading a spilled temp
+ *
+ * Semantics:
+ * - Inserted by the register allocator, never by the AST
+ * - Reads frame slot 'slot' of the current function into dst
+ *
+ * Usage Pattern:
+ *   Temp dst = SPILL_LOAD slot
+ *
+ * Example:
+ *   Temp_42 := SPILL_LOAD [slot 0]
+ */
+public class IrCommandSpillLoad extends IrCommand
+{
+	public Temp dst;  // Destination: fresh temp live only until its single use
+	public int slot;  // Frame slot index of the spilled temp
+
+	public IrCommandSpillLoad(Temp dst, int slot)
+	{
+		super(IrOpcode.SPILL_LOAD);
+		this.dst = dst;
+		this.slot = slot;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("Temp_%d := SPILL_LOAD [slot %d]", dst.getSerialNumber(), slot);
+	}
+}
@@ -0,0 +1,62 @@
+package ir;
+
+/**
+ * Kind of an IR command.
+ *
+ * Every IrCommand carries exactly one opcode, so passes can dispatch
+ * with a switch instead of a chain of instanceof tests.
+ */
+public enum IrOpcode
+{
+	/* constants */
+	CONST_INT,
+	CONST_STRING,
+	NIL_CONST,
+
+	/* integer arithmetic and comparison */
+	BINOP_ADD,
+	BINOP_SUB,
+	BINOP_MUL,
+	BINOP_DIV,
+	BINOP_EQ,
+	BINOP_LT,
+	NEG,
+
+	/* strings */
+	STRING_CONCAT,
+	STRING_EQUAL,
+
+	/* variables */
+	ALLOCATE,
+	LOAD,
+	STORE,
+	MOVE,
+	SPILL_LOAD,
+	SPILL_STORE,
+
+	/* arrays */
+	NEW_ARRAY,
+	ARRAY_ACCESS,
+	ARRAY_STORE,
+	ARRAY_LENGTH,
+
+	/* objects */
+	NEW_OBJECT,
+	FIELD_ACCESS,
+	FIELD_STORE,
+
+	/* calls */
+	PARAMETER,
+	ARGUMENT,
+	CALL_FUNC,
+	METHOD_CALL,
+
+	/* control flow */
+	LABEL,
+	JUMP,
+	JUMP_IF_EQ_TO_ZERO,
+	RETURN,
+	RETURN_VOID,
+	FUNCTION_ENTRY,
+	FUNCTION_EXIT
+}
@@ -0,0 +1,113 @@
+package ir;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Array-backed container for a sequence of IR commands.
+ *
+ * Appends are amortized O(1) (the backing array doubles when full) and
+ * commands are addressed by index, so later passes can keep per-command
+ * data in parallel arrays instead of maps keyed by IrCommand.
+ *
+ * Consumers either iterate the program directly or take the read-only
+ * List view returned by asList(); neither copies the commands.
+ */
+public class IrProgram implements Iterable<IrCommand>
+{
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private IrCommand[] commands;
+	private int size;
+	private final List<IrCommand> view = new View();
+
+	public IrProgram()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	public IrProgram(int initialCapacity)
+	{
+		this.commands = new IrCommand[Math.max(initialCapacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Append a command (amortized O(1))
+	 */
+	public void add(IrCommand cmd)
+	{
+		if (size == commands.length)
+		{
+			commands = Arrays.copyOf(commands, commands.length * 2);
+		}
+		commands[size++] = cmd;
+	}
+
+	public IrCommand get(int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		return commands[index];
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Read-only, random-access view of the commands.
+	 * The view is live: commands appended later are visible through it.
+	 */
+	public List<IrCommand> asList()
+	{
+		return view;
+	}
+
+	public Iterator<IrCommand> iterator()
+	{
+		return new Iterator<IrCommand>()
+		{
+			private int next = 0;
+
+			public boolean hasNext()
+			{
+				return next < size;
+			}
+
+			public IrCommand next()
+			{
+				if (next >= size)
+				{
+					throw new NoSuchElementException();
+				}
+				return commands[next++];
+			}
+		};
+	}
+
+	private class View extends AbstractList<IrCommand> implements RandomAccess
+	{
+		public IrCommand get(int index)
+		{
+			return IrProgram.this.get(index);
+		}
+
+		public int size()
+		{
+			return size;
+		}
+	}
+}
@@ -8,28 +8,31 @@ import java.util.*;
  *
  * Manages MIPS assembly code generation:
  * - Data section (strings, error messages)
- * - Text section (code)
+ * - Text section: one MipsInstr list per function (see MipsFunction),
+ *   kept as structured instructions until close() renders everything
+ *   in a single pass
  * - Label generation
  * - Output file management
  *
  * Usage:
  *   MipsGenerator gen = new MipsGenerator("output.s");
  *   gen.emitDataString("hello", "string_0");
- *   gen.emitText("li $t0, 5");
+ *   gen.beginFunction("main");
+ *   gen.emit(MipsInstr.li("$t0", 5));
  *   gen.close();
  */
 public class MipsGenerator
 {
-    private PrintWriter writer;
+    private final String outputFile;
     private StringBuilder dataSection;
-    private StringBuilder textSection;
+    private final List<MipsFunction> functions = new ArrayList<>();
+    private MipsFunction current = null;
     private int labelCounter;
 
     public MipsGenerator(String outputFile) throws IOException
     {
-        this.writer = new PrintWriter(new FileWriter(outputFile));
+        this.outputFile = outputFile;
         this.dataSection = new StringBuilder();
-        this.textSection = new StringBuilder();
         this.labelCounter = 0;
 
         initializeDataSection();
@@ -55,7 +58,7 @@ public class MipsGenerator
      */
     public void emitDataString(String value, String label)
     {
-        dataSection.append(String.format("%s: .asciiz \"%s\"\n", label, escapeString(value)));
+        dataSection.append(label).append(": .asciiz \"").append(escapeString(value)).append("\"\n");
     }
 
     /**
@@ -66,32 +69,49 @@ public class MipsGenerator
         dataSection.append(directive).append("\n");
     }
 
+    /**
+     * Start a new piece of the text section; instructions emitted from
+     * now on belong to it
+     */
+    public void beginFunction(String name)
+    {
+        current = new MipsFunction(name);
+        functions.add(current);
+    }
+
+    /**
+     * Pieces of the text section, in output order
+     */
+    public List<MipsFunction> getFunctions()
+    {
+        return functions;
+    }
+
     /**
      * Emit a label in the text section
      */
     public void emitLabel(String label)
     {
-        textSection.append(label).append(":\n");
+        emit(MipsInstr.labelDef(label));
     }
 
     /**
      * Emit an instruction in the text section
      */
-    public void emit(String instruction)
+    public void emit(MipsInstr instr)
     {
-        textSection.append("    ").append(instruction).append("\n");
+        if (current == null) {
+            beginFunction("text");
+        }
+        current.add(instr);
     }
 
     /**
      * Emit an instruction with a comment
      */
-    public void emit(String instruction, String comment)
+    public void emit(MipsInstr instr, String comment)
     {
-        textSection.append("    ").append(instruction);
-        if (comment != null && !comment.isEmpty()) {
-            textSection.append("    # ").append(comment);
-        }
-        textSection.append("\n");
+        emit(instr.withComment(comment));
     }
 
     /**
@@ -99,7 +119,7 @@ public class MipsGenerator
      */
     public void emitComment(String comment)
     {
-        textSection.append("    # ").append(comment).append("\n");
+        emit(MipsInstr.commentLine(comment));
     }
 
     /**
@@ -107,7 +127,7 @@ public class MipsGenerator
      */
     public void emitBlankLine()
     {
-        textSection.append("\n");
+        emit(MipsInstr.blank());
     }
 
     /**
@@ -115,40 +135,45 @@ public class MipsGenerator
      */
     public String getFreshLabel(String prefix)
     {
-        return String.format("%s_%d", prefix, labelCounter++);
+        return prefix + "_" + (labelCounter++);
     }
 
     /**
-     * Finalize and write the complete MIPS file
+     * Render the complete MIPS file: the only place text is produced
      */
-    public void finalize()
+    private void render(Writer writer) throws IOException
     {
         // Write data section
-        writer.print(dataSection.toString());
-        writer.println();
+        writer.write(dataSection.toString());
+        writer.write('\n');
 
         // Write text section header
-        writer.println(".text");
-        writer.println(".globl main");
-        writer.println();
+        writer.write(".text\n");
+        writer.write(".globl main\n");
+        writer.write('\n');
 
         // Write text section
-        writer.print(textSection.toString());
+        for (MipsFunction function : functions) {
+            for (MipsInstr instr : function.getInstructions()) {
+                instr.render(writer);
+            }
+        }
 
         // Ensure program ends with exit
-        writer.println();
-        writer.println("# Program exit");
-        writer.println("    li $v0, 10");
-        writer.println("    syscall");
+        writer.write('\n');
+        writer.write("# Program exit\n");
+        writer.write("    li $v0, 10\n");
+        writer.write("    syscall\n");
     }
 
     /**
-     * Close the output file
+     * Write the output file
      */
-    public void close()
+    public void close() throws IOException
     {
-        finalize();
-        writer.close();
+        try (Writer writer = new BufferedWriter(new FileWriter(outputFile))) {
+            render(writer);
+        }
     }
 
     /**
@@ -168,12 +193,13 @@ public class MipsGenerator
      */
     public void emitDivByZeroHandler()
     {
+        beginFunction("error_div_by_zero");
         emitLabel("error_div_by_zero");
-        emit("la $a0, msg_div_zero");
-        emit("li $v0, 4");
-        emit("syscall");
-        emit("li $v0, 10");
-        emit("syscall");
+        emit(MipsInstr.la("$a0", "msg_div_zero"));
+        emit(MipsInstr.li("$v0", 4));
+        emit(MipsInstr.syscall());
+        emit(MipsInstr.li("$v0", 10));
+        emit(MipsInstr.syscall());
         emitBlankLine();
     }
 
@@ -182,12 +208,13 @@ public class MipsGenerator
      */
     public void emitNullPointerHandler()
     {
+        beginFunction("error_null_pointer");
         emitLabel("error_null_pointer");
-        emit("la $a0, msg_null_ptr");
-        emit("li $v0, 4");
-        emit("syscall");
-        emit("li $v0, 10");
-        emit("syscall");
+        emit(MipsInstr.la("$a0", "msg_null_ptr"));
+        emit(MipsInstr.li("$v0", 4));
+        emit(MipsInstr.syscall());
+        emit(MipsInstr.li("$v0", 10));
+        emit(MipsInstr.syscall());
         emitBlankLine();
     }
 
@@ -196,12 +223,13 @@ public class MipsGenerator
      */
     public void emitBoundsViolationHandler()
     {
+        beginFunction("error_bounds");
         emitLabel("error_bounds");
-        emit("la $a0, msg_bounds");
-        emit("li $v0, 4");
-        emit("syscall");
-        emit("li $v0, 10");
-        emit("syscall");
+        emit(MipsInstr.la("$a0", "msg_bounds"));
+        emit(MipsInstr.li("$v0", 4));
+        emit(MipsInstr.syscall());
+        emit(MipsInstr.li("$v0", 10));
+        emit(MipsInstr.syscall());
         emitBlankLine();
     }
 
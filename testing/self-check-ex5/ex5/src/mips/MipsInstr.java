@@ -0,0 +1,238 @@
+package mips;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * One MIPS instruction
+ *
+ * Operands are kept apart (registers by name, immediates as ints, label
+ * names) so later passes can inspect and rewrite the code; text is only
+ * produced by render(). Which fields are used depends on the opcode's
+ * format:
+ *
+ *   REG3       op rd, rs, rt        MEMORY     op rd, imm(rs)   (or op rd, label)
+ *   REG2_IMM   op rd, rs, imm       BRANCH2    op rs, rt, label
+ *   REG2       op rd, rs            BRANCH1    op rs, label
+ *   REG_IMM    op rd, imm           JUMP       op label
+ *   REG_LABEL  op rd, label         JUMP_REG   op rs
+ *
+ * For stores, rd is the register written to memory. LABEL uses label,
+ * COMMENT uses comment.
+ *
+ * Instructions are immutable; a pass that changes one replaces it.
+ */
+public final class MipsInstr
+{
+    public final MipsOpcode opcode;
+    public final String rd;
+    public final String rs;
+    public final String rt;
+    public final int imm;
+    public final String label;
+    public final String comment;
+
+    private MipsInstr(MipsOpcode opcode, String rd, String rs, String rt, int imm, String label, String comment)
+    {
+        this.opcode = opcode;
+        this.rd = rd;
+        this.rs = rs;
+        this.rt = rt;
+        this.imm = imm;
+        this.label = label;
+        this.comment = comment;
+    }
+
+    // ==================== Factories ====================
+
+    public static MipsInstr op3(MipsOpcode opcode, String rd, String rs, String rt)
+    {
+        return new MipsInstr(opcode, rd, rs, rt, 0, null, null);
+    }
+
+    public static MipsInstr opImm(MipsOpcode opcode, String rd, String rs, int imm)
+    {
+        return new MipsInstr(opcode, rd, rs, null, imm, null, null);
+    }
+
+    public static MipsInstr op2(MipsOpcode opcode, String rd, String rs)
+    {
+        return new MipsInstr(opcode, rd, rs, null, 0, null, null);
+    }
+
+    public static MipsInstr move(String rd, String rs)
+    {
+        return op2(MipsOpcode.MOVE, rd, rs);
+    }
+
+    public static MipsInstr li(String rd, int imm)
+    {
+        return new MipsInstr(MipsOpcode.LI, rd, null, null, imm, null, null);
+    }
+
+    public static MipsInstr la(String rd, String label)
+    {
+        return new MipsInstr(MipsOpcode.LA, rd, null, null, 0, label, null);
+    }
+
+    /**
+     * Load or store at offset(base)
+     */
+    public static MipsInstr mem(MipsOpcode opcode, String rd, int offset, String base)
+    {
+        return new MipsInstr(opcode, rd, base, null, offset, null, null);
+    }
+
+    /**
+     * Load or store at a data label
+     */
+    public static MipsInstr memLabel(MipsOpcode opcode, String rd, String label)
+    {
+        return new MipsInstr(opcode, rd, null, null, 0, label, null);
+    }
+
+    public static MipsInstr branch(MipsOpcode opcode, String rs, String rt, String label)
+    {
+        return new MipsInstr(opcode, null, rs, rt, 0, label, null);
+    }
+
+    public static MipsInstr branchZero(MipsOpcode opcode, String rs, String label)
+    {
+        return new MipsInstr(opcode, null, rs, null, 0, label, null);
+    }
+
+    public static MipsInstr jump(MipsOpcode opcode, String label)
+    {
+        return new MipsInstr(opcode, null, null, null, 0, label, null);
+    }
+
+    public static MipsInstr jumpReg(MipsOpcode opcode, String rs)
+    {
+        return new MipsInstr(opcode, null, rs, null, 0, null, null);
+    }
+
+    public static MipsInstr syscall()
+    {
+        return new MipsInstr(MipsOpcode.SYSCALL, null, null, null, 0, null, null);
+    }
+
+    public static MipsInstr labelDef(String label)
+    {
+        return new MipsInstr(MipsOpcode.LABEL, null, null, null, 0, label, null);
+    }
+
+    public static MipsInstr commentLine(String comment)
+    {
+        return new MipsInstr(MipsOpcode.COMMENT, null, null, null, 0, null, comment);
+    }
+
+    public static MipsInstr blank()
+    {
+        return new MipsInstr(MipsOpcode.BLANK, null, null, null, 0, null, null);
+    }
+
+    /**
+     * The same instruction with a trailing comment
+     */
+    public MipsInstr withComment(String comment)
+    {
+        return new MipsInstr(opcode, rd, rs, rt, imm, label, comment);
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Memory access at a data label rather than at offset(base)
+     */
+    public boolean isLabelAddress()
+    {
+        return opcode.format == MipsOpcode.Format.MEMORY && rs == null;
+    }
+
+    // ==================== Rendering ====================
+
+    /**
+     * Write the assembly text of the instruction as one line
+     */
+    public void render(Writer out) throws IOException
+    {
+        switch (opcode.format) {
+            case LABEL:
+                out.write(label);
+                out.write(":\n");
+                return;
+            case COMMENT:
+                out.write("    # ");
+                out.write(comment);
+                out.write('\n');
+                return;
+            case BLANK:
+                out.write('\n');
+                return;
+            default:
+                break;
+        }
+
+        out.write("    ");
+        out.write(opcode.mnemonic);
+        switch (opcode.format) {
+            case REG3:
+                operands(out, rd, rs, rt);
+                break;
+            case REG2_IMM:
+                operands(out, rd, rs, Integer.toString(imm));
+                break;
+            case REG2:
+                operands(out, rd, rs);
+                break;
+            case REG_IMM:
+                operands(out, rd, Integer.toString(imm));
+                break;
+            case REG_LABEL:
+                operands(out, rd, label);
+                break;
+            case MEMORY:
+                operands(out, rd, isLabelAddress() ? label : Integer.toString(imm) + "(" + rs + ")");
+                break;
+            case BRANCH2:
+                operands(out, rs, rt, label);
+                break;
+            case BRANCH1:
+                operands(out, rs, label);
+                break;
+            case JUMP:
+                operands(out, label);
+                break;
+            case JUMP_REG:
+                operands(out, rs);
+                break;
+            default:
+                break;
+        }
+        if (comment != null && !comment.isEmpty()) {
+            out.write("    # ");
+            out.write(comment);
+        }
+        out.write('\n');
+    }
+
+    private static void operands(Writer out, String... operands) throws IOException
+    {
+        for (int i = 0; i < operands.length; i++) {
+            out.write(i == 0 ? " " : ", ");
+            out.write(operands[i]);
+        }
+    }
+
+    public String toString()
+    {
+        StringWriter out = new StringWriter();
+        try {
+            render(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString().trim();
+    }
+}
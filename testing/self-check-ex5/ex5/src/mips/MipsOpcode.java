@@ -0,0 +1,108 @@
+package mips;
+
+/**
+ * MIPS Opcodes
+ *
+ * Every instruction (and pseudo-instruction) the translator emits, with
+ * its assembler mnemonic and the shape of its operands. The shape decides
+ * which MipsInstr fields are meaningful and how the instruction renders.
+ */
+public enum MipsOpcode
+{
+    // rd, rs, rt
+    ADD("add", Format.REG3),
+    SUB("sub", Format.REG3),
+    MUL("mul", Format.REG3),
+    DIV("div", Format.REG3),
+    SLT("slt", Format.REG3),
+    SLTU("sltu", Format.REG3),
+    AND("and", Format.REG3),
+    OR("or", Format.REG3),
+    SLLV("sllv", Format.REG3),
+    SRLV("srlv", Format.REG3),
+    MOVN("movn", Format.REG3),  // rd = rs if rt != 0
+
+    // rd, rs, imm
+    ADDI("addi", Format.REG2_IMM),
+    SLL("sll", Format.REG2_IMM),
+    SRL("srl", Format.REG2_IMM),
+    ANDI("andi", Format.REG2_IMM),
+    ORI("ori", Format.REG2_IMM),
+
+    // rd, rs
+    MOVE("move", Format.REG2),
+    NEG("neg", Format.REG2),
+
+    // rd, imm / rd, label
+    LI("li", Format.REG_IMM),
+    LA("la", Format.REG_LABEL),
+
+    // rt, imm(rs) or rt, label
+    LW("lw", Format.MEMORY),
+    SW("sw", Format.MEMORY),
+    LB("lb", Format.MEMORY),
+    SB("sb", Format.MEMORY),
+
+    // rs, rt, label
+    BEQ("beq", Format.BRANCH2),
+    BNE("bne", Format.BRANCH2),
+    BLT("blt", Format.BRANCH2),
+    BGT("bgt", Format.BRANCH2),
+    BGE("bge", Format.BRANCH2),
+    BGEU("bgeu", Format.BRANCH2),  // unsigned
+    BGTU("bgtu", Format.BRANCH2),  // unsigned
+    BLTU("bltu", Format.BRANCH2),  // unsigned
+
+    // rs, label
+    BLTZ("bltz", Format.BRANCH1),
+
+    // label
+    J("j", Format.JUMP),
+    JAL("jal", Format.JUMP),
+
+    // rs
+    JR("jr", Format.JUMP_REG),
+    JALR("jalr", Format.JUMP_REG),
+
+    SYSCALL("syscall", Format.NONE),
+
+    // Not instructions: a code label, a comment line, an empty line
+    LABEL("", Format.LABEL),
+    COMMENT("", Format.COMMENT),
+    BLANK("", Format.BLANK);
+
+    /**
+     * Operand shapes
+     */
+    public enum Format
+    {
+        REG3, REG2_IMM, REG2, REG_IMM, REG_LABEL, MEMORY,
+        BRANCH2, BRANCH1, JUMP, JUMP_REG, NONE,
+        LABEL, COMMENT, BLANK
+    }
+
+    public final String mnemonic;
+    public final Format format;
+
+    MipsOpcode(String mnemonic, Format format)
+    {
+        this.mnemonic = mnemonic;
+        this.format = format;
+    }
+
+    /**
+     * True for conditional branches (they may fall through)
+     */
+    public boolean isBranch()
+    {
+        return format == Format.BRANCH2 || format == Format.BRANCH1;
+    }
+
+    /**
+     * True for the instructions that emit no code
+     */
+    public boolean isPseudo()
+    {
+        return format == Format.LABEL || format == Format.COMMENT || format == Format.BLANK;
+    }
+}
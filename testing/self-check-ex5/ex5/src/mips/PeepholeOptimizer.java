@@ -0,0 +1,411 @@
+package mips;
+
+import java.util.*;
+
+/**
+ * Peephole Optimizer
+ *
+ * Runs over the emitted instructions of every MipsFunction, after
+ * translation and before rendering, looking at a small window of
+ * neighbouring instructions (comments and blank lines are skipped):
+ *
+ * 1. Redundant moves:     move $x, $x                      → (removed)
+ * 2. Store-to-load:       sw $r, A / lw $d, A              → sw $r, A / move $d, $r
+ *                         (the load is removed if $d is $r; a move is
+ *                         cheaper than a load on the target pipeline)
+ * 3. Jumps to next:       j L / L:                         → L:
+ * 4. Branch chains:       b.. L ... L: j M                 → b.. M
+ *                         (retargeted, nothing removed)
+ * 5. Known constants:     li $r, k when $r already holds k → (removed)
+ *                         tracked along straight-line code only: cleared
+ *                         at labels, calls and syscalls
+ * 6. Unreachable code:    j/jr ... up to the next label     → (removed)
+ *                         e.g. the implicit epilogue after a return
+ * 7. Repeated branches:   b.. $r, $s, L when the same branch was already
+ *                         passed and neither operand changed → (removed)
+ *                         e.g. the null check of a second access to the
+ *                         same array; tracked like known constants
+ *
+ * The rules are applied until none of them changes anything. The
+ * report counts, per rule, the instructions deleted and rewritten.
+ */
+public class PeepholeOptimizer
+{
+    /**
+     * The rewrite rules, in report order
+     */
+    public enum Rule
+    {
+        REDUNDANT_MOVE("redundant moves"),
+        STORE_LOAD("store-to-load forwarding"),
+        JUMP_TO_NEXT("jumps to the next instruction"),
+        BRANCH_CHAIN("branch chains collapsed"),
+        KNOWN_CONSTANT("constants already in a register"),
+        UNREACHABLE("unreachable instructions"),
+        REPEATED_BRANCH("branches already passed");
+
+        public final String description;
+
+        Rule(String description)
+        {
+            this.description = description;
+        }
+    }
+
+    private final int[] removed = new int[Rule.values().length];    // instructions deleted
+    private final int[] rewritten = new int[Rule.values().length];  // instructions replaced
+
+    /**
+     * Optimize every function in place
+     */
+    public void run(List<MipsFunction> functions)
+    {
+        for (MipsFunction function : functions) {
+            List<MipsInstr> code = function.getInstructions();
+            boolean changed = true;
+            while (changed) {
+                changed = removeRedundantMoves(code);
+                changed |= forwardStores(code);
+                changed |= collapseBranchChains(code);
+                changed |= removeJumpsToNext(code);
+                changed |= removeKnownConstants(code);
+                changed |= removeUnreachable(code);
+                changed |= removeRepeatedBranches(code);
+                if (changed) {
+                    code = compact(code);
+                }
+            }
+            function.setInstructions(code);
+        }
+    }
+
+    // ==================== Rules ====================
+
+    private boolean removeRedundantMoves(List<MipsInstr> code)
+    {
+        boolean changed = false;
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr != null && instr.opcode == MipsOpcode.MOVE && instr.rd.equals(instr.rs)) {
+                remove(code, i, Rule.REDUNDANT_MOVE);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean forwardStores(List<MipsInstr> code)
+    {
+        boolean changed = false;
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr store = code.get(i);
+            if (store == null || store.opcode != MipsOpcode.SW) continue;
+
+            int j = nextReal(code, i + 1, false);
+            if (j < 0) continue;
+            MipsInstr load = code.get(j);
+            if (load.opcode != MipsOpcode.LW || !sameAddress(store, load)) continue;
+
+            if (load.rd.equals(store.rd)) {
+                remove(code, j, Rule.STORE_LOAD);
+            } else {
+                replace(code, j, MipsInstr.move(load.rd, store.rd).withComment(load.comment), Rule.STORE_LOAD);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean removeJumpsToNext(List<MipsInstr> code)
+    {
+        boolean changed = false;
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr jump = code.get(i);
+            if (jump == null || jump.opcode != MipsOpcode.J) continue;
+
+            // Every label between the jump and the next instruction is "next"
+            for (int k = i + 1; k < code.size(); k++) {
+                MipsInstr instr = code.get(k);
+                if (instr == null || instr.opcode == MipsOpcode.COMMENT || instr.opcode == MipsOpcode.BLANK) continue;
+                if (instr.opcode != MipsOpcode.LABEL) break;
+                if (instr.label.equals(jump.label)) {
+                    remove(code, i, Rule.JUMP_TO_NEXT);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean collapseBranchChains(List<MipsInstr> code)
+    {
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr != null && instr.opcode == MipsOpcode.LABEL) {
+                labels.put(instr.label, i);
+            }
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr == null || !(instr.opcode == MipsOpcode.J || instr.opcode.isBranch())) continue;
+
+            String target = instr.label;
+            Set<String> seen = new HashSet<>();
+            while (seen.add(target)) {
+                Integer at = labels.get(target);
+                if (at == null) break;
+                int k = nextReal(code, at + 1, true);
+                if (k < 0 || code.get(k).opcode != MipsOpcode.J) break;
+                target = code.get(k).label;
+            }
+
+            if (!target.equals(instr.label)) {
+                replace(code, i, retarget(instr, target), Rule.BRANCH_CHAIN);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeKnownConstants(List<MipsInstr> code)
+    {
+        Map<String, Integer> constants = new HashMap<>();  // register → value it holds
+        boolean changed = false;
+
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr == null) continue;
+
+            switch (instr.opcode) {
+                case LABEL:
+                case JAL:
+                case JALR:
+                case SYSCALL:
+                    constants.clear();
+                    continue;
+                case LI: {
+                    Integer known = constants.get(instr.rd);
+                    if (known != null && known == instr.imm) {
+                        remove(code, i, Rule.KNOWN_CONSTANT);
+                        changed = true;
+                    } else {
+                        constants.put(instr.rd, instr.imm);
+                    }
+                    continue;
+                }
+                default:
+                    String written = written(instr);
+                    if (written != null) {
+                        constants.remove(written);
+                    }
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeUnreachable(List<MipsInstr> code)
+    {
+        boolean changed = false;
+        boolean reachable = true;
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr == null) continue;
+
+            if (instr.opcode == MipsOpcode.LABEL) {
+                reachable = true;
+            } else if (!reachable && !instr.opcode.isPseudo()) {
+                remove(code, i, Rule.UNREACHABLE);
+                changed = true;
+            } else if (instr.opcode == MipsOpcode.J || instr.opcode == MipsOpcode.JR) {
+                reachable = false;
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeRepeatedBranches(List<MipsInstr> code)
+    {
+        List<MipsInstr> passed = new ArrayList<>();  // branches fallen through since the last label
+        boolean changed = false;
+
+        for (int i = 0; i < code.size(); i++) {
+            MipsInstr instr = code.get(i);
+            if (instr == null) continue;
+
+            switch (instr.opcode) {
+                case LABEL:
+                case JAL:
+                case JALR:
+                case SYSCALL:
+                    passed.clear();
+                    continue;
+                default:
+                    break;
+            }
+
+            if (instr.opcode.isBranch()) {
+                if (containsBranch(passed, instr)) {
+                    remove(code, i, Rule.REPEATED_BRANCH);
+                    changed = true;
+                } else {
+                    passed.add(instr);
+                }
+                continue;
+            }
+
+            String written = written(instr);
+            if (written != null) {
+                passed.removeIf(branch -> written.equals(branch.rs) || written.equals(branch.rt));
+            }
+        }
+        return changed;
+    }
+
+    // ==================== Helpers ====================
+
+    private static boolean containsBranch(List<MipsInstr> branches, MipsInstr instr)
+    {
+        for (MipsInstr branch : branches) {
+            if (branch.opcode == instr.opcode && branch.label.equals(instr.label)
+                && branch.rs.equals(instr.rs) && Objects.equals(branch.rt, instr.rt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Register an instruction writes (null if none; calls are handled apart)
+     */
+    private static String written(MipsInstr instr)
+    {
+        switch (instr.opcode.format) {
+            case REG3:
+            case REG2_IMM:
+            case REG2:
+            case REG_IMM:
+            case REG_LABEL:
+                return instr.rd;
+            case MEMORY:
+                return (instr.opcode == MipsOpcode.LW || instr.opcode == MipsOpcode.LB) ? instr.rd : null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean sameAddress(MipsInstr a, MipsInstr b)
+    {
+        if (a.isLabelAddress() || b.isLabelAddress()) {
+            return a.isLabelAddress() && b.isLabelAddress() && a.label.equals(b.label);
+        }
+        return a.imm == b.imm && a.rs.equals(b.rs);
+    }
+
+    private static MipsInstr retarget(MipsInstr instr, String label)
+    {
+        MipsInstr result;
+        switch (instr.opcode.format) {
+            case BRANCH2:
+                result = MipsInstr.branch(instr.opcode, instr.rs, instr.rt, label);
+                break;
+            case BRANCH1:
+                result = MipsInstr.branchZero(instr.opcode, instr.rs, label);
+                break;
+            default:
+                result = MipsInstr.jump(instr.opcode, label);
+                break;
+        }
+        return result.withComment(instr.comment);
+    }
+
+    /**
+     * Index of the first instruction at or after from that emits code
+     * (-1 if none). Comments and blank lines are skipped; a label ends
+     * the search unless skipLabels is set.
+     */
+    private static int nextReal(List<MipsInstr> code, int from, boolean skipLabels)
+    {
+        for (int k = from; k < code.size(); k++) {
+            MipsInstr instr = code.get(k);
+            if (instr == null || instr.opcode == MipsOpcode.COMMENT || instr.opcode == MipsOpcode.BLANK) continue;
+            if (instr.opcode == MipsOpcode.LABEL) {
+                if (skipLabels) continue;
+                return -1;
+            }
+            return k;
+        }
+        return -1;
+    }
+
+    /**
+     * Removal leaves a hole (null) so indices stay valid during a sweep
+     */
+    private void remove(List<MipsInstr> code, int index, Rule rule)
+    {
+        code.set(index, null);
+        removed[rule.ordinal()]++;
+    }
+
+    private void replace(List<MipsInstr> code, int index, MipsInstr instr, Rule rule)
+    {
+        code.set(index, instr);
+        rewritten[rule.ordinal()]++;
+    }
+
+    private static List<MipsInstr> compact(List<MipsInstr> code)
+    {
+        List<MipsInstr> result = new ArrayList<>(code.size());
+        for (MipsInstr instr : code) {
+            if (instr != null) result.add(instr);
+        }
+        return result;
+    }
+
+    // ==================== Report ====================
+
+    /**
+     * Instructions a rule deleted
+     */
+    public int getRemovedCount(Rule rule)
+    {
+        return removed[rule.ordinal()];
+    }
+
+    /**
+     * Instructions a rule replaced by a cheaper or better-targeted one
+     */
+    public int getRewrittenCount(Rule rule)
+    {
+        return rewritten[rule.ordinal()];
+    }
+
+    /**
+     * Instructions deleted by all rules together
+     */
+    public int getRemovedCount()
+    {
+        int total = 0;
+        for (int count : removed) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * One line per rule: "  <description>: <removed> removed, <rewritten> rewritten"
+     */
+    public String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        for (Rule rule : Rule.values()) {
+            report.append("  ").append(rule.description).append(": ")
+                .append(removed[rule.ordinal()]).append(" removed, ")
+                .append(rewritten[rule.ordinal()]).append(" rewritten\n");
+        }
+        return report.toString();
+    }
+}
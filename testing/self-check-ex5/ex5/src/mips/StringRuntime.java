@@ -0,0 +1,162 @@
+package mips;
+
+/**
+ * String Runtime Routines
+ *
+ * String concatenation and equality are calls to shared routines rather
+ * than inline loops, so every use costs a few instructions and the loops
+ * exist once per program. A routine is emitted only if some call site
+ * used it (emitRoutines runs after translation):
+ *
+ *   __rt_strlen   $a0 = string             → $v0 = length
+ *   __rt_concat   $a1 = str1, $a2 = str2   → $v0 = new string str1 + str2
+ *   __rt_streq    $a1 = str1, $a2 = str2   → $v0 = 1 if equal, else 0
+ *
+ * The routines only touch translator scratch registers ($a0-$a3, $t8,
+ * $t9) and $v0, so call sites save nothing.
+ * __rt_concat keeps its return address in $a3 while it calls
+ * __rt_strlen and, when the chunk runs out, the heap refill.
+ *
+ * The loops test at the bottom (one branch per byte) and copy the
+ * terminator along with the last byte.
+ */
+public class StringRuntime
+{
+    public static final String STRLEN = "__rt_strlen";
+    public static final String CONCAT = "__rt_concat";
+    public static final String STREQ = "__rt_streq";
+
+    private MipsGenerator gen;
+    private HeapAllocator heap;
+    private boolean concatUsed = false;
+    private boolean equalUsed = false;
+
+    public StringRuntime(MipsGenerator gen, HeapAllocator heap)
+    {
+        this.gen = gen;
+        this.heap = heap;
+    }
+
+    /**
+     * Emit dst = str1 + str2
+     */
+    public void emitConcat(String dst, String str1, String str2)
+    {
+        concatUsed = true;
+        emitCall(CONCAT, dst, str1, str2);
+    }
+
+    /**
+     * Emit dst = (str1 = str2), comparing contents
+     */
+    public void emitEqual(String dst, String str1, String str2)
+    {
+        equalUsed = true;
+        emitCall(STREQ, dst, str1, str2);
+    }
+
+    private void emitCall(String routine, String dst, String str1, String str2)
+    {
+        gen.emit(MipsInstr.move("$a1", str1));
+        gen.emit(MipsInstr.move("$a2", str2));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, routine));
+        gen.emit(MipsInstr.move(dst, "$v0"));
+    }
+
+    /**
+     * Emit the routines used by the translated code
+     */
+    public void emitRoutines()
+    {
+        if (concatUsed) {
+            emitStrlen();
+            emitConcat();
+        }
+        if (equalUsed) {
+            emitStreq();
+        }
+    }
+
+    // ==================== Routines ====================
+
+    private void emitStrlen()
+    {
+        String loop = STRLEN + "_loop";
+
+        gen.beginFunction(STRLEN);
+        gen.emitLabel(STRLEN);
+        gen.emitComment("Length of the string at $a0, into $v0 (uses $t8)");
+        gen.emit(MipsInstr.move("$v0", "$a0"));
+        gen.emitLabel(loop);
+        gen.emit(MipsInstr.mem(MipsOpcode.LB, "$t8", 0, "$v0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$v0", "$v0", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t8", "$zero", loop));
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$v0", "$v0", "$a0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$v0", "$v0", -1), "the terminator is not counted");
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        gen.emitBlankLine();
+    }
+
+    private void emitConcat()
+    {
+        String copy1 = CONCAT + "_copy1";
+        String copy2 = CONCAT + "_copy2";
+
+        gen.beginFunction(CONCAT);
+        gen.emitLabel(CONCAT);
+        gen.emitComment("New string $a1 + $a2, into $v0 (uses $a0, $a3, $t8, $t9)");
+        gen.emit(MipsInstr.move("$a3", "$ra"), "__rt_strlen overwrites $ra");
+        gen.emit(MipsInstr.move("$a0", "$a1"));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, STRLEN));
+        gen.emit(MipsInstr.move("$t9", "$v0"), "strlen(str1)");
+        gen.emit(MipsInstr.move("$a0", "$a2"));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, STRLEN));
+
+        gen.emitComment("Allocate memory for concatenated string");
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$a0", "$t9", "$v0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a0", "$a0", 1), "+1 for null terminator");
+        heap.emitAllocBytes();
+        gen.emit(MipsInstr.move("$t9", "$v0"), "write pointer");
+
+        gen.emitComment("Copy str1, then str2 over its terminator");
+        gen.emitLabel(copy1);
+        gen.emit(MipsInstr.mem(MipsOpcode.LB, "$t8", 0, "$a1"));
+        gen.emit(MipsInstr.mem(MipsOpcode.SB, "$t8", 0, "$t9"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a1", "$a1", 1));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t9", "$t9", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t8", "$zero", copy1));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t9", "$t9", -1));
+        gen.emitLabel(copy2);
+        gen.emit(MipsInstr.mem(MipsOpcode.LB, "$t8", 0, "$a2"));
+        gen.emit(MipsInstr.mem(MipsOpcode.SB, "$t8", 0, "$t9"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a2", "$a2", 1));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t9", "$t9", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t8", "$zero", copy2));
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$a3"));
+        heap.emitSlowPaths();
+        gen.emitBlankLine();
+    }
+
+    private void emitStreq()
+    {
+        String loop = STREQ + "_loop";
+        String notEqual = STREQ + "_ne";
+
+        gen.beginFunction(STREQ);
+        gen.emitLabel(STREQ);
+        gen.emitComment("1 into $v0 if the strings at $a1 and $a2 are equal, else 0 (uses $t8, $t9)");
+        gen.emitLabel(loop);
+        gen.emit(MipsInstr.mem(MipsOpcode.LB, "$t8", 0, "$a1"), "load char from str1");
+        gen.emit(MipsInstr.mem(MipsOpcode.LB, "$t9", 0, "$a2"), "load char from str2");
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t8", "$t9", notEqual), "chars differ");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a1", "$a1", 1));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a2", "$a2", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t8", "$zero", loop), "both null = equal");
+        gen.emit(MipsInstr.li("$v0", 1), "equal");
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        gen.emitLabel(notEqual);
+        gen.emit(MipsInstr.li("$v0", 0), "not equal");
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        gen.emitBlankLine();
+    }
+}
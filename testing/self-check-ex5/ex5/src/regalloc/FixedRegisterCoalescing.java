@@ -0,0 +1,172 @@
+package regalloc;
+
+import ir.*;
+import java.util.*;
+
+/**
+ * Fixed Register Coalescing
+ *
+ * The calling convention pins some temps to registers outside the K
+ * colors (RegisterAllocator.precolors): arguments to $a0-$a3, parameters
+ * to their $a register. The translator adds the copies around them:
+ *
+ *   li   $t0, 9                  li   $a0, 9
+ *   move $a0, $t0     becomes    jal  fib
+ *   jal  fib                     move $a0, $v0
+ *   move $t1, $v0                jal  PrintInt
+ *   move $a0, $t1
+ *   jal  PrintInt
+ *
+ * This pass gives a temp the fixed register r itself when the temp is
+ * - copied to or from a temp precolored r (an argument or a parameter),
+ * - the result of a call (r = $v0), or
+ * - the value of a return (r = $v0),
+ * and r is free over the temp's whole live range. That is the George
+ * test with r's clobbers as the neighbors: the temp has one definition,
+ * its live range lies in one basic block, every command strictly inside
+ * leaves $a0-$a3 and $v0 alone (KEEPS_FIXED_REGISTERS) and writes no
+ * temp precolored r, and no other temp precolored r is live there (the
+ * copy's own partner aside: it holds the same value). A call in the
+ * range always fails the test, so a joined temp is never live across one.
+ *
+ * Joined temps become precolored, so they get no interference edges and
+ * the copy is a move of a register to itself, which the translator drops.
+ */
+public class FixedRegisterCoalescing
+{
+    // Commands whose translation does not touch $a0-$a3 or $v0 except to
+    // write its own result there (RETURN writes $v0 after reading its value)
+    private static final Set<IrOpcode> KEEPS_FIXED_REGISTERS = EnumSet.of(
+        IrOpcode.CONST_INT, IrOpcode.CONST_STRING, IrOpcode.NIL_CONST,
+        IrOpcode.BINOP_ADD, IrOpcode.BINOP_SUB, IrOpcode.BINOP_MUL, IrOpcode.BINOP_DIV,
+        IrOpcode.BINOP_EQ, IrOpcode.BINOP_LT, IrOpcode.NEG,
+        IrOpcode.LOAD, IrOpcode.STORE, IrOpcode.MOVE, IrOpcode.SPILL_LOAD, IrOpcode.SPILL_STORE,
+        IrOpcode.ARRAY_ACCESS, IrOpcode.ARRAY_STORE, IrOpcode.ARRAY_LENGTH,
+        IrOpcode.FIELD_ACCESS, IrOpcode.FIELD_STORE, IrOpcode.ARGUMENT,
+        IrOpcode.JUMP_IF_EQ_TO_ZERO, IrOpcode.RETURN);
+
+    private final LivenessAnalysis liveness;
+    private final int[] precolored;
+
+    // Per temp index: its only definition (-1: none, -2: several) and the
+    // first and last commands that mention it
+    private final int[] defAt;
+    private final int[] firstAt;
+    private final int[] lastAt;
+
+    /**
+     * @param liveness solved (per command) liveness of the unit
+     * @param precolored fixed register of each temp index, -1 if none;
+     *        updated in place by run()
+     */
+    public FixedRegisterCoalescing(LivenessAnalysis liveness, int[] precolored)
+    {
+        this.liveness = liveness;
+        this.precolored = precolored;
+
+        int n = liveness.getTempCount();
+        defAt = new int[n];
+        firstAt = new int[n];
+        lastAt = new int[n];
+        Arrays.fill(defAt, -1);
+        Arrays.fill(firstAt, Integer.MAX_VALUE);
+        Arrays.fill(lastAt, -1);
+        for (int i = 0; i < liveness.size(); i++) {
+            for (int u : liveness.getUse(i)) {
+                mention(u, i);
+            }
+            for (int d : liveness.getDef(i)) {
+                defAt[d] = (defAt[d] == -1) ? i : -2;
+                mention(d, i);
+            }
+        }
+    }
+
+    private void mention(int t, int i)
+    {
+        if (i < firstAt[t]) firstAt[t] = i;
+        if (i > lastAt[t]) lastAt[t] = i;
+    }
+
+    /**
+     * Join every temp that passes the test with its fixed register
+     * @return number of copies (and result moves) made redundant
+     */
+    public int run()
+    {
+        int joined = 0;
+        for (int i = 0; i < liveness.size(); i++) {
+            IrCommand cmd = liveness.getCommand(i);
+            switch (cmd.opcode) {
+                case MOVE: {
+                    int dst = liveness.getDef(i)[0];
+                    int src = liveness.getUse(i)[0];
+                    if (precolored[dst] >= 0 && precolored[src] < 0) {
+                        if (join(src, precolored[dst], dst)) joined++;
+                    } else if (precolored[src] >= 0 && precolored[dst] < 0) {
+                        if (join(dst, precolored[src], src)) joined++;
+                    }
+                    break;
+                }
+                case CALL_FUNC:
+                case METHOD_CALL:
+                    for (int d : liveness.getDef(i)) {
+                        if (precolored[d] < 0 && join(d, RegisterAllocation.RESULT_REGISTER, -1)) joined++;
+                    }
+                    break;
+                case RETURN:
+                    for (int u : liveness.getUse(i)) {
+                        if (precolored[u] < 0 && join(u, RegisterAllocation.RESULT_REGISTER, -1)) joined++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return joined;
+    }
+
+    /**
+     * Precolor t with reg if reg is free over t's live range
+     * @param partner the other temp of the copy (may share reg), -1 if none
+     */
+    private boolean join(int t, int reg, int partner)
+    {
+        int lo = defAt[t];
+        int hi = lastAt[t];
+        if (lo < 0 || firstAt[t] != lo || hi <= lo
+            || liveness.isLiveIn(lo, t) || liveness.isLiveOut(hi, t)) {
+            return false;  // not a single straight definition-to-last-use range
+        }
+
+        IrOpcode defining = liveness.getCommand(lo).opcode;
+        if (!KEEPS_FIXED_REGISTERS.contains(defining) && !RegisterAllocator.isCall(liveness.getCommand(lo))) {
+            return false;
+        }
+        if (!KEEPS_FIXED_REGISTERS.contains(liveness.getCommand(hi).opcode)) {
+            return false;
+        }
+
+        for (int i = lo; i < hi; i++) {
+            // Straight-line: every command falls through to the next
+            int[] succ = liveness.getSuccessors(i);
+            if (succ.length != 1 || succ[0] != i + 1 || liveness.getCommand(i + 1).opcode == IrOpcode.LABEL) {
+                return false;
+            }
+            if (i > lo) {
+                if (!KEEPS_FIXED_REGISTERS.contains(liveness.getCommand(i).opcode)) {
+                    return false;
+                }
+                for (int d : liveness.getDef(i)) {
+                    if (precolored[d] == reg) return false;
+                }
+            }
+            for (int q = liveness.nextLiveOut(i, 0); q >= 0; q = liveness.nextLiveOut(i, q + 1)) {
+                if (q != t && q != partner && precolored[q] == reg) return false;
+            }
+        }
+
+        precolored[t] = reg;
+        return true;
+    }
+}
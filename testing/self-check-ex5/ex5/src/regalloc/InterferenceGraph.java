@@ -1,6 +1,7 @@
 package regalloc;
 
 import temp.Temp;
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -10,97 +11,166 @@ import java.util.*;
  * Two temporaries interfere if they are both live at the same time.
  *
  * Graph structure:
- * - Nodes: temporaries
+ * - Nodes: int ids, the dense temp indices of one function unit
+ *   (see LivenessAnalysis), so each unit gets its own small graph
  * - Edges: interference relationships (undirected)
  *
+ * Storage:
+ * - a lower-triangular bit matrix answers "do a and b interfere" in O(1)
+ *   and keeps edges unique
+ * - per-node int adjacency arrays list the neighbors for O(degree) walks
+ * - a degree array holds each node's neighbor count
+ *
  * If two temps interfere, they CANNOT be assigned the same register.
  */
 public class InterferenceGraph
 {
-    // Adjacency list: temp → set of temps it interferes with
-    private Map<Temp, Set<Temp>> adjacencyList;
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private final int capacity;
+    private final Temp[] temps;       // id → temp (null if the id is not a node)
+    private final long[] matrix;      // bit (a*(a-1)/2 + b) for a > b
+    private final int[][] adjacency;  // id → neighbor ids, first degree[id] entries valid
+    private final int[] degree;
+    private int nodeCount = 0;
+    private int edgeCount = 0;
+
+    /**
+     * @param capacity number of ids (ids range over 0 .. capacity-1)
+     */
+    public InterferenceGraph(int capacity)
+    {
+        this.capacity = capacity;
+        this.temps = new Temp[capacity];
+        this.matrix = new long[(int) ((triangleIndex(capacity, 0) + 63) >>> 6)];
+        this.adjacency = new int[capacity][];
+        this.degree = new int[capacity];
+        Arrays.fill(adjacency, NO_NEIGHBORS);
+    }
 
-    public InterferenceGraph()
+    private static long triangleIndex(int a, int b)
     {
-        this.adjacencyList = new HashMap<>();
+        return (long) a * (a - 1) / 2 + b;
     }
 
     /**
      * Add a node (temporary) to the graph
      */
-    public void addNode(Temp t)
+    public void addNode(int id, Temp t)
     {
-        if (t == null) return; // Skip null temps
-        if (!adjacencyList.containsKey(t)) {
-            adjacencyList.put(t, new HashSet<>());
+        if (temps[id] == null) {
+            temps[id] = t;
+            nodeCount++;
         }
     }
 
     /**
-     * Add an edge between two temporaries (they interfere)
-     * Undirected edge: add both t1→t2 and t2→t1
+     * Add an edge between two nodes (they interfere)
+     * @return true if the edge is new
      */
-    public void addEdge(Temp t1, Temp t2)
+    public boolean addEdge(int a, int b)
     {
-        // Skip if either temp is null
-        if (t1 == null || t2 == null) return;
-
-        if (t1.equals(t2)) return; // No self-edges
+        if (a == b) return false; // No self-edges
 
-        addNode(t1);
-        addNode(t2);
+        long bit = (a > b) ? triangleIndex(a, b) : triangleIndex(b, a);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((matrix[word] & mask) != 0) {
+            return false;
+        }
+        matrix[word] |= mask;
 
-        adjacencyList.get(t1).add(t2);
-        adjacencyList.get(t2).add(t1);
+        appendNeighbor(a, b);
+        appendNeighbor(b, a);
+        edgeCount++;
+        return true;
     }
 
     /**
-     * Get the degree of a node (number of neighbors)
+     * Merge node b into node a (coalescing): every neighbor of b becomes
+     * a neighbor of a, and b stops being a node
      */
-    public int getDegree(Temp t)
+    public void merge(int a, int b)
+    {
+        int[] adj = adjacency[b];
+        for (int k = degree[b] - 1; k >= 0; k--) {
+            int n = adj[k];
+            removeNeighbor(n, b);
+            long bit = (n > b) ? triangleIndex(n, b) : triangleIndex(b, n);
+            matrix[(int) (bit >>> 6)] &= ~(1L << bit);
+            edgeCount--;
+            addEdge(a, n);
+        }
+        degree[b] = 0;
+        adjacency[b] = NO_NEIGHBORS;
+        temps[b] = null;
+        nodeCount--;
+    }
+
+    private void removeNeighbor(int node, int neighbor)
+    {
+        int[] list = adjacency[node];
+        for (int k = 0; k < degree[node]; k++) {
+            if (list[k] == neighbor) {
+                list[k] = list[--degree[node]];
+                return;
+            }
+        }
+    }
+
+    private void appendNeighbor(int node, int neighbor)
     {
-        if (!adjacencyList.containsKey(t)) {
-            return 0;
+        int[] list = adjacency[node];
+        if (degree[node] == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, list.length * 2));
+            adjacency[node] = list;
         }
-        return adjacencyList.get(t).size();
+        list[degree[node]++] = neighbor;
     }
 
     /**
-     * Get neighbors of a temporary
+     * Check whether two nodes interfere (O(1))
      */
-    public Set<Temp> getNeighbors(Temp t)
+    public boolean interferes(int a, int b)
     {
-        if (!adjacencyList.containsKey(t)) {
-            return new HashSet<>();
-        }
-        return new HashSet<>(adjacencyList.get(t));
+        if (a == b) return false;
+        long bit = (a > b) ? triangleIndex(a, b) : triangleIndex(b, a);
+        return (matrix[(int) (bit >>> 6)] & (1L << bit)) != 0;
     }
 
     /**
-     * Get all nodes (temporaries) in the graph
+     * Get the degree of a node (number of neighbors)
      */
-    public Set<Temp> getNodes()
+    public int getDegree(int id)
     {
-        return new HashSet<>(adjacencyList.keySet());
+        return degree[id];
     }
 
     /**
-     * Remove a node from the graph
-     * Also removes all edges to/from this node
+     * Neighbor ids of a node. The array is shared and may be longer than
+     * the degree: only the first getDegree(id) entries are valid.
      */
-    public void removeNode(Temp t)
+    public int[] getAdjacency(int id)
     {
-        if (!adjacencyList.containsKey(t)) {
-            return;
-        }
+        return adjacency[id];
+    }
 
-        // Remove edges from neighbors to this node
-        for (Temp neighbor : adjacencyList.get(t)) {
-            adjacencyList.get(neighbor).remove(t);
-        }
+    public boolean isNode(int id)
+    {
+        return temps[id] != null;
+    }
+
+    public Temp getTemp(int id)
+    {
+        return temps[id];
+    }
 
-        // Remove the node itself
-        adjacencyList.remove(t);
+    /**
+     * Number of ids (one past the largest possible id)
+     */
+    public int capacity()
+    {
+        return capacity;
     }
 
     /**
@@ -108,7 +178,7 @@ public class InterferenceGraph
      */
     public boolean isEmpty()
     {
-        return adjacencyList.isEmpty();
+        return nodeCount == 0;
     }
 
     /**
@@ -116,70 +186,34 @@ public class InterferenceGraph
      */
     public int size()
     {
-        return adjacencyList.size();
+        return nodeCount;
     }
 
-    /**
-     * Find a node with degree < k
-     * Returns null if no such node exists
-     */
-    public Temp findNodeWithDegreeLessThan(int k)
+    public int edgeCount()
     {
-        for (Temp t : adjacencyList.keySet()) {
-            if (getDegree(t) < k) {
-                return t;
-            }
-        }
-        return null;
+        return edgeCount;
     }
 
     /**
      * Print the interference graph for debugging
      */
-    public void printGraph()
+    public void printGraph(PrintStream out)
     {
-        System.out.println("=== INTERFERENCE GRAPH ===");
-        System.out.println("Nodes: " + adjacencyList.size());
+        out.println("=== INTERFERENCE GRAPH ===");
+        out.println("Nodes: " + nodeCount + ", Edges: " + edgeCount);
 
-        List<Temp> temps = new ArrayList<>(adjacencyList.keySet());
-        temps.sort(Comparator.comparingInt(Temp::getSerialNumber));
+        for (int id = 0; id < capacity; id++) {
+            if (temps[id] == null) continue;
+            out.format("Temp_%d (degree=%d): ", temps[id].getSerialNumber(), degree[id]);
 
-        for (Temp t : temps) {
-            System.out.format("Temp_%d (degree=%d): ", t.getSerialNumber(), getDegree(t));
+            int[] neighbors = Arrays.copyOf(adjacency[id], degree[id]);
+            Arrays.sort(neighbors);
 
-            List<Temp> neighbors = new ArrayList<>(adjacencyList.get(t));
-            neighbors.sort(Comparator.comparingInt(Temp::getSerialNumber));
-
-            boolean first = true;
-            for (Temp neighbor : neighbors) {
-                if (!first) System.out.print(", ");
-                System.out.format("Temp_%d", neighbor.getSerialNumber());
-                first = false;
-            }
-            System.out.println();
-        }
-    }
-
-    /**
-     * Create a copy of this graph
-     */
-    public InterferenceGraph copy()
-    {
-        InterferenceGraph copy = new InterferenceGraph();
-
-        for (Temp t : adjacencyList.keySet()) {
-            copy.addNode(t);
-        }
-
-        for (Temp t : adjacencyList.keySet()) {
-            for (Temp neighbor : adjacencyList.get(t)) {
-                // Only add once (avoid duplicating edges)
-                if (t.getSerialNumber() < neighbor.getSerialNumber()) {
-                    copy.addEdge(t, neighbor);
-                }
+            for (int k = 0; k < neighbors.length; k++) {
+                if (k > 0) out.print(", ");
+                out.format("Temp_%d", temps[neighbors[k]].getSerialNumber());
             }
+            out.println();
         }
-
-        return copy;
     }
 }
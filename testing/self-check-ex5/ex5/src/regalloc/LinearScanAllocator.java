@@ -0,0 +1,363 @@
+package regalloc;
+
+import diagnostics.Diagnostics;
+import ir.*;
+import temp.TempFactory;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Linear Scan Register Allocator
+ *
+ * A faster alternative to graph coloring for very large functions
+ * (e.g. straight-line initialization code with thousands of temps),
+ * producing the same RegisterAllocation result.
+ *
+ * Algorithm (Poletto & Sarkar), per function unit:
+ * 1. Liveness at basic block boundaries only, then one backward pass over
+ *    each block with a running live set gives every temp one live
+ *    interval [start, end] over the linearized commands (the smallest
+ *    range covering every point where the temp is used, defined or live)
+ * 2. Scan intervals by increasing start, keeping the active ones sorted
+ *    by end; intervals that ended are expired and free their register
+ * 3. When no register is free, spill whichever of the current and the
+ *    active intervals ends last
+ * 4. Spilled intervals are split at every use and definition: the temp
+ *    moves to a frame slot and each access gets its own short interval
+ *    around a SPILL_LOAD / SPILL_STORE (see SpillRewriter); then the unit
+ *    is scanned again
+ *
+ * Intervals that overlap never share a register, so no interference
+ * graph is built, and no live set per command either: the dataflow keeps
+ * two bit vectors per basic block (blocks × temps bits, iterated until
+ * stable, one pass for straight-line code), the walks are linear in the
+ * commands plus one live set per block boundary, and the scan itself is
+ * O(n log n) in the number of temps. Holes in the intervals are not
+ * exploited, so the code is usually somewhat worse than with graph
+ * coloring.
+ *
+ * Register choice follows GraphColoring: intervals that span a call
+ * prefer callee-saved registers, all others caller-saved ones.
+ * Argument temps keep their $a register (RegisterAllocator.precolors)
+ * and are not scanned.
+ */
+public class LinearScanAllocator
+{
+    private static final int K = RegisterAllocation.NUM_REGISTERS;
+
+    private boolean verbose = false;
+
+    private int rounds = 0;
+    private int spilledTemps = 0;
+
+    public LinearScanAllocator()
+    {
+    }
+
+    public LinearScanAllocator(boolean verbose)
+    {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Allocate registers for every function unit of the program, one after
+     * the other. Spilled temps are rewritten in place, as with graph coloring.
+     *
+     * @param ir the IR singleton
+     * @return RegisterAllocation result (always successful)
+     */
+    public RegisterAllocation allocate(Ir ir)
+    {
+        int firstSpillTemp = TempFactory.getInstance().getNextSerialNumber();
+
+        List<UnitAllocation> units = new ArrayList<>();
+        rounds = 0;
+        spilledTemps = 0;
+        for (IrFunction function : ir.getFunctions()) {
+            UnitAllocation unit = allocate(function, firstSpillTemp, verbose ? Diagnostics.out() : null);
+            rounds += unit.rounds;
+            spilledTemps += unit.spilledTemps;
+            units.add(unit);
+        }
+        return RegisterAllocator.merge(units);
+    }
+
+    /**
+     * Scan one unit until nothing spills. Touches no state outside the
+     * unit except TempFactory, so units may be scanned in parallel.
+     *
+     * @param firstSpillTemp serial numbers >= this were created by spill rewriting
+     * @param out debug output (null if not verbose)
+     */
+    UnitAllocation allocate(IrFunction function, int firstSpillTemp, PrintStream out)
+    {
+        UnitAllocation unit = new UnitAllocation(function);
+        unit.linearScan = true;
+
+        while (true) {
+            unit.rounds++;
+            LivenessAnalysis liveness = new LivenessAnalysis(function);
+            liveness.analyzeBlocks();
+
+            Intervals intervals = new Intervals(liveness, firstSpillTemp);
+            int[] precolored = RegisterAllocator.precolors(liveness);
+            int[] reg = new int[intervals.count];
+            int[] spilled = scan(intervals, precolored, reg);
+
+            if (out != null) {
+                out.format("[LinearScan] %s: %d intervals, %d spilled\n",
+                    function.getName(), intervals.count, spilled.length);
+            }
+
+            if (spilled.length == 0) {
+                RegisterAllocator.applyPrecolors(reg, precolored);
+                unit.liveness = liveness;
+                unit.registers = reg;
+                recordLiveAcrossCalls(unit);
+                return unit;
+            }
+
+            unit.spilledTemps += spilled.length;
+            new SpillRewriter(spilled).rewrite(function);
+        }
+    }
+
+    /**
+     * One backward pass over every block with a running live set, seeded
+     * with the block's live-out set. Going backward, a temp is entered
+     * where it becomes live (the block end, or its last use) and left
+     * where it stops (a definition, or the block start); each call is
+     * reported between its definition and its uses, where the live set
+     * is what the call must preserve.
+     */
+    private abstract static class BackwardWalk
+    {
+        abstract void enter(int t, int position);
+
+        abstract void leave(int t, int position);
+
+        abstract void call(int position);
+
+        void run(LivenessAnalysis liveness)
+        {
+            for (int b = 0; b < liveness.getBlockCount(); b++) {
+                int first = liveness.getBlockStart(b);
+                int last = liveness.getBlockEnd(b) - 1;
+                BitSet live = liveness.getBlockLiveOut(b);
+                for (int t = live.nextSetBit(0); t >= 0; t = live.nextSetBit(t + 1)) {
+                    enter(t, last);
+                }
+
+                for (int i = last; i >= first; i--) {
+                    for (int d : liveness.getDef(i)) {
+                        if (!live.get(d)) {
+                            enter(d, i);  // dead definition: it still needs a register
+                        }
+                        live.clear(d);
+                        leave(d, i);
+                    }
+                    if (RegisterAllocator.isCall(liveness.getCommand(i))) {
+                        call(i);
+                    }
+                    for (int u : liveness.getUse(i)) {
+                        if (!live.get(u)) {
+                            live.set(u);
+                            enter(u, i);
+                        }
+                    }
+                }
+
+                for (int t = live.nextSetBit(0); t >= 0; t = live.nextSetBit(t + 1)) {
+                    leave(t, first);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers live across each call of the allocated unit: a count of
+     * live temps per register, so each call costs one pass over the
+     * registers instead of one over the temps
+     */
+    private static void recordLiveAcrossCalls(UnitAllocation unit)
+    {
+        int[] reg = unit.registers;
+        int[] holders = new int[RegisterAllocation.FIRST_ARGUMENT_REGISTER
+            + RegisterAllocation.ARGUMENT_REGISTER_NAMES.length];
+        LivenessAnalysis liveness = unit.liveness;
+
+        new BackwardWalk() {
+            void enter(int t, int position)
+            {
+                if (reg[t] >= 0) holders[reg[t]]++;
+            }
+
+            void leave(int t, int position)
+            {
+                if (reg[t] >= 0) holders[reg[t]]--;
+            }
+
+            void call(int position)
+            {
+                int mask = 0;
+                for (int r = 0; r < holders.length; r++) {
+                    if (holders[r] > 0) mask |= 1 << r;
+                }
+                unit.liveAcrossCalls.put(liveness.getCommand(position), mask);
+            }
+        }.run(liveness);
+    }
+
+    /**
+     * Live intervals of one unit, indexed by the liveness' dense temp index
+     */
+    private static class Intervals
+    {
+        final int count;
+        final int[] serial;       // temp index → serial number
+        final boolean[] spillTemp;
+        final int[] start;
+        final int[] end;
+        final boolean[] crossesCall;
+        final Integer[] byStart;  // temp indices sorted by start
+
+        Intervals(LivenessAnalysis liveness, int firstSpillTemp)
+        {
+            count = liveness.getTempCount();
+            serial = new int[count];
+            spillTemp = new boolean[count];
+            start = new int[count];
+            end = new int[count];
+            crossesCall = new boolean[count];
+            Arrays.fill(start, Integer.MAX_VALUE);
+            Arrays.fill(end, -1);
+
+            // An interval is the hull of its enter/leave points; a temp
+            // crosses a call if one was passed while it was live
+            int[] callsAtEnter = new int[count];
+            new BackwardWalk() {
+                int calls = 0;
+
+                void enter(int t, int position)
+                {
+                    cover(t, position);
+                    callsAtEnter[t] = calls;
+                }
+
+                void leave(int t, int position)
+                {
+                    cover(t, position);
+                    if (calls > callsAtEnter[t]) crossesCall[t] = true;
+                }
+
+                void call(int position)
+                {
+                    calls++;
+                }
+            }.run(liveness);
+
+            byStart = new Integer[count];
+            for (int t = 0; t < count; t++) {
+                serial[t] = liveness.getTemp(t).getSerialNumber();
+                spillTemp[t] = serial[t] >= firstSpillTemp;
+                byStart[t] = t;
+            }
+            Arrays.sort(byStart, (a, b) -> (start[a] != start[b]) ? Integer.compare(start[a], start[b]) : Integer.compare(a, b));
+        }
+
+        private void cover(int t, int position)
+        {
+            if (position < start[t]) start[t] = position;
+            if (position > end[t]) end[t] = position;
+        }
+    }
+
+    /**
+     * One linear scan over the intervals of the temps that are not precolored
+     * @param reg receives temp index → register ordinal (-1 if spilled or precolored)
+     * @return serial numbers of the temps spilled
+     */
+    private static int[] scan(Intervals intervals, int[] precolored, int[] reg)
+    {
+        Arrays.fill(reg, -1);
+
+        // Active intervals ordered by end (ties by index, to keep the set ordering total)
+        TreeSet<Integer> active = new TreeSet<>((a, b) -> (intervals.end[a] != intervals.end[b])
+            ? Integer.compare(intervals.end[a], intervals.end[b]) : Integer.compare(a, b));
+        int freeMask = (1 << K) - 1;
+        List<Integer> spilled = new ArrayList<>();
+
+        for (int cur : intervals.byStart) {
+            if (precolored[cur] >= 0) continue;
+
+            // Expire intervals that ended before this one starts
+            while (!active.isEmpty() && intervals.end[active.first()] < intervals.start[cur]) {
+                freeMask |= 1 << reg[active.pollFirst()];
+            }
+
+            if (freeMask != 0) {
+                reg[cur] = choose(freeMask, intervals.crossesCall[cur]);
+                freeMask &= ~(1 << reg[cur]);
+                active.add(cur);
+                continue;
+            }
+
+            // No register: spill the interval that ends last (spill temps never)
+            int victim = spillCandidate(intervals, active, cur);
+            if (victim == cur) {
+                spilled.add(intervals.serial[cur]);
+                continue;
+            }
+            active.remove(victim);
+            reg[cur] = reg[victim];
+            reg[victim] = -1;
+            active.add(cur);
+            spilled.add(intervals.serial[victim]);
+        }
+
+        int[] result = new int[spilled.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = spilled.get(k);
+        }
+        return result;
+    }
+
+    /**
+     * Interval to spill when cur finds no free register: the one that ends
+     * last among cur and the active intervals, skipping spill temps.
+     * An IR command reads at most three temps outside $a0-$a3 and writes
+     * one, so at most four spill temps are live at once: with K = 16
+     * active intervals, some of them is always an ordinary temp.
+     */
+    private static int spillCandidate(Intervals intervals, TreeSet<Integer> active, int cur)
+    {
+        int victim = !intervals.spillTemp[cur] ? cur : -1;
+        for (Iterator<Integer> it = active.descendingIterator(); it.hasNext(); ) {
+            int t = it.next();
+            if (victim >= 0 && intervals.end[t] <= intervals.end[victim]) break;
+            if (!intervals.spillTemp[t]) {
+                victim = t;
+                break;
+            }
+        }
+        return victim;
+    }
+
+    private static int choose(int freeMask, boolean crossesCall)
+    {
+        int preferred = freeMask & (crossesCall
+            ? RegisterAllocation.CALLEE_SAVED_MASK
+            : RegisterAllocation.CALLER_SAVED_MASK);
+        return Integer.numberOfTrailingZeros(preferred != 0 ? preferred : freeMask);
+    }
+
+    public int getRounds()
+    {
+        return rounds;
+    }
+
+    public int getSpilledTempCount()
+    {
+        return spilledTemps;
+    }
+}
@@ -1,6 +1,8 @@
 package regalloc;
 
+import ir.IrCommand;
 import temp.Temp;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
@@ -8,20 +10,51 @@ import java.util.Map;
  *
  * Contains the result of register allocation:
  * - success: whether allocation succeeded
- * - assignment: mapping from temporary to register name
+ * - assignment: temp index (serial number) → register ordinal, -1 if none
+ * - for every call command, the mask of registers holding temps that are
+ *   live across the call (the only ones the caller has to preserve)
  *
  * If success = false, allocation failed (too many simultaneous live temps).
  * If success = true, assignment contains the register for each temp.
  */
 public class RegisterAllocation
 {
+    // $t8, $t9 and $a1-$a3 are scratch registers of the MIPS translator
+    // (equality, saturation, strings, arrays); $gp and $v1 hold the
+    // saturation bounds. None of them is ever allocated.
+    // Ordinals below FIRST_CALLEE_SAVED are caller-saved ($t), the rest
+    // callee-saved ($s): a function saves those it uses once, in its prologue.
+    public static final String[] REGISTER_NAMES = {
+        "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7",
+        "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7"
+    };
+    public static final int NUM_REGISTERS = REGISTER_NAMES.length;
+    public static final int FIRST_CALLEE_SAVED = 8;
+
+    // Register masks (bit = ordinal)
+    public static final int CALLER_SAVED_MASK = (1 << FIRST_CALLEE_SAVED) - 1;
+    public static final int CALLEE_SAVED_MASK = ((1 << NUM_REGISTERS) - 1) & ~CALLER_SAVED_MASK;
+
+    // Argument registers are never chosen by the allocator: only temps the
+    // calling convention precolors get them, with ordinals after the others
+    public static final String[] ARGUMENT_REGISTER_NAMES = { "$a0", "$a1", "$a2", "$a3" };
+    public static final int FIRST_ARGUMENT_REGISTER = NUM_REGISTERS;
+
+    // $v0 likewise: only temps coalesced with a call result or a return
+    // value get it (see FixedRegisterCoalescing)
+    public static final int RESULT_REGISTER = FIRST_ARGUMENT_REGISTER + ARGUMENT_REGISTER_NAMES.length;
+    public static final String RESULT_REGISTER_NAME = "$v0";
+
+    private static final int[] EMPTY = new int[0];
+
     public boolean success;
-    public Map<Temp, String> assignment;  // temp → register name (e.g., "$t5")
+    private final int[] assignment;  // temp index → register ordinal (index into REGISTER_NAMES)
+    private final Map<IrCommand, Integer> liveAcrossCall = new IdentityHashMap<>();
 
-    public RegisterAllocation(boolean success, Map<Temp, String> assignment)
+    public RegisterAllocation(boolean success, int[] assignment)
     {
         this.success = success;
-        this.assignment = assignment;
+        this.assignment = (assignment == null) ? EMPTY : assignment;
     }
 
     /**
@@ -31,10 +64,64 @@ public class RegisterAllocation
      */
     public String getRegister(Temp t)
     {
-        if (assignment == null) {
+        int reg = getRegisterOrdinal(t.getSerialNumber());
+        if (reg < 0) {
             return null;
         }
-        return assignment.get(t);
+        if (reg == RESULT_REGISTER) {
+            return RESULT_REGISTER_NAME;
+        }
+        return (reg < NUM_REGISTERS) ? REGISTER_NAMES[reg] : ARGUMENT_REGISTER_NAMES[reg - FIRST_ARGUMENT_REGISTER];
+    }
+
+    /**
+     * Register ordinal of a temp index, or -1 if not allocated
+     */
+    public int getRegisterOrdinal(int tempIndex)
+    {
+        if (tempIndex < 0 || tempIndex >= assignment.length) {
+            return -1;
+        }
+        return assignment[tempIndex];
+    }
+
+    public static boolean isCalleeSaved(int ordinal)
+    {
+        return ordinal >= FIRST_CALLEE_SAVED && ordinal < NUM_REGISTERS;
+    }
+
+    /**
+     * Ordinal of the register that carries argument i ($a0 for i = 0)
+     */
+    public static int argumentRegister(int i)
+    {
+        return FIRST_ARGUMENT_REGISTER + i;
+    }
+
+    /**
+     * Record the registers live across a call (set by the allocator)
+     */
+    public void setLiveAcrossCall(IrCommand call, int registerMask)
+    {
+        liveAcrossCall.put(call, registerMask);
+    }
+
+    /**
+     * Mask of registers (bit = ordinal) holding values that are still
+     * needed after the call returns; the call's own result is excluded
+     */
+    public int getLiveAcrossCall(IrCommand call)
+    {
+        Integer mask = liveAcrossCall.get(call);
+        return (mask == null) ? 0 : mask;
+    }
+
+    /**
+     * Number of temp indices covered by the assignment
+     */
+    public int size()
+    {
+        return assignment.length;
     }
 
     /**
@@ -1,31 +1,84 @@
 package regalloc;
 
+import diagnostics.Diagnostics;
 import ir.*;
 import temp.Temp;
+import temp.TempFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Register Allocator
  *
  * Main orchestrator for register allocation.
- * Performs the following steps:
+ * No temp is live across function units, so every unit is allocated
+ * on its own, as one task of a ForkJoinPool. Per unit:
+ * 0. Forward variable loads to moves where the value is already in a temp
  * 1. Liveness analysis on IR
- * 2. Build interference graph
- * 3. Color the graph (assign registers)
- * 4. Return register mapping or failure
+ * 2. Join copies with the fixed registers where possible, then build the
+ *    unit's interference graph, spill costs and list of moves
+ * 3. Coalesce move-related temps, then color the graph (assign registers)
+ * 4. If some temps were spilled: rewrite them to frame slots and go back to 1
+ * 5. Record, for each call, the registers live across it (the translator
+ *    saves and restores only those)
+ * Then, for the whole program:
+ * 6. Merge the unit results into one RegisterAllocation
+ *
+ * Every round spills at least one temp, and the temps created by
+ * rewriting are never spilled again, so the loop terminates.
+ *
+ * Graph nodes are the dense temp indices of the unit's liveness
+ * analysis, so each graph is only as large as its own function.
+ *
+ * Temps that carry register arguments and parameters are precolored
+ * with $a0-$a3 (see precolors). Those registers are outside the K
+ * colors, so precolored temps get no interference edges and take part
+ * in no graph coalescing: their live ranges only span the copies around
+ * a call or a function entry. FixedRegisterCoalescing instead hands the
+ * fixed register itself (or $v0, for call results and return values)
+ * to the temp on the other side of such a copy, when the register is
+ * free over that temp's whole live range.
+ * Tasks share nothing but TempFactory (spill temps); debug output is
+ * buffered per unit and printed in unit order.
+ *
+ * Strategy LINEAR_SCAN allocates every unit with LinearScanAllocator
+ * instead, and AUTO (the default) does so only for units with more than
+ * LINEAR_SCAN_THRESHOLD temps.
  *
  * Usage:
  *   RegisterAllocator allocator = new RegisterAllocator();
- *   RegisterAllocation result = allocator.allocate(irCommands);
- *   if (!result.success) {
- *       System.out.println("Register Allocation Failed");
- *   } else {
- *       String reg = result.getRegister(someTemp);
- *   }
+ *   RegisterAllocation result = allocator.allocate(ir);
+ *   String reg = result.getRegister(someTemp);
  */
 public class RegisterAllocator
 {
-    private boolean verbose = false;  // Set to true for debug output
+    /**
+     * Which allocation algorithm to run
+     */
+    public enum Strategy
+    {
+        GRAPH_COLORING,
+        LINEAR_SCAN,
+        AUTO
+    }
+
+    /**
+     * In AUTO mode, a unit with more temps than this uses linear scan
+     */
+    public static final int LINEAR_SCAN_THRESHOLD = 2000;
+
+    private boolean verbose = false;  // debug output (Main: REGALLOC diagnostics at DEBUG)
+    private Strategy strategy = Strategy.AUTO;
+
+    private int units = 0;
+    private int linearScanUnits = 0;
+    private int rounds = 0;
+    private int spilledTemps = 0;
+    private int forwardedLoads = 0;
+    private int coalescedMoves = 0;
 
     public RegisterAllocator()
     {
@@ -36,108 +89,394 @@ public class RegisterAllocator
         this.verbose = verbose;
     }
 
+    public RegisterAllocator(boolean verbose, Strategy strategy)
+    {
+        this.verbose = verbose;
+        this.strategy = strategy;
+    }
+
     /**
-     * Perform register allocation
+     * Perform register allocation on every function unit of the program.
+     * Spilled temps are rewritten in place, so the function units may
+     * gain SPILL_LOAD / SPILL_STORE commands and frame slots.
      *
-     * @param commands list of IR commands
-     * @return RegisterAllocation result
+     * @param ir the IR singleton
+     * @return RegisterAllocation result (always successful)
      */
-    public RegisterAllocation allocate(List<IrCommand> commands)
+    public RegisterAllocation allocate(Ir ir)
     {
-        if (commands == null || commands.isEmpty()) {
-            return new RegisterAllocation(true, new HashMap<>());
+        // Temps created from here on are spill temps
+        int firstSpillTemp = TempFactory.getInstance().getNextSerialNumber();
+
+        List<UnitTask> tasks = new ArrayList<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (IrFunction function : ir.getFunctions()) {
+            UnitTask task = new UnitTask(function, firstSpillTemp);
+            tasks.add(task);
+            pool.execute(task);
         }
 
-        // Step 1: Liveness Analysis
-        if (verbose) System.out.println("\n=== STEP 1: LIVENESS ANALYSIS ===");
-        LivenessAnalysis liveness = new LivenessAnalysis(commands);
-        Map<IrCommand, LivenessInfo> livenessMap = liveness.analyze();
+        List<UnitAllocation> results = new ArrayList<>();
+        for (UnitTask task : tasks) {
+            results.add(task.join());  // rethrows a failed unit's exception
+            if (task.log != null) {
+                Diagnostics.out().print(task.log);
+            }
+        }
 
-        if (verbose) liveness.printLiveness();
+        units = results.size();
+        linearScanUnits = 0;
+        rounds = 0;
+        spilledTemps = 0;
+        forwardedLoads = 0;
+        coalescedMoves = 0;
+        for (UnitAllocation unit : results) {
+            if (unit.linearScan) linearScanUnits++;
+            rounds = Math.max(rounds, unit.rounds);
+            spilledTemps += unit.spilledTemps;
+            forwardedLoads += unit.forwardedLoads;
+            coalescedMoves += unit.coalescedMoves;
+        }
+        return merge(results);
+    }
 
-        // Step 2: Build Interference Graph
-        if (verbose) System.out.println("\n=== STEP 2: BUILD INTERFERENCE GRAPH ===");
-        InterferenceGraph interferenceGraph = buildInterferenceGraph(commands, livenessMap);
+    /**
+     * Combine per-unit results into one assignment indexed by serial number
+     */
+    static RegisterAllocation merge(List<UnitAllocation> results)
+    {
+        int[] assignment = new int[TempFactory.getInstance().getNextSerialNumber()];
+        Arrays.fill(assignment, -1);
+        for (UnitAllocation unit : results) {
+            for (int t = 0; t < unit.liveness.getTempCount(); t++) {
+                assignment[unit.liveness.getTemp(t).getSerialNumber()] = unit.registers[t];
+            }
+        }
+
+        RegisterAllocation result = new RegisterAllocation(true, assignment);
+        for (UnitAllocation unit : results) {
+            for (Map.Entry<IrCommand, Integer> call : unit.liveAcrossCalls.entrySet()) {
+                result.setLiveAcrossCall(call.getKey(), call.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Allocation of one function unit
+     */
+    private class UnitTask extends RecursiveTask<UnitAllocation>
+    {
+        private final IrFunction function;
+        private final int firstSpillTemp;
+        private String log;  // debug output, printed after the join
 
-        if (verbose) interferenceGraph.printGraph();
+        UnitTask(IrFunction function, int firstSpillTemp)
+        {
+            this.function = function;
+            this.firstSpillTemp = firstSpillTemp;
+        }
 
-        // Step 3: Graph Coloring
-        if (verbose) System.out.println("\n=== STEP 3: GRAPH COLORING ===");
-        GraphColoring coloring = new GraphColoring(interferenceGraph);
-        RegisterAllocation result = coloring.color();
+        @Override
+        protected UnitAllocation compute()
+        {
+            PrintStream out = null;
+            ByteArrayOutputStream buffer = null;
+            if (verbose) {
+                buffer = new ByteArrayOutputStream();
+                out = new PrintStream(buffer);
+            }
 
-        if (verbose) GraphColoring.printColoring(result);
+            UnitAllocation unit;
+            if (strategy == Strategy.LINEAR_SCAN
+                || (strategy == Strategy.AUTO && function.getTempCount() > LINEAR_SCAN_THRESHOLD)) {
+                unit = new LinearScanAllocator(verbose).allocate(function, firstSpillTemp, out);
+            } else {
+                unit = colorUnit(function, firstSpillTemp, out);
+            }
 
-        return result;
+            if (buffer != null) {
+                log = buffer.toString();
+            }
+            return unit;
+        }
     }
 
     /**
-     * Build interference graph from liveness information
-     *
-     * Two temporaries interfere if they are both live at the same time.
-     * Strategy: For each instruction, all temps in OUT[i] interfere with each other.
+     * Graph coloring of one unit until nothing spills
      *
-     * @param commands list of IR commands
-     * @param livenessMap liveness information for each command
-     * @return interference graph
+     * @param out debug output (null if not verbose)
      */
-    private InterferenceGraph buildInterferenceGraph(
-        List<IrCommand> commands,
-        Map<IrCommand, LivenessInfo> livenessMap)
+    private static UnitAllocation colorUnit(IrFunction function, int firstSpillTemp, PrintStream out)
     {
-        InterferenceGraph graph = new InterferenceGraph();
+        UnitAllocation unit = new UnitAllocation(function);
 
-        // Add all temporaries as nodes
-        Set<Temp> allTemps = new HashSet<>();
-        for (LivenessInfo info : livenessMap.values()) {
-            allTemps.addAll(info.use);
-            allTemps.addAll(info.def);
+        // Step 0: Expose copies to the coalescer
+        LoadForwarding forwarding = new LoadForwarding();
+        forwarding.run(function);
+
+        while (true) {
+            unit.rounds++;
+
+            // Step 1: Liveness Analysis
+            if (out != null) out.println("\n=== STEP 1: LIVENESS ANALYSIS (" + function.getName() + ") ===");
+            LivenessAnalysis liveness = new LivenessAnalysis(function);
+            liveness.analyze();
+
+            if (out != null) liveness.printLiveness(out);
+
+            // Step 2: Build Interference Graph
+            if (out != null) out.println("\n=== STEP 2: BUILD INTERFERENCE GRAPH ===");
+            int[] precolored = precolors(liveness);
+            int joined = new FixedRegisterCoalescing(liveness, precolored).run();
+            InterferenceGraph interferenceGraph = new InterferenceGraph(liveness.getTempCount());
+            Moves moves = new Moves();
+            buildInterferenceGraph(interferenceGraph, liveness, precolored, moves);
+            SpillCosts costs = new SpillCosts(liveness, firstSpillTemp);
+
+            if (out != null) interferenceGraph.printGraph(out);
+
+            // Step 3: Graph Coloring
+            if (out != null) out.println("\n=== STEP 3: GRAPH COLORING ===");
+            GraphColoring coloring = new GraphColoring(interferenceGraph, costs);
+            markCallCrossing(coloring, liveness);
+            int coalesced = coloring.coalesce(moves.pairs, moves.count);
+            if (out != null) out.println("Coalesced " + coalesced + " of " + moves.count + " moves, "
+                + joined + " copies with fixed registers");
+            int[] colors = coloring.color();
+
+            if (out != null) coloring.printColoring(colors, out);
+
+            int[] spilled = coloring.getSpilledNodes();
+            if (spilled.length == 0) {
+                applyPrecolors(colors, precolored);
+                unit.liveness = liveness;
+                unit.registers = colors;
+                unit.forwardedLoads = forwarding.getForwardedCount();
+                unit.coalescedMoves = coalesced + joined;
+                recordLiveAcrossCalls(unit);
+                return unit;
+            }
+
+            // Forwarded loads may be what made the unit spill:
+            // first undo them and color again
+            if (forwarding.revert(function) > 0) {
+                if (out != null) out.println("\n=== STEP 4: REVERT LOAD FORWARDING ===");
+                continue;
+            }
+
+            // Step 4: Spill and try again (never a spill temp, see GraphColoring)
+            int[] serials = new int[spilled.length];
+            for (int k = 0; k < spilled.length; k++) {
+                serials[k] = liveness.getTemp(spilled[k]).getSerialNumber();
+            }
+            unit.spilledTemps += spilled.length;
+
+            if (out != null) out.println("\n=== STEP 4: SPILL " + spilled.length + " TEMPS ===");
+            new SpillRewriter(serials).rewrite(function);
+        }
+    }
+
+    static boolean isCall(IrCommand cmd)
+    {
+        return cmd.opcode == IrOpcode.CALL_FUNC || cmd.opcode == IrOpcode.METHOD_CALL;
+    }
+
+    /**
+     * Argument registers fixed by the calling convention, by temp index
+     * (-1 for temps the allocator chooses): the register arguments of
+     * every call (METHOD_CALL: the object, then the arguments) and the
+     * register parameters of the unit
+     */
+    static int[] precolors(LivenessAnalysis liveness)
+    {
+        int[] precolored = new int[liveness.getTempCount()];
+        Arrays.fill(precolored, -1);
+
+        for (int i = 0; i < liveness.size(); i++) {
+            IrCommand cmd = liveness.getCommand(i);
+            switch (cmd.opcode) {
+                case CALL_FUNC:
+                case METHOD_CALL: {
+                    Temp[] arguments = cmd.uses();  // in argument order
+                    for (int k = 0; k < arguments.length && k < IrCommandCallFunc.REGISTER_ARGUMENTS; k++) {
+                        precolored[liveness.indexOf(arguments[k])] = RegisterAllocation.argumentRegister(k);
+                    }
+                    break;
+                }
+                case PARAMETER: {
+                    IrCommandParameter parameter = (IrCommandParameter) cmd;
+                    if (parameter.index < IrCommandCallFunc.REGISTER_ARGUMENTS) {
+                        precolored[liveness.indexOf(parameter.dst)] = RegisterAllocation.argumentRegister(parameter.index);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
         }
+        return precolored;
+    }
 
-        for (Temp t : allTemps) {
-            graph.addNode(t);
+    static void applyPrecolors(int[] registers, int[] precolored)
+    {
+        for (int t = 0; t < precolored.length; t++) {
+            if (precolored[t] >= 0) registers[t] = precolored[t];
         }
+    }
 
-        // Add interference edges
-        for (IrCommand cmd : commands) {
-            LivenessInfo info = livenessMap.get(cmd);
+    /**
+     * Temps live across a call: in OUT of the call and not defined by it
+     */
+    private static void markCallCrossing(GraphColoring coloring, LivenessAnalysis liveness)
+    {
+        for (int i = 0; i < liveness.size(); i++) {
+            if (!isCall(liveness.getCommand(i))) continue;
+            int[] defs = liveness.getDef(i);
+            for (int t = liveness.nextLiveOut(i, 0); t >= 0; t = liveness.nextLiveOut(i, t + 1)) {
+                if (defs.length == 0 || defs[0] != t) {
+                    coloring.setCallCrossing(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store, for every call of a colored unit, the mask of registers the
+     * caller must preserve
+     */
+    private static void recordLiveAcrossCalls(UnitAllocation unit)
+    {
+        LivenessAnalysis liveness = unit.liveness;
+        for (int i = 0; i < liveness.size(); i++) {
+            if (!isCall(liveness.getCommand(i))) continue;
+            int[] defs = liveness.getDef(i);
+            int mask = 0;
+            for (int t = liveness.nextLiveOut(i, 0); t >= 0; t = liveness.nextLiveOut(i, t + 1)) {
+                if (defs.length == 0 || defs[0] != t) {
+                    int reg = unit.registers[t];
+                    if (reg >= 0) mask |= 1 << reg;
+                }
+            }
+            unit.liveAcrossCalls.put(liveness.getCommand(i), mask);
+        }
+    }
+
+    /**
+     * Number of function units the last allocate() call processed
+     */
+    public int getUnitCount()
+    {
+        return units;
+    }
+
+    /**
+     * Number of those units allocated by linear scan
+     */
+    public int getLinearScanUnitCount()
+    {
+        return linearScanUnits;
+    }
+
+    /**
+     * Largest number of coloring rounds (or scans, for linear scan) a
+     * unit needed in the last allocate() call
+     */
+    public int getRounds()
+    {
+        return rounds;
+    }
+
+    /**
+     * Number of variable loads the last allocate() call turned into moves
+     */
+    public int getForwardedLoadCount()
+    {
+        return forwardedLoads;
+    }
 
-            // All temps in OUT[i] are live simultaneously
-            // Therefore, they all interfere with each other
-            List<Temp> liveTemps = new ArrayList<>(info.out);
+    /**
+     * Number of moves coalesced away in the final round of each unit,
+     * summed over the last allocate() call
+     */
+    public int getCoalescedMoveCount()
+    {
+        return coalescedMoves;
+    }
+
+    /**
+     * Number of temps moved to frame slots by the last allocate() call
+     */
+    public int getSpilledTempCount()
+    {
+        return spilledTemps;
+    }
 
-            for (int i = 0; i < liveTemps.size(); i++) {
-                for (int j = i + 1; j < liveTemps.size(); j++) {
-                    graph.addEdge(liveTemps.get(i), liveTemps.get(j));
+    /**
+     * Build the interference graph of one unit
+     *
+     * Two temporaries interfere if they are both live at the same time.
+     * Strategy: a temp defined by instruction i interferes with every
+     * other temp in OUT[i]. Temps live together at some point were
+     * necessarily live-out together at the later of their definitions.
+     *
+     * A move "dst := src" does not make dst interfere with src (they hold
+     * the same value), so the pair stays a coalescing candidate; the move
+     * is recorded for coalesce().
+     *
+     * Precolored temps are left without edges (see the class comment).
+     *
+     * @param graph empty graph with one id per temp index of the unit
+     * @param liveness solved liveness of the unit
+     * @param precolored argument register of each temp index, -1 if none
+     * @param moves receives the moves of the unit
+     */
+    private static void buildInterferenceGraph(InterferenceGraph graph, LivenessAnalysis liveness,
+                                               int[] precolored, Moves moves)
+    {
+        // Add all temporaries as nodes
+        for (int t = 0; t < liveness.getTempCount(); t++) {
+            graph.addNode(t, liveness.getTemp(t));
+        }
+
+        // Add interference edges
+        for (int i = 0; i < liveness.size(); i++) {
+            int moveSrc = -1;
+            if (liveness.getCommand(i).opcode == IrOpcode.MOVE) {
+                moveSrc = liveness.getUse(i)[0];
+                int moveDst = liveness.getDef(i)[0];
+                if (precolored[moveDst] < 0 && precolored[moveSrc] < 0) {
+                    moves.add(moveDst, moveSrc);
                 }
             }
 
-            // Special case: If this instruction defines a temp,
-            // that temp interferes with all temps in OUT (except itself)
-            // This handles the case where a temp is defined but immediately dies
-            if (!info.def.isEmpty()) {
-                for (Temp defTemp : info.def) {
-                    for (Temp outTemp : info.out) {
-                        if (!defTemp.equals(outTemp)) {
-                            graph.addEdge(defTemp, outTemp);
-                        }
+            for (int d : liveness.getDef(i)) {
+                if (precolored[d] >= 0) continue;
+                for (int t = liveness.nextLiveOut(i, 0); t >= 0; t = liveness.nextLiveOut(i, t + 1)) {
+                    if (t != d && t != moveSrc && precolored[t] < 0) {
+                        graph.addEdge(d, t);
                     }
                 }
             }
         }
-
-        return graph;
     }
 
     /**
-     * Convenience method to allocate from Ir singleton
+     * Moves of one unit, as pairs (dst id, src id)
      */
-    public RegisterAllocation allocate(Ir ir)
+    private static class Moves
     {
-        // Ir class needs a method to get commands list
-        // For now, we'll need to modify Ir to add this
-        // or extract commands manually
-        throw new UnsupportedOperationException(
-            "Need to add getCommands() method to Ir class");
+        int[] pairs = new int[32];
+        int count = 0;
+
+        void add(int dst, int src)
+        {
+            if (2 * count + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[2 * count] = dst;
+            pairs[2 * count + 1] = src;
+            count++;
+        }
     }
 }
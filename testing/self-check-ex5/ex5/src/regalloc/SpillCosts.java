@@ -0,0 +1,111 @@
+package regalloc;
+
+import java.util.*;
+
+/**
+ * Spill Costs
+ *
+ * Estimates how expensive it would be to keep a temporary in memory
+ * instead of a register: every use and every definition of the temp
+ * would become a load or a store.
+ *
+ * cost(t) = Σ over each use/def of t of 10^depth
+ *
+ * where depth is the loop nesting depth of the instruction, so a temp
+ * touched inside a loop costs ten times more than one touched outside.
+ * Temps created by spill rewriting cover a single instruction; spilling
+ * them again gains nothing, so they get an infinite cost.
+ *
+ * Costs are computed for one function unit and indexed by the unit's
+ * dense temp indices, like its interference graph.
+ */
+public class SpillCosts
+{
+    private static final int MAX_DEPTH = 8;  // 10^8 already dominates any realistic count
+
+    private final double[] cost;
+    private final boolean[] unspillable;
+
+    /**
+     * Costs of the temps of one solved function
+     *
+     * @param liveness liveness of the unit (gives the temp indices and control flow)
+     * @param firstSpillTemp serial numbers >= this were created by spill rewriting
+     */
+    public SpillCosts(LivenessAnalysis liveness, int firstSpillTemp)
+    {
+        int n = liveness.getTempCount();
+        this.cost = new double[n];
+        this.unspillable = new boolean[n];
+        for (int t = 0; t < n; t++) {
+            unspillable[t] = liveness.getTemp(t).getSerialNumber() >= firstSpillTemp;
+        }
+
+        int[] depth = loopDepths(liveness);
+        for (int i = 0; i < liveness.size(); i++) {
+            double weight = Math.pow(10, Math.min(depth[i], MAX_DEPTH));
+            for (int u : liveness.getUse(i)) {
+                cost[u] += weight;
+            }
+            for (int d : liveness.getDef(i)) {
+                cost[d] += weight;
+            }
+        }
+    }
+
+    /**
+     * Loop nesting depth of every instruction.
+     *
+     * The IR lays a loop out as "label ... jump label", so every edge
+     * i → s with s <= i closes a loop whose body is [s, i]. Each such
+     * range adds one level of depth (accumulated with a difference array).
+     */
+    private static int[] loopDepths(LivenessAnalysis liveness)
+    {
+        int n = liveness.size();
+        int[] delta = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            for (int s : liveness.getSuccessors(i)) {
+                if (s <= i) {
+                    delta[s]++;
+                    delta[i + 1]--;
+                }
+            }
+        }
+
+        int[] depth = new int[n];
+        int running = 0;
+        for (int i = 0; i < n; i++) {
+            running += delta[i];
+            depth[i] = running;
+        }
+        return depth;
+    }
+
+    /**
+     * Temps created by spill rewriting (infinite cost)
+     */
+    public boolean isUnspillable(int id)
+    {
+        return unspillable[id];
+    }
+
+    /**
+     * Node b was coalesced into node a: spilling a now costs both
+     */
+    public void merge(int a, int b)
+    {
+        cost[a] += cost[b];
+    }
+
+    /**
+     * Cost of spilling the temp with the given index
+     */
+    public double get(int id)
+    {
+        if (isUnspillable(id)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return cost[id];
+    }
+}
@@ -0,0 +1,34 @@
+package regalloc;
+
+import ir.IrCommand;
+import ir.IrFunction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Register allocation of a single function unit
+ *
+ * Produced independently for every unit (possibly on different
+ * threads) and merged into one RegisterAllocation afterwards.
+ * Registers are indexed by the dense temp indices of the final
+ * liveness analysis of the unit, not by serial number.
+ */
+class UnitAllocation
+{
+    final IrFunction function;
+    LivenessAnalysis liveness;  // of the final version of the unit
+    int[] registers;            // temp index → register ordinal
+    Map<IrCommand, Integer> liveAcrossCalls = new HashMap<>();  // call → registers it must preserve
+
+    // Statistics
+    boolean linearScan = false;
+    int rounds = 0;
+    int spilledTemps = 0;
+    int forwardedLoads = 0;
+    int coalescedMoves = 0;
+
+    UnitAllocation(IrFunction function)
+    {
+        this.function = function;
+    }
+}
@@ -0,0 +1,46 @@
+package symboltable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An interned identifier: one Symbol per distinct name, with its hash
+ * computed once, so the symbol table compares symbols by reference.
+ */
+public final class Symbol
+{
+	public final String name;
+	final int hash;
+
+	private static final Map<String, Symbol> pool = new HashMap<>();
+
+	private Symbol(String name)
+	{
+		this.name = name;
+		this.hash = mix(name.hashCode());
+	}
+
+	/* The unique symbol for name */
+	public static Symbol of(String name)
+	{
+		Symbol s = pool.get(name);
+		if (s == null)
+		{
+			s = new Symbol(name);
+			pool.put(name, s);
+		}
+		return s;
+	}
+
+	/* Spread the bits of String.hashCode over the low bits (the table masks them) */
+	private static int mix(int h)
+	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -1,27 +1,63 @@
 package symboltable;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
 import ast.SemanticException;
 import types.*;
 
 public class SymbolTable
 {
-	private int hashArraySize = 13;
+	/*
+	 * Open addressing over interned symbols: slot i holds a symbol and
+	 * the innermost entry bound to it (whose next is the entry it
+	 * shadows), or null once every binding of the symbol has been popped.
+	 * Symbols stay in their slot, so there are no deletions; the table
+	 * doubles when 3/4 of its slots hold a symbol. The capacity is a
+	 * power of two and probing is linear.
+	 */
+	private int hashArraySize = 64;
+	private Symbol[] symbols = new Symbol[hashArraySize];
 	private SymbolTableEntry[] table = new SymbolTableEntry[hashArraySize];
+	private int symbolCount = 0;
+
+	/* Stack of entries, most recent at top; topIndex is its depth */
 	private SymbolTableEntry top;
 	private int topIndex = 0;
-	
-	private int hash(String s)
+
+	/* Depth of the stack at each open beginScope */
+	private int[] scopeMarks = new int[16];
+	private int scopeCount = 0;
+
+	/* The slot of sym: where it is, or the empty slot it would take */
+	private int slot(Symbol sym)
 	{
-		if (s.charAt(0) == 'l') {return 1;}
-		if (s.charAt(0) == 'm') {return 1;}
-		if (s.charAt(0) == 'r') {return 3;}
-		if (s.charAt(0) == 'i') {return 6;}
-		if (s.charAt(0) == 'd') {return 6;}
-		if (s.charAt(0) == 'k') {return 6;}
-		if (s.charAt(0) == 'f') {return 6;}
-		if (s.charAt(0) == 'S') {return 6;}
-		return 12;
+		int mask = hashArraySize - 1;
+		int i = sym.hash & mask;
+		while (symbols[i] != null && symbols[i] != sym)
+		{
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void grow()
+	{
+		Symbol[] oldSymbols = symbols;
+		SymbolTableEntry[] oldTable = table;
+
+		hashArraySize *= 2;
+		symbols = new Symbol[hashArraySize];
+		table = new SymbolTableEntry[hashArraySize];
+		for (int i = 0; i < oldSymbols.length; i++)
+		{
+			if (oldSymbols[i] != null)
+			{
+				int j = slot(oldSymbols[i]);
+				symbols[j] = oldSymbols[i];
+				table[j] = oldTable[i];
+			}
+		}
 	}
 
     public SymbolTableEntry enter(String name, Type t) throws SemanticException
@@ -37,161 +73,136 @@ public class SymbolTable
 
 	public SymbolTableEntry enterWithoutCheck(String name, Type t)
 	{
-		// Compute the hash value for this new entry
-		int hashValue = hash(name);
-
-		// Extract what will eventually be the next entry in the hashed position
-		SymbolTableEntry next = table[hashValue];
-
-		// Prepare a new symbol table entry with name, type, next and prevtop
-		SymbolTableEntry e = new SymbolTableEntry(name,t,hashValue,next,top, topIndex++);
+		Symbol sym = Symbol.of(name);
+		int i = slot(sym);
+		if (symbols[i] == null)
+		{
+			if (4 * (symbolCount + 1) > 3 * hashArraySize)
+			{
+				grow();
+				i = slot(sym);
+			}
+			symbols[i] = sym;
+			symbolCount++;
+		}
 
-		// Update the top of the symbol table
+		// The new entry shadows the current binding of the name, if any
+		SymbolTableEntry e = new SymbolTableEntry(sym, t, table[i], top, topIndex++);
 		top = e;
-
-		// Enter the new entry to the table
-		table[hashValue] = e;
-
-		// Print Symbol Table
-		printMe();
+		table[i] = e;
 
         return e;
 	}
 
 	public Type find(String name)
 	{
-		SymbolTableEntry e;
-
-		for (e = table[hash(name)]; e != null; e = e.next)
-		{
-			if (name.equals(e.name))
-			{
-				return e.type;
-			}
-		}
-
-		return null;
+		SymbolTableEntry e = findEntry(name);
+		return (e != null) ? e.type : null;
 	}
 
 	public SymbolTableEntry findEntry(String name)
 	{
-		SymbolTableEntry e;
-
-		for (e = table[hash(name)]; e != null; e = e.next)
-		{
-			if (name.equals(e.name))
-			{
-				return e;
-			}
-		}
-
-		return null;
+		return table[slot(Symbol.of(name))];
 	}
 
 	public void beginScope()
 	{
-        enterWithoutCheck(
-			"SCOPE-BOUNDARY",
-			new TypeForScopeBoundaries("NONE"));
-
-		printMe();
+		if (scopeCount == scopeMarks.length)
+		{
+			scopeMarks = Arrays.copyOf(scopeMarks, 2 * scopeCount);
+		}
+		scopeMarks[scopeCount++] = topIndex;
 	}
 
 	public void endScope()
 	{
-		// Pop elements from the symbol table stack until a SCOPE-BOUNDARY is hit
-		while (top != null && !top.name.equals("SCOPE-BOUNDARY"))
+		// Pop the entries entered since the matching beginScope
+		int mark = (scopeCount > 0) ? scopeMarks[--scopeCount] : 0;
+		while (topIndex > mark)
 		{
-			table[top.index] = top.next;
-			topIndex = topIndex -1;
+			table[slot(top.symbol)] = top.next;
+			topIndex = topIndex - 1;
 			top = top.prevtop;
 		}
-		// Pop the SCOPE-BOUNDARY sign itself
-		if (top != null)
-		{
-			table[top.index] = top.next;
-			topIndex = topIndex -1;
-			top = top.prevtop;
-		}
-
-		printMe();
 	}
 
 	public boolean existsInCurrentScope(String name)
 	{
-		SymbolTableEntry e;
+		// The innermost binding is in the current scope iff it is above the mark
+		SymbolTableEntry e = findEntry(name);
+		int mark = (scopeCount > 0) ? scopeMarks[scopeCount - 1] : 0;
+		return e != null && e.prevtopIndex >= mark;
+	}
+
+	/*
+	 * Snapshots are a debugging aid and off unless a dump is set (see
+	 * Main --dump-symbol-table). They are taken at chosen points, such
+	 * as the end of each function body, not on every operation.
+	 */
+	private SymbolTableDump dump = null;
+
+	public void setDump(SymbolTableDump dump)
+	{
+		this.dump = dump;
+	}
 
-		// Traverse from top until we hit a SCOPE-BOUNDARY or null
-		for (e = top; e != null && !e.name.equals("SCOPE-BOUNDARY"); e = e.prevtop)
+	/* Queue a Graphviz snapshot of the table, if dumping */
+	public void snapshot(String label)
+	{
+		if (dump != null)
 		{
-			if (name.equals(e.name))
-			{
-				return true;
-			}
+			dump.submit(label, printMe());
 		}
-
-		return false;
 	}
 
-	public static int n=0;
-	
-	public void printMe()
+	private String printMe()
 	{
 		int i=0;
 		int j=0;
-		String dirname="./output/";
-		String filename=String.format("SYMBOL_TABLE_%d_IN_GRAPHVIZ_DOT_FORMAT.txt",n++);
-
-		try
-		{
-			// Open Graphviz text file for writing
-			PrintWriter fileWriter = new PrintWriter(dirname+filename);
-
-			// Write Graphviz dot prolog
-			fileWriter.print("digraph structs {\n");
-			fileWriter.print("rankdir = LR\n");
-			fileWriter.print("node [shape=record];\n");
-
-			// Write Hash Table Itself
-			fileWriter.print("hashTable [label=\"");
-			for (i=0;i<hashArraySize-1;i++) { fileWriter.format("<f%d>\n%d\n|",i,i); }
-			fileWriter.format("<f%d>\n%d\n\"];\n",hashArraySize-1,hashArraySize-1);
+		StringWriter text = new StringWriter();
+		PrintWriter fileWriter = new PrintWriter(text);
+
+		// Write Graphviz dot prolog
+		fileWriter.print("digraph structs {\n");
+		fileWriter.print("rankdir = LR\n");
+		fileWriter.print("node [shape=record];\n");
+
+		// Write Hash Table Itself
+		fileWriter.print("hashTable [label=\"");
+		for (i=0;i<hashArraySize-1;i++) { fileWriter.format("<f%d>\n%d\n|",i,i); }
+		fileWriter.format("<f%d>\n%d\n\"];\n",hashArraySize-1,hashArraySize-1);
 		
-			// Loop over hash table array and print all linked lists per array cell
-			for (i=0;i<hashArraySize;i++)
+		// Loop over hash table array and print the bindings of each symbol
+		for (i=0;i<hashArraySize;i++)
+		{
+			if (table[i] != null)
 			{
-				if (table[i] != null)
-				{
-					fileWriter.format("hashTable:f%d -> node_%d_0:f0;\n",i,i);
-				}
-				j=0;
-				for (SymbolTableEntry it = table[i]; it!=null; it=it.next)
+				fileWriter.format("hashTable:f%d -> node_%d_0:f0;\n",i,i);
+			}
+			j=0;
+			for (SymbolTableEntry it = table[i]; it!=null; it=it.next)
+			{
+				fileWriter.format("node_%d_%d ",i,j);
+				fileWriter.format("[label=\"<f0>%s|<f1>%s|<f2>prevtop=%d|<f3>next\"];\n",
+					it.name,
+					it.type.name,
+					it.prevtopIndex);
+
+				if (it.next != null)
 				{
-					fileWriter.format("node_%d_%d ",i,j);
-					fileWriter.format("[label=\"<f0>%s|<f1>%s|<f2>prevtop=%d|<f3>next\"];\n",
-						it.name,
-						it.type.name,
-						it.prevtopIndex);
-
-					if (it.next != null)
-					{
-						fileWriter.format(
-							"node_%d_%d -> node_%d_%d [style=invis,weight=10];\n",
-							i,j,i,j+1);
-						fileWriter.format(
-							"node_%d_%d:f3 -> node_%d_%d:f0;\n",
-							i,j,i,j+1);
-					}
-					j++;
+					fileWriter.format(
+						"node_%d_%d -> node_%d_%d [style=invis,weight=10];\n",
+						i,j,i,j+1);
+					fileWriter.format(
+						"node_%d_%d:f3 -> node_%d_%d:f0;\n",
+						i,j,i,j+1);
 				}
+				j++;
 			}
-			fileWriter.print("}\n");
-			fileWriter.close();
 		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-		}		
+		fileWriter.print("}\n");
+		fileWriter.close();
+		return text.toString();
 	}
 	
 	// Singleton implementation
@@ -4,10 +4,17 @@ public class TempFactory
 {
 	private int counter=0;
 	
-	public Temp getFreshTemp()
+	// Synchronized: the register allocator creates spill temps from several threads
+	public synchronized Temp getFreshTemp()
 	{
 		return new Temp(counter++);
 	}
+
+	// Serial number the next fresh temp will get
+	public synchronized int getNextSerialNumber()
+	{
+		return counter;
+	}
 	// Singleton implementation
 	private static TempFactory instance = null;
 
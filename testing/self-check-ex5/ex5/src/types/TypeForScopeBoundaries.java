@@ -1,9 +0,0 @@
-package types;
-
-public class TypeForScopeBoundaries extends Type
-{
-	public TypeForScopeBoundaries(String name)
-	{
-		this.name = name;
-	}
-}
@@ -1,6 +1,8 @@
 package ast;
 
+import ir.Ir;
 import temp.Temp;
+import java.util.List;
 import types.*;
 import symboltable.*;
 
@@ -16,6 +18,10 @@ public class AstDecClass extends AstDec
 	/****************/
 	public AstTypeNameList dataMembers;
     public String baseClass;
+    private TypeClass classType = null;  // set by semantMe
+
+	/* The class whose members are being analyzed (null outside class bodies) */
+	public static TypeClass currentClass = null;
 	
 	/******************/
 	/* CONSTRUCTOR(S) */
@@ -104,12 +110,16 @@ public class AstDecClass extends AstDec
 		/***************************/
 		/* [2] Semant Data Members */
 		/***************************/
+		currentClass = stubType;
 		TypeList members = dataMembers.semantMe(fatherClass);
+		currentClass = null;
 
 		// Update the stub with the actual data members instead of creating a new TypeClass
 		// This ensures that any references to the stub (from self-referential fields)
 		// will now see the complete class with all members
 		stubType.dataMembers = members;
+		stubType.freeze();  // the members are final: index them once
+		classType = stubType;
 
 		/*****************/
 		/* [3] End Scope */
@@ -139,6 +149,13 @@ public class AstDecClass extends AstDec
 	 */
 	public Temp irMe()
 	{
+		// Dispatch table of the class: one code label per method slot
+		List<String> vtable = classType.getVtable();
+		if (!vtable.isEmpty())
+		{
+			Ir.getInstance().addVtable(classType.getVtableLabel(), vtable);
+		}
+
 		// Iterate through all data members and generate IR for methods
 		AstTypeNameList it = dataMembers;
 		while (it != null)
@@ -131,6 +131,11 @@ public class AstDecVar extends AstDec
         {
             Ir.getInstance().AddIrCommand(new IrCommandStore(varNameWithOffset, initialValue.irMe()));
         }
+        else
+        {
+            // Locals live in frame slots, which are not zeroed: start at 0 (nil)
+            Ir.getInstance().AddIrCommand(new IrCommandStore(varNameWithOffset, null));
+        }
         return null;
     }
 	
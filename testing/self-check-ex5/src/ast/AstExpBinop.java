@@ -7,6 +7,7 @@ import types.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import diagnostics.*;
 
 public class AstExpBinop extends AstExp
 {
@@ -44,7 +45,7 @@ public class AstExpBinop extends AstExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== exp -> exp BINOP exp\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> exp BINOP exp");
 
 		/*******************************/
 		/* COPY INPUT DATA MENBERS ... */
@@ -88,7 +89,7 @@ public class AstExpBinop extends AstExp
 		if (right != null) AstGraphviz.getInstance().logEdge(serialNumber,right.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		Type t1 = null;
 		Type t2 = null;
@@ -149,6 +150,11 @@ public class AstExpBinop extends AstExp
 			{
 				return TypeInt.getInstance();
 			}
+			// string = string compares contents
+			if (t1 == TypeString.getInstance() && t2 == TypeString.getInstance())
+			{
+				return TypeInt.getInstance();
+			}
 			// Same array type
 			if (t1.isArray() && t2.isArray())
 			{
@@ -187,16 +193,9 @@ public class AstExpBinop extends AstExp
         if (left  != null) t1 = left.irMe();
         if (right != null) t2 = right.irMe();
 
-        // Get types to determine which IR command to use
-        Type type1 = null;
-        Type type2 = null;
-        try {
-            if (left != null) type1 = left.semantMe();
-            if (right != null) type2 = right.semantMe();
-        } catch (SemanticException e) {
-            // Semantic analysis should have already passed
-            System.err.println("Error in irMe: semantic analysis failed");
-        }
+        // Operand types (recorded by semantMe) choose the IR command
+        Type type1 = (left != null) ? left.getType() : null;
+        Type type2 = (right != null) ? right.getType() : null;
 
         // Handle ADD operation (integers or strings)
         if (op == ADD)
@@ -2,6 +2,7 @@ package ast;
 
 import temp.Temp;
 import types.*;
+import diagnostics.*;
 
 public class AstExpCallExp extends AstExp
 {
@@ -20,7 +21,7 @@ public class AstExpCallExp extends AstExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== exp -> callExp\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> callExp");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -48,7 +49,7 @@ public class AstExpCallExp extends AstExp
         if (value  != null) AstGraphviz.getInstance().logEdge(serialNumber,value.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		return value.semantMe();
 	}
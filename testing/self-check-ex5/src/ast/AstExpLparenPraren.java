@@ -2,6 +2,7 @@ package ast;
 
 import temp.Temp;
 import types.*;
+import diagnostics.*;
 
 public class AstExpLparenPraren extends AstExp
 {
@@ -20,7 +21,7 @@ public class AstExpLparenPraren extends AstExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== exp -> LPAREN exp RPAREN\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> LPAREN exp RPAREN");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -57,7 +58,7 @@ public class AstExpLparenPraren extends AstExp
 		if (value  != null) AstGraphviz.getInstance().logEdge(serialNumber,value.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		return value.semantMe();
 	}
@@ -4,6 +4,7 @@ import ir.*;
 import temp.Temp;
 import temp.TempFactory;
 import types.*;
+import diagnostics.*;
 
 public class AstExpMinus extends AstExp
 {
@@ -22,7 +23,7 @@ public class AstExpMinus extends AstExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== exp -> MINUS simpleExp\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> MINUS simpleExp");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -51,7 +52,7 @@ public class AstExpMinus extends AstExp
         if (value  != null) AstGraphviz.getInstance().logEdge(serialNumber,value.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		Type t = value.semantMe();
 		if (t != TypeInt.getInstance())
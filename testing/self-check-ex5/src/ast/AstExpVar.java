@@ -2,6 +2,7 @@ package ast;
 
 import temp.Temp;
 import types.*;
+import diagnostics.*;
 
 public class AstExpVar extends AstExp
 {
@@ -17,7 +18,7 @@ public class AstExpVar extends AstExp
         /******************************/
         serialNumber = AstNodeSerialNumber.getFresh();
 
-        System.out.print("====================== exp -> var\n");
+        Diagnostics.log(Category.PARSER, Level.TRACE, "====================== exp -> var");
         this.value = value;
     }
 
@@ -41,7 +42,7 @@ public class AstExpVar extends AstExp
         AstGraphviz.getInstance().logEdge(serialNumber,value.serialNumber);
     }
 
-    public Type semantMe() throws SemanticException
+    protected Type semantType() throws SemanticException
     {
         return value.semantMe();
     }
@@ -1,5 +1,6 @@
 package ast;
 
+import symboltable.SymbolTable;
 import temp.Temp;
 
 public class AstProgram extends AstNode
@@ -22,6 +23,7 @@ public class AstProgram extends AstNode
 	public void semantMe() throws SemanticException
 	{
 		if (decList != null) decList.semantMe();
+		SymbolTable.getInstance().snapshot("globals");
 	}
 
     public Temp irMe()
@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import types.Type;
 import types.TypeInt;
+import diagnostics.*;
 
 public class AstSimpleExpInt extends AstSimpleExp
 {
@@ -24,7 +25,7 @@ public class AstSimpleExpInt extends AstSimpleExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.format("====================== simpleExp -> INT( %d )\n", value);
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== simpleExp -> INT( %d )", value);
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import ir.Ir;
 import ir.IrCommandConstString;
+import diagnostics.*;
 
 public class AstSimpleExpString extends AstSimpleExp
 {
@@ -24,7 +25,7 @@ public class AstSimpleExpString extends AstSimpleExp
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.format("====================== simpleExp -> STRING( %s )\n", value);
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== simpleExp -> STRING( %s )", value);
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
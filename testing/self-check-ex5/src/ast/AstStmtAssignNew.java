@@ -3,6 +3,7 @@ package ast;
 import types.*;
 import temp.*;
 import ir.*;
+import diagnostics.*;
 
 public class AstStmtAssignNew extends AstStmt
 {
@@ -25,7 +26,7 @@ public class AstStmtAssignNew extends AstStmt
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.print("====================== stmt -> var ASSIGN newExp SEMICOLON\n");
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmt -> var ASSIGN newExp SEMICOLON");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -146,17 +147,8 @@ public class AstStmtAssignNew extends AstStmt
 			AstVarField fieldVar = (AstVarField) var;
 			Temp t_object = fieldVar.var.irMe();
 
-			// Get field offset
-			Type varType = null;
-			try {
-				varType = fieldVar.var.semantMe();
-			} catch (SemanticException e) {
-				System.err.println("Error: semantic analysis failed in irMe()");
-				return null;
-			}
-
-			TypeClass classType = (TypeClass) varType;
-			int fieldOffset = classType.getFieldOffset(fieldVar.fieldName);
+			// Use cached offset from semantic analysis
+			int fieldOffset = fieldVar.getCachedOffset();
 
 			Ir.getInstance().AddIrCommand(new IrCommandFieldStore(t_object, fieldOffset, src, fieldVar.fieldName));
 		}
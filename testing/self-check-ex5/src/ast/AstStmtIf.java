@@ -4,6 +4,7 @@ import ir.*;
 import temp.Temp;
 import types.*;
 import symboltable.*;
+import diagnostics.*;
 
 public class AstStmtIf extends AstStmt
 {
@@ -24,8 +25,8 @@ public class AstStmtIf extends AstStmt
         /***************************************/
         /* PRINT CORRESPONDING DERIVATION RULE */
         /***************************************/
-        if (elseBody != null) {System.out.print("====================== stmt -> IF LPAREN exp RPAREN LBRACE stmtList RBRACE stmtElse\n");}
-        if (elseBody == null) {System.out.print("====================== stmt -> IF LPAREN exp RPAREN LBRACE stmtList RBRACE\n");}
+        if (elseBody != null) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmt -> IF LPAREN exp RPAREN LBRACE stmtList RBRACE stmtElse");}
+        if (elseBody == null) {Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmt -> IF LPAREN exp RPAREN LBRACE stmtList RBRACE");}
 
         /*******************************/
         /* COPY INPUT DATA MEMBERS ... */
@@ -2,6 +2,7 @@ package ast;
 
 import temp.Temp;
 import types.*;
+import diagnostics.*;
 
 public class AstStmtList extends AstNode
 {
@@ -24,8 +25,8 @@ public class AstStmtList extends AstNode
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		if (tail != null) System.out.print("====================== stmts -> stmt stmts\n");
-		if (tail == null) System.out.print("====================== stmts -> stmt      \n");
+		if (tail != null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmts -> stmt stmts");
+		if (tail == null) Diagnostics.log(Category.PARSER, Level.TRACE, "====================== stmts -> stmt      ");
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -6,6 +6,7 @@ import temp.Temp;
 import temp.TempFactory;
 import ir.Ir;
 import ir.IrCommandFieldAccess;
+import diagnostics.*;
 
 public class AstVarField extends AstVar
 {
@@ -27,7 +28,7 @@ public class AstVarField extends AstVar
 		/***************************************/
 		/* PRINT CORRESPONDING DERIVATION RULE */
 		/***************************************/
-		System.out.format("====================== var -> var DOT ID( %s )\n",fieldName);
+		Diagnostics.log(Category.PARSER, Level.TRACE, "====================== var -> var DOT ID( %s )", fieldName);
 
 		/*******************************/
 		/* COPY INPUT DATA MEMBERS ... */
@@ -66,7 +67,7 @@ public class AstVarField extends AstVar
 		if (var != null) AstGraphviz.getInstance().logEdge(serialNumber,var.serialNumber);
 	}
 
-	public Type semantMe() throws SemanticException
+	protected Type semantType() throws SemanticException
 	{
 		/**************************************/
 		/* [1] Get the type of the var prefix */
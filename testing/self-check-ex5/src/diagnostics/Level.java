@@ -0,0 +1,13 @@
+package diagnostics;
+
+/**
+ * Severity of a diagnostic message, from most to least important
+ */
+public enum Level
+{
+    ERROR,
+    WARN,
+    INFO,
+    DEBUG,
+    TRACE
+}
@@ -9,8 +9,22 @@ public class IRcommandConstInt extends IrCommand
 
 	public IRcommandConstInt(Temp t, int value)
 	{
+		super(IrOpcode.CONST_INT);
 		this.t = t;
 		this.value = value;
+
+		this.defs = temps(t);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (t == from) t = to;
+		this.defs = temps(t);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
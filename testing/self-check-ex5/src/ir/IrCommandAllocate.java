@@ -6,9 +6,15 @@ public class IrCommandAllocate extends IrCommand
 
 	public IrCommandAllocate(String varName)
 	{
+		super(IrOpcode.ALLOCATE);
 		this.varName = varName;
 	}
 
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		return String.format("Allocate %s", varName);
@@ -0,0 +1,57 @@
+package ir;
+
+import temp.Temp;
+
+/**
+ * IR Command for passing one call argument on the stack
+ *
+ * Semantics:
+ * - Writes src into outgoing argument 'index' of the next call
+ * - Only for arguments past the register ones (index >= 4); those are
+ *   passed as the CALL_FUNC's own argument temps
+ * - The arguments of a call are all evaluated first, then passed right
+ *   before the CALL_FUNC, so a nested call never overwrites them
+ *
+ * Usage Pattern:
+ *   ARGUMENT index, src
+ *
+ * Example:
+ *   ARGUMENT [4] := Temp_9
+ *   Temp_10 := MOVE Temp_5
+ *   ...
+ *   Temp_14 := f(Temp_10, Temp_11, Temp_12, Temp_13 + 1 on the stack)
+ */
+public class IrCommandArgument extends IrCommand
+{
+	public int index;  // Position of the argument (0 = first parameter)
+	public Temp src;   // Value passed
+
+	public IrCommandArgument(int index, Temp src)
+	{
+		super(IrOpcode.ARGUMENT);
+		this.index = index;
+		this.src = src;
+
+		this.uses = temps(src);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (src == from) src = to;
+		this.uses = temps(src);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		if (src != null) {
+			return String.format("ARGUMENT [%d] := Temp_%d", index, src.getSerialNumber());
+		} else {
+			return String.format("ARGUMENT [%d] := (null)", index);
+		}
+	}
+}
@@ -29,8 +29,29 @@ public class IrCommandArrayLength extends IrCommand
 
 	public IrCommandArrayLength(Temp dst, Temp array)
 	{
+		super(IrOpcode.ARRAY_LENGTH);
 		this.dst = dst;
 		this.array = array;
+
+		this.uses = temps(array);
+		this.defs = temps(dst);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (array == from) array = to;
+		this.uses = temps(array);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
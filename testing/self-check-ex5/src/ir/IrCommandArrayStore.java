@@ -38,10 +38,13 @@ public class IrCommandArrayStore extends IrCommand
 
 	public IrCommandArrayStore(Temp array, Temp index, Temp value, int elementSize)
 	{
+		super(IrOpcode.ARRAY_STORE);
 		this.array = array;
 		this.index = index;
 		this.value = value;
 		this.elementSize = elementSize;
+
+		this.uses = temps(array, index, value);
 	}
 
 	// Simplified constructor assuming 4-byte elements (ints)
@@ -50,6 +53,19 @@ public class IrCommandArrayStore extends IrCommand
 		this(array, index, value, 4);
 	}
 
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (array == from) array = to;
+		if (index == from) index = to;
+		if (value == from) value = to;
+		this.uses = temps(array, index, value);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		String arrayStr = (array != null) ? "Temp_" + array.getSerialNumber() : "(null)";
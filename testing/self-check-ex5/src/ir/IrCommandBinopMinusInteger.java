@@ -9,8 +9,29 @@ public class IrCommandBinopMinusInteger extends IrCommand
 
 	public IrCommandBinopMinusInteger(Temp dst, Temp t)
 	{
+		super(IrOpcode.NEG);
 		this.dst = dst;
 		this.t = t;
+
+		this.uses = temps(t);
+		this.defs = temps(dst);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (t == from) t = to;
+		this.uses = temps(t);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
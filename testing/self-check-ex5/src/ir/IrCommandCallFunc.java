@@ -1,24 +1,62 @@
 package ir;
 
 import temp.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class IrCommandCallFunc extends IrCommand
 {
+	// Arguments passed in $a0-$a3; the others go through ARGUMENT commands
+	public static final int REGISTER_ARGUMENTS = 4;
+
     public String name;
 	public Temp t;
+	public List<Temp> arguments; // register arguments, each precolored with its $a register
+	public int argumentCount;    // register and stack arguments together
 
-	public IrCommandCallFunc(String name, Temp t)
+	public IrCommandCallFunc(String name, Temp t, List<Temp> arguments, int argumentCount)
 	{
+		super(IrOpcode.CALL_FUNC);
         this.name = name;
 		this.t = t;
+		this.arguments = (arguments == null) ? new ArrayList<>() : arguments;
+		this.argumentCount = argumentCount;
+
+		this.uses = temps(this.arguments.toArray(new Temp[0]));
+		this.defs = temps(t);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		arguments.replaceAll(a -> (a == from) ? to : a);
+		this.uses = temps(arguments.toArray(new Temp[0]));
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (t == from) t = to;
+		this.defs = temps(t);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
 	{
+		StringBuilder args = new StringBuilder();
+		for (int i = 0; i < arguments.size(); i++) {
+			if (i > 0) args.append(", ");
+			args.append(String.format("Temp_%d", arguments.get(i).getSerialNumber()));
+		}
+		if (argumentCount > arguments.size()) {
+			args.append(String.format(" + %d on the stack", argumentCount - arguments.size()));
+		}
 		if (t != null) {
-			return String.format("Temp_%d := %s()", t.getSerialNumber(), name);
+			return String.format("Temp_%d := %s(%s)", t.getSerialNumber(), name, args);
 		} else {
-			return String.format("%s()", name);
+			return String.format("%s(%s)", name, args);
 		}
 	}
 }
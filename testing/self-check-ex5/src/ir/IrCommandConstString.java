@@ -23,8 +23,22 @@ public class IrCommandConstString extends IrCommand
 
 	public IrCommandConstString(Temp dst, String value)
 	{
+		super(IrOpcode.CONST_STRING);
 		this.dst = dst;
 		this.value = value;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
@@ -6,9 +6,15 @@ public class IrCommandJumpLabel extends IrCommand
 
 	public IrCommandJumpLabel(String labelName)
 	{
+		super(IrOpcode.JUMP);
 		this.labelName = labelName;
 	}
 
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		return String.format("Jump %s", labelName);
@@ -6,9 +6,15 @@ public class IrCommandLabel extends IrCommand
 
 	public IrCommandLabel(String labelName)
 	{
+		super(IrOpcode.LABEL);
 		this.labelName = labelName;
 	}
 
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		return String.format("%s:", labelName);
@@ -35,10 +35,14 @@ public class IrCommandNewArray extends IrCommand
 
 	public IrCommandNewArray(Temp dst, Temp size, int elementSize, String typeName)
 	{
+		super(IrOpcode.NEW_ARRAY);
 		this.dst = dst;
 		this.size = size;
 		this.elementSize = elementSize;
 		this.typeName = typeName;
+
+		this.uses = temps(size);
+		this.defs = temps(dst);
 	}
 
 	// Simplified constructor for int arrays
@@ -47,6 +51,23 @@ public class IrCommandNewArray extends IrCommand
 		this(dst, size, elementSize, "int");
 	}
 
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (size == from) size = to;
+		this.uses = temps(size);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
 	public String toString()
 	{
 		return String.format("Temp_%d := NEW_ARRAY(%s[Temp_%d], elemSize=%d)",
@@ -22,7 +22,21 @@ public class IrCommandNilConst extends IrCommand
 
 	public IrCommandNilConst(Temp dst)
 	{
+		super(IrOpcode.NIL_CONST);
 		this.dst = dst;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
@@ -0,0 +1,52 @@
+package ir;
+
+import temp.Temp;
+
+/**
+ * IR Command for receiving a register parameter
+ *
+ * Semantics:
+ * - Emitted at the start of a function unit, once per parameter passed
+ *   in a register (the first IrCommandCallFunc.REGISTER_ARGUMENTS ones)
+ * - dst is the argument register itself: the register allocator
+ *   precolors it, so the command generates no code
+ * - dst must be copied (MOVE) into an ordinary temp right away, before
+ *   anything may overwrite the argument registers
+ *
+ * Usage Pattern:
+ *   Temp dst = PARAMETER index
+ *
+ * Example:
+ *   Temp_3 := PARAMETER [0]
+ *   Temp_4 := MOVE Temp_3
+ */
+public class IrCommandParameter extends IrCommand
+{
+	public Temp dst;   // Precolored with the argument register of 'index'
+	public int index;  // Position of the parameter (0 = first)
+
+	public IrCommandParameter(Temp dst, int index)
+	{
+		super(IrOpcode.PARAMETER);
+		this.dst = dst;
+		this.index = index;
+
+		this.defs = temps(dst);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("Temp_%d := PARAMETER [%d]", dst.getSerialNumber(), index);
+	}
+}
@@ -24,7 +24,21 @@ public class IrCommandReturn extends IrCommand
 
 	public IrCommandReturn(Temp returnValue)
 	{
+		super(IrOpcode.RETURN);
 		this.returnValue = returnValue;
+
+		this.uses = temps(returnValue);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (returnValue == from) returnValue = to;
+		this.uses = temps(returnValue);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
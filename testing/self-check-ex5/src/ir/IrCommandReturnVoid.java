@@ -19,7 +19,12 @@ public class IrCommandReturnVoid extends IrCommand
 {
 	public IrCommandReturnVoid()
 	{
-		// No parameters needed
+		super(IrOpcode.RETURN_VOID);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
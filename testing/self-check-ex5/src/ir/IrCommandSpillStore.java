@@ -0,0 +1,47 @@
+package ir;
+
+import temp.Temp;
+
+/**
+ * IR Command for saving a spilled temp
+ *
+ * Semantics:
+ * - Inserted by the register allocator, never by the AST
+ * - Writes src into frame slot 'slot' of the current function
+ *
+ * Usage Pattern:
+ *   SPILL_STORE slot, src
+ *
+ * Example:
+ *   SPILL_STORE [slot 0] := Temp_43
+ */
+public class IrCommandSpillStore extends IrCommand
+{
+	public int slot;  // Frame slot index of the spilled temp
+	public Temp src;  // Fresh temp holding the value just defined
+
+	public IrCommandSpillStore(int slot, Temp src)
+	{
+		super(IrOpcode.SPILL_STORE);
+		this.slot = slot;
+		this.src = src;
+
+		this.uses = temps(src);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (src == from) src = to;
+		this.uses = temps(src);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
+	}
+
+	public String toString()
+	{
+		return String.format("SPILL_STORE [slot %d] := Temp_%d", slot, src.getSerialNumber());
+	}
+}
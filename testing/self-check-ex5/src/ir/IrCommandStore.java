@@ -9,8 +9,22 @@ public class IrCommandStore extends IrCommand
 
 	public IrCommandStore(String varName, Temp src)
 	{
+		super(IrOpcode.STORE);
 		this.src      = src;
 		this.varName = varName;
+
+		this.uses = temps(src);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (src == from) src = to;
+		this.uses = temps(src);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
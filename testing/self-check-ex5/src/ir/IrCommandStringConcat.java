@@ -30,9 +30,31 @@ public class IrCommandStringConcat extends IrCommand
 
 	public IrCommandStringConcat(Temp dst, Temp str1, Temp str2)
 	{
+		super(IrOpcode.STRING_CONCAT);
 		this.dst = dst;
 		this.str1 = str1;
 		this.str2 = str2;
+
+		this.uses = temps(str1, str2);
+		this.defs = temps(dst);
+	}
+
+	public void replaceUse(Temp from, Temp to)
+	{
+		if (str1 == from) str1 = to;
+		if (str2 == from) str2 = to;
+		this.uses = temps(str1, str2);
+	}
+
+	public void replaceDef(Temp from, Temp to)
+	{
+		if (dst == from) dst = to;
+		this.defs = temps(dst);
+	}
+
+	public void accept(IrVisitor visitor)
+	{
+		visitor.visit(this);
 	}
 
 	public String toString()
@@ -0,0 +1,181 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single unit of IR: one function, one method, or the global
+ * initialization code that runs before main.
+ *
+ * Each unit owns its commands, the range of temp serial numbers it
+ * created, its parameter variables, and a table from label name to
+ * command index, so analyses and code generation can work on one
+ * function at a time.
+ *
+ * Layout of the command array:
+ *   [0]        FUNCTION_ENTRY name
+ *   [1..n-2]   body
+ *   [n-1]      FUNCTION_EXIT name
+ */
+public class IrFunction
+{
+	/**
+	 * Name of the unit holding global variable initialization
+	 */
+	public static final String GLOBAL_INIT = "__global_init";
+
+	private final String name;
+	private final List<String> parameters;
+	private IrProgram commands = new IrProgram();
+	private final Map<String, Integer> labels = new HashMap<>();
+	private int frameSlots = 0;
+	private final int firstTemp;
+	private int endTemp;
+	private IrCommandFunctionEntry entry;
+	private IrCommandFunctionExit exit;
+
+	IrFunction(String name, List<String> parameters, int firstTemp)
+	{
+		this.name = name;
+		this.parameters = new ArrayList<>(parameters);
+		this.firstTemp = firstTemp;
+		this.endTemp = firstTemp;
+	}
+
+	void add(IrCommand cmd)
+	{
+		if (cmd instanceof IrCommandLabel)
+		{
+			labels.put(((IrCommandLabel) cmd).labelName, commands.size());
+		}
+		else if (cmd instanceof IrCommandFunctionEntry)
+		{
+			entry = (IrCommandFunctionEntry) cmd;
+		}
+		else if (cmd instanceof IrCommandFunctionExit)
+		{
+			exit = (IrCommandFunctionExit) cmd;
+		}
+		commands.add(cmd);
+	}
+
+	void close(int endTemp)
+	{
+		this.endTemp = endTemp;
+	}
+
+	/**
+	 * Replace the body with a rewritten command sequence (e.g. after the
+	 * register allocator inserted spill code). The label table is rebuilt.
+	 */
+	public void replaceCommands(IrProgram rewritten)
+	{
+		commands = new IrProgram(rewritten.size());
+		labels.clear();
+		for (IrCommand cmd : rewritten)
+		{
+			add(cmd);
+		}
+	}
+
+	/**
+	 * Reserve a new word in this function's stack frame
+	 * @return index of the slot
+	 */
+	public int newFrameSlot()
+	{
+		return frameSlots++;
+	}
+
+	/**
+	 * Number of frame slots reserved so far (spilled temps)
+	 */
+	public int getFrameSlotCount()
+	{
+		return frameSlots;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Variable names of the parameters, in order: argument i of a call
+	 * is the initial value of parameters.get(i)
+	 */
+	public List<String> getParameters()
+	{
+		return Collections.unmodifiableList(parameters);
+	}
+
+	public boolean isGlobalInit()
+	{
+		return GLOBAL_INIT.equals(name);
+	}
+
+	public IrProgram getProgram()
+	{
+		return commands;
+	}
+
+	/**
+	 * Read-only view of this unit's commands (no copy is made)
+	 */
+	public List<IrCommand> getCommands()
+	{
+		return commands.asList();
+	}
+
+	public IrCommandFunctionEntry getEntry()
+	{
+		return entry;
+	}
+
+	public IrCommandFunctionExit getExit()
+	{
+		return exit;
+	}
+
+	/**
+	 * Temps created while generating this unit have serial numbers in
+	 * [getFirstTemp(), getEndTemp()); temps added later by the register
+	 * allocator lie outside this range.
+	 */
+	public int getFirstTemp()
+	{
+		return firstTemp;
+	}
+
+	public int getEndTemp()
+	{
+		return endTemp;
+	}
+
+	public int getTempCount()
+	{
+		return endTemp - firstTemp;
+	}
+
+	/**
+	 * Index of the label command inside this unit, or -1 if the label is not defined here
+	 */
+	public int getLabelIndex(String labelName)
+	{
+		Integer index = labels.get(labelName);
+		return (index == null) ? -1 : index;
+	}
+
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (IrCommand cmd : commands)
+		{
+			sb.append(cmd).append('\n');
+		}
+		return sb.toString();
+	}
+}
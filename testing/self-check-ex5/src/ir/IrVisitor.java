@@ -0,0 +1,48 @@
+package ir;
+
+/**
+ * Visitor over IR commands.
+ *
+ * IrCommand.accept(visitor) calls the overload matching the command's
+ * class, so a pass that handles every kind of command implements this
+ * interface instead of testing each command with instanceof.
+ */
+public interface IrVisitor
+{
+	void visit(IRcommandConstInt cmd);
+	void visit(IrCommandConstString cmd);
+	void visit(IrCommandNilConst cmd);
+	void visit(IrCommandBinopAddIntegers cmd);
+	void visit(IrCommandBinopSubIntegers cmd);
+	void visit(IrCommandBinopMulIntegers cmd);
+	void visit(IrCommandBinopDivIntegers cmd);
+	void visit(IrCommandBinopEqIntegers cmd);
+	void visit(IrCommandBinopLtIntegers cmd);
+	void visit(IrCommandBinopMinusInteger cmd);
+	void visit(IrCommandStringConcat cmd);
+	void visit(IrCommandStringEqual cmd);
+	void visit(IrCommandAllocate cmd);
+	void visit(IrCommandLoad cmd);
+	void visit(IrCommandStore cmd);
+	void visit(IrCommandMove cmd);
+	void visit(IrCommandSpillLoad cmd);
+	void visit(IrCommandSpillStore cmd);
+	void visit(IrCommandNewArray cmd);
+	void visit(IrCommandArrayAccess cmd);
+	void visit(IrCommandArrayStore cmd);
+	void visit(IrCommandArrayLength cmd);
+	void visit(IrCommandNewObject cmd);
+	void visit(IrCommandFieldAccess cmd);
+	void visit(IrCommandFieldStore cmd);
+	void visit(IrCommandParameter cmd);
+	void visit(IrCommandArgument cmd);
+	void visit(IrCommandCallFunc cmd);
+	void visit(IrCommandMethodCall cmd);
+	void visit(IrCommandLabel cmd);
+	void visit(IrCommandJumpLabel cmd);
+	void visit(IrCommandJumpIfEqToZero cmd);
+	void visit(IrCommandReturn cmd);
+	void visit(IrCommandReturnVoid cmd);
+	void visit(IrCommandFunctionEntry cmd);
+	void visit(IrCommandFunctionExit cmd);
+}
@@ -0,0 +1,409 @@
+package mips;
+
+/**
+ * Mark-Sweep Garbage Collector (optional, --gc)
+ *
+ * Runtime routines that let HeapAllocator reuse the memory of blocks no
+ * longer reachable, so programs that keep building and dropping lists,
+ * trees and strings run in bounded memory.
+ *
+ * Heap layout: the chunks obtained from sbrk follow each other (nothing
+ * else calls sbrk), so [__gc_heap_start, __gc_heap_limit) is one run of
+ * blocks. Each block starts with a header word:
+ *
+ *   size (bytes, header included, multiple of 8) | FREE | NOSCAN | MARK
+ *
+ * and the program sees the address just after the header. Free memory
+ * is kept zeroed, so new arrays and objects start out zero.
+ *
+ * Collection is non-moving and conservative, since the code keeps no
+ * stack maps: any word that holds the address of an allocated block
+ * keeps it alive.
+ * 1. Every allocated block gets a bit in __gc_bitmap (one bit per 8
+ *    heap bytes), so a word can be checked cheaply for being a block
+ *    address.
+ * 2. Roots: the registers (the refill pushes them), the stack from $sp
+ *    up to the $sp of the program entry point, and the global variable
+ *    words. Marked blocks are scanned word by word (NOSCAN blocks,
+ *    strings, are not) with a mark stack below $sp.
+ * 3. Sweep: unmarked blocks are zeroed and merged with free neighbours.
+ *
+ * __rt_heap_refill first looks for a free block large enough from the
+ * cursor on; at the end of the heap it collects (once per refill) and
+ * starts over. It grows the heap with sbrk when that fails, or when
+ * more than half the heap was still live after a collection. Past
+ * MAX_HEAP bytes the bitmap cannot cover the heap, so collection is
+ * switched off and the heap only grows.
+ */
+public class GarbageCollector
+{
+    public static final int MARK = 1;
+    public static final int NOSCAN = 2;
+    public static final int FREE = 4;
+
+    static final String GLOBALS_START = "__gc_globals_start";
+    static final String GLOBALS_END = "__gc_globals_end";
+
+    private static final String COLLECT = "__rt_gc_collect";
+    private static final String MARK_WORD = "__rt_gc_mark";
+
+    private static final String HEAP_START = "__gc_heap_start";
+    private static final String HEAP_LIMIT = "__gc_heap_limit";
+    private static final String CURSOR = "__gc_cursor";
+    private static final String STACK_BASE = "__gc_stack_base";
+    private static final String ENABLED = "__gc_collecting";
+    private static final String BITMAP = "__gc_bitmap";
+
+    private static final int MAX_HEAP = 4 * 1024 * 1024;
+    private static final int SAVE_AREA = 84;  // $ra, $a0-$a3, $t0-$t7, $s0-$s7
+
+    private static final String[] SAVED = {
+        "$ra", "$a0", "$a1", "$a2", "$a3",
+        "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7",
+        "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7"
+    };
+
+    private MipsGenerator gen;
+
+    GarbageCollector(MipsGenerator gen)
+    {
+        this.gen = gen;
+    }
+
+    /**
+     * Bytes a block of size bytes takes: header included, multiple of 8
+     */
+    static int blockSize(int size)
+    {
+        return (size + 4 + 7) & ~7;
+    }
+
+    /**
+     * Remember the bottom of the stack (emitted at the program entry point)
+     */
+    void emitInit()
+    {
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$sp", STACK_BASE), "gc: stack roots end here");
+    }
+
+    void emitRoutines()
+    {
+        emitRefill();
+        emitCollect();
+        emitMark();
+    }
+
+    void emitData()
+    {
+        gen.emitData(".align 2");
+        gen.emitData(HEAP_START + ": .word 0");
+        gen.emitData(HEAP_LIMIT + ": .word 0");
+        gen.emitData(CURSOR + ": .word 0");
+        gen.emitData(STACK_BASE + ": .word 0");
+        gen.emitData(ENABLED + ": .word 1");
+        gen.emitData(BITMAP + ": .space " + (MAX_HEAP / 64 + 4));
+    }
+
+    // ==================== Refill ====================
+
+    /**
+     * $a0 = bytes needed (multiple of 8). Leaves a free block of at least
+     * $a0 bytes in [HEAP_PTR, HEAP_END); keeps every register but $t8, $t9 and $v0.
+     */
+    private void emitRefill()
+    {
+        String retired = HeapAllocator.REFILL + "_retired";
+        String search = HeapAllocator.REFILL + "_search";
+        String loop = HeapAllocator.REFILL + "_loop";
+        String next = HeapAllocator.REFILL + "_next";
+        String found = HeapAllocator.REFILL + "_found";
+        String exhausted = HeapAllocator.REFILL + "_exhausted";
+        String grow = HeapAllocator.REFILL + "_grow";
+        String grown = HeapAllocator.REFILL + "_grown";
+        String inRange = HeapAllocator.REFILL + "_in_range";
+
+        gen.beginFunction(HeapAllocator.REFILL);
+        gen.emitLabel(HeapAllocator.REFILL);
+        gen.emitComment("Free block of at least $a0 bytes into [HEAP_PTR, HEAP_END), collecting or growing the heap");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$sp", "$sp", -SAVE_AREA), "registers are roots too");
+        for (int i = 0; i < SAVED.length; i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.SW, SAVED[i], 4 * i, "$sp"));
+        }
+
+        gen.emitComment("What is left of the current chunk becomes a free block");
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t1", HeapAllocator.HEAP_PTR));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t0", HeapAllocator.HEAP_END));
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t0", "$t0", "$t1"));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t0", "$zero", retired));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ORI, "$t0", "$t0", FREE));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t0", 0, "$t1"));
+        gen.emitLabel(retired);
+        gen.emit(MipsInstr.li("$s7", 0), "collected yet");
+        gen.emit(MipsInstr.li("$s6", 0), "grow without moving the cursor");
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t0", HEAP_START));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t0", "$zero", grow), "no heap yet");
+
+        gen.emitComment("First free block from the cursor on that is large enough");
+        gen.emitLabel(search);
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t0", CURSOR));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t1", HEAP_LIMIT));
+        gen.emit(MipsInstr.li("$t3", -8));
+        gen.emitLabel(loop);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t0", "$t1", exhausted));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t2", 0, "$t0"), "header");
+        gen.emit(MipsInstr.op3(MipsOpcode.AND, "$t4", "$t2", "$t3"), "size");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t5", "$t2", FREE));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t5", "$zero", next));
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t4", "$a0", found));
+        gen.emitLabel(next);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t0", "$t0", "$t4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, loop));
+
+        gen.emitLabel(found);
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t0", HeapAllocator.HEAP_PTR));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t1", "$t0", "$t4"));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t1", HeapAllocator.HEAP_END));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t1", CURSOR));
+        for (int i = 0; i < SAVED.length; i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.LW, SAVED[i], 4 * i, "$sp"));
+        }
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$sp", "$sp", SAVE_AREA));
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+
+        gen.emitLabel(exhausted);
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$s7", "$zero", grow));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t0", ENABLED));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t0", "$zero", grow));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, COLLECT), "$v0 = live bytes");
+        gen.emit(MipsInstr.li("$s7", 1));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t0", HEAP_START));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t0", CURSOR));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t1", HEAP_LIMIT));
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t1", "$t1", "$t0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t1", "$t1", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t1", "$v0", search), "at most half the heap live");
+        gen.emit(MipsInstr.li("$s6", 1));
+
+        gen.emitComment("Add a chunk of max($a0, CHUNK) bytes at the end of the heap");
+        gen.emitLabel(grow);
+        gen.emit(MipsInstr.li("$t0", HeapAllocator.CHUNK_SIZE));
+        gen.emit(MipsInstr.op3(MipsOpcode.SLTU, "$t1", "$t0", "$a0"));
+        gen.emit(MipsInstr.op3(MipsOpcode.MOVN, "$t0", "$a0", "$t1"));
+        gen.emit(MipsInstr.move("$t2", "$a0"));
+        gen.emit(MipsInstr.move("$a0", "$t0"));
+        gen.emit(MipsInstr.li("$v0", 9), "sbrk");
+        gen.emit(MipsInstr.syscall());
+        gen.emit(MipsInstr.move("$a0", "$t2"));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t1", HEAP_START));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t1", "$zero", grown));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$v0", HEAP_START));
+        gen.emit(MipsInstr.move("$t1", "$v0"));
+        gen.emitLabel(grown);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t2", "$v0", "$t0"));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t2", HEAP_LIMIT));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ORI, "$t3", "$t0", FREE));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t3", 0, "$v0"), "the new chunk is one free block");
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t2", "$t2", "$t1"));
+        gen.emit(MipsInstr.li("$t3", MAX_HEAP));
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t3", "$t2", inRange));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$zero", ENABLED), "the bitmap no longer covers the heap");
+        gen.emitLabel(inRange);
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$s6", "$zero", search));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$v0", CURSOR));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, search));
+        gen.emitBlankLine();
+    }
+
+    // ==================== Collection ====================
+
+    /**
+     * Mark from the roots, then sweep. $v0 = bytes still live.
+     * Keeps $a0, $s0, $s6 and $s7 (the refill saved everything else).
+     */
+    private void emitCollect()
+    {
+        String clear = COLLECT + "_clear";
+        String bits = COLLECT + "_bits";
+        String bitsNext = COLLECT + "_bits_next";
+        String roots = COLLECT + "_roots";
+        String stack = COLLECT + "_stack";
+        String globals = COLLECT + "_globals";
+        String global = COLLECT + "_global";
+        String drain = COLLECT + "_drain";
+        String fields = COLLECT + "_fields";
+        String sweep = COLLECT + "_sweep";
+        String sweepLoop = COLLECT + "_sweep_loop";
+        String dead = COLLECT + "_dead";
+        String zero = COLLECT + "_zero";
+        String free = COLLECT + "_free";
+        String run = COLLECT + "_run";
+        String next = COLLECT + "_next";
+        String done = COLLECT + "_done";
+
+        gen.beginFunction(COLLECT);
+        gen.emitLabel(COLLECT);
+        gen.emit(MipsInstr.move("$a3", "$ra"), "__rt_gc_mark overwrites $ra");
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$s1", HEAP_START));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$s2", HEAP_LIMIT));
+        gen.emit(MipsInstr.la("$s3", BITMAP));
+
+        gen.emitComment("Clear the bitmap words the heap uses (one word per 256 bytes)");
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t0", "$s2", "$s1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t0", "$t0", 8));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t0", "$t0", 1));
+        gen.emit(MipsInstr.move("$t1", "$s3"));
+        gen.emitLabel(clear);
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$zero", 0, "$t1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t1", "$t1", 4));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t0", "$t0", -1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t0", "$zero", clear));
+
+        gen.emitComment("Set the bit of every allocated block");
+        gen.emit(MipsInstr.move("$t0", "$s1"));
+        gen.emit(MipsInstr.li("$t3", -8));
+        gen.emitLabel(bits);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t0", "$s2", roots));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t2", 0, "$t0"));
+        gen.emit(MipsInstr.op3(MipsOpcode.AND, "$t4", "$t2", "$t3"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t5", "$t2", FREE));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t5", "$zero", bitsNext));
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t6", "$t0", "$s1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t6", "$t6", 3), "bit index");
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t7", "$t6", 5));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SLL, "$t7", "$t7", 2));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t7", "$t7", "$s3"), "bitmap word");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t6", "$t6", 31));
+        gen.emit(MipsInstr.li("$t8", 1));
+        gen.emit(MipsInstr.op3(MipsOpcode.SLLV, "$t8", "$t8", "$t6"));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t9", 0, "$t7"));
+        gen.emit(MipsInstr.op3(MipsOpcode.OR, "$t9", "$t9", "$t8"));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t9", 0, "$t7"));
+        gen.emitLabel(bitsNext);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t0", "$t0", "$t4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, bits));
+
+        gen.emitComment("Mark from the stack (saved registers included) and the globals");
+        gen.emitLabel(roots);
+        gen.emit(MipsInstr.move("$a1", "$sp"), "mark stack top");
+        gen.emit(MipsInstr.move("$a2", "$sp"), "mark stack bottom");
+        gen.emit(MipsInstr.move("$s4", "$sp"));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$s5", STACK_BASE));
+        gen.emitLabel(stack);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$s4", "$s5", globals));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t0", 0, "$s4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, MARK_WORD));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$s4", "$s4", 4));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, stack));
+        gen.emitLabel(globals);
+        gen.emit(MipsInstr.la("$s4", GLOBALS_START));
+        gen.emit(MipsInstr.la("$s5", GLOBALS_END));
+        gen.emitLabel(global);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$s4", "$s5", drain));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t0", 0, "$s4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, MARK_WORD));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$s4", "$s4", 4));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, global));
+
+        gen.emitComment("Scan the blocks on the mark stack");
+        gen.emitLabel(drain);
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$a1", "$a2", sweep));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$s4", 0, "$a1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a1", "$a1", 4));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t0", -4, "$s4"), "header");
+        gen.emit(MipsInstr.li("$t3", -8));
+        gen.emit(MipsInstr.op3(MipsOpcode.AND, "$t0", "$t0", "$t3"));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$s5", "$s4", "$t0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$s5", "$s5", -4), "end of the block");
+        gen.emitLabel(fields);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$s4", "$s5", drain));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t0", 0, "$s4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, MARK_WORD));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$s4", "$s4", 4));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, fields));
+
+        gen.emitComment("Sweep: unmark live blocks, zero and merge the others");
+        gen.emitLabel(sweep);
+        gen.emit(MipsInstr.move("$t0", "$s1"));
+        gen.emit(MipsInstr.li("$v0", 0), "live bytes");
+        gen.emit(MipsInstr.li("$s4", 0), "free block being extended");
+        gen.emit(MipsInstr.li("$t3", -8));
+        gen.emitLabel(sweepLoop);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t0", "$s2", done));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t2", 0, "$t0"));
+        gen.emit(MipsInstr.op3(MipsOpcode.AND, "$t4", "$t2", "$t3"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t5", "$t2", FREE));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t5", "$zero", free));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t5", "$t2", MARK));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t5", "$zero", dead));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t2", "$t2", -MARK));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t2", 0, "$t0"));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$v0", "$v0", "$t4"));
+        gen.emit(MipsInstr.li("$s4", 0));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, next));
+        gen.emitLabel(dead);
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t6", "$t0", 4));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t7", "$t0", "$t4"));
+        gen.emitLabel(zero);
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t6", "$t7", free));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$zero", 0, "$t6"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t6", "$t6", 4));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, zero));
+        gen.emitLabel(free);
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$s4", "$zero", run));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t6", 0, "$s4"));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t6", "$t6", "$t4"));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t6", 0, "$s4"), "merge into the previous free block");
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$zero", 0, "$t0"));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, next));
+        gen.emitLabel(run);
+        gen.emit(MipsInstr.move("$s4", "$t0"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ORI, "$t6", "$t4", FREE));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t6", 0, "$t0"));
+        gen.emitLabel(next);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t0", "$t0", "$t4"));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, sweepLoop));
+        gen.emitLabel(done);
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$a3"));
+        gen.emitBlankLine();
+    }
+
+    /**
+     * $t0 = a word that may hold a block address. Marks the block if it
+     * is one and pushes it on the mark stack ($a1) unless NOSCAN.
+     * Uses $t1-$t3.
+     */
+    private void emitMark()
+    {
+        String ret = MARK_WORD + "_ret";
+
+        gen.beginFunction(MARK_WORD);
+        gen.emitLabel(MARK_WORD);
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t1", "$t0", -4), "header address");
+        gen.emit(MipsInstr.branch(MipsOpcode.BLTU, "$t1", "$s1", ret), "outside the heap");
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, "$t1", "$s2", ret));
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, "$t2", "$t1", "$s1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t3", "$t2", 7));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t3", "$zero", ret), "not on a block boundary");
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t2", "$t2", 3));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$t3", "$t2", 5));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SLL, "$t3", "$t3", 2));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t3", "$t3", "$s3"));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t3", 0, "$t3"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t2", "$t2", 31));
+        gen.emit(MipsInstr.op3(MipsOpcode.SRLV, "$t3", "$t3", "$t2"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t3", "$t3", 1));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, "$t3", "$zero", ret), "not an allocated block");
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t2", 0, "$t1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t3", "$t2", MARK));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t3", "$zero", ret), "already marked");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ORI, "$t2", "$t2", MARK));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t2", 0, "$t1"));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ANDI, "$t3", "$t2", NOSCAN));
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, "$t3", "$zero", ret));
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a1", "$a1", -4), "push");
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$t0", 0, "$a1"));
+        gen.emitLabel(ret);
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        gen.emitBlankLine();
+    }
+}
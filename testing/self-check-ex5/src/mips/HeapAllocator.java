@@ -0,0 +1,264 @@
+package mips;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bump-Pointer Heap Allocator
+ *
+ * Objects, arrays and strings are carved out of chunks obtained from
+ * sbrk (syscall 9) instead of one syscall per allocation. The free part
+ * of the current chunk is [HEAP_PTR, HEAP_END), two words of the data
+ * section. (Not $k0/$k1: those belong to the kernel, and SPIM's trap
+ * handler overwrites them on any exception or interrupt.) An allocation
+ * of a word-multiple size is, inline:
+ *
+ * retry:
+ *   lw   $v0, HEAP_PTR             # the block
+ *   addi $t8, $v0, size            # new top
+ *   lw   $t9, HEAP_END
+ *   bgtu $t8, $t9, slow            # chunk exhausted?
+ *   sw   $t8, HEAP_PTR
+ *
+ * The slow path is a stub emitted after the function's code (see
+ * emitSlowPaths) that passes the size in $a0 to __rt_heap_refill and
+ * jumps back to retry, which then succeeds. The refill routine makes
+ * [HEAP_PTR, HEAP_END) a fresh chunk of at least CHUNK_SIZE bytes; what
+ * was left of the old chunk is abandoned.
+ *
+ * With collection on (see GarbageCollector) every block gets a header
+ * word, sizes are rounded to 8 bytes, and the refill reuses the free
+ * blocks of the last collection before it grows the heap:
+ *
+ * retry:
+ *   lw   $v0, HEAP_PTR
+ *   addi $t8, $v0, total           # header included
+ *   lw   $t9, HEAP_END
+ *   bgtu $t8, $t9, slow
+ *   sw   $t8, HEAP_PTR
+ *   li   $t9, header               # total | flags
+ *   sw   $t9, 0($v0)
+ *   addi $v0, $v0, 4
+ *
+ * Every allocation site only writes $a0, $t8, $t9 and $v0; the stub's
+ * jal overwrites $ra, which every function has already saved in its
+ * prologue.
+ */
+public class HeapAllocator
+{
+    // Data words: the next free byte and the end of the current chunk
+    public static final String HEAP_PTR = "__heap_ptr";
+    public static final String HEAP_END = "__heap_end";
+    public static final String REFILL = "__rt_heap_refill";
+
+    static final int CHUNK_SIZE = 65536;
+
+    private MipsGenerator gen;
+    private GarbageCollector collector = null;  // null: blocks are never freed
+    private boolean used = false;
+
+    // Slow-path stubs of the current function, emitted after its code
+    private List<SlowPath> pending = new ArrayList<>();
+
+    private static class SlowPath
+    {
+        final String label;
+        final String retry;
+        final int size;  // 0: the size is already in $a0
+
+        SlowPath(String label, String retry, int size)
+        {
+            this.label = label;
+            this.retry = retry;
+            this.size = size;
+        }
+    }
+
+    public HeapAllocator(MipsGenerator gen)
+    {
+        this.gen = gen;
+    }
+
+    /**
+     * Give blocks headers and reclaim unreachable ones (see GarbageCollector)
+     */
+    public void setCollecting(boolean collecting)
+    {
+        this.collector = collecting ? new GarbageCollector(gen) : null;
+    }
+
+    public boolean isCollecting()
+    {
+        return collector != null;
+    }
+
+    /**
+     * Emitted at the program entry point. The heap starts as an empty
+     * chunk (both words are 0), so the first allocation refills.
+     */
+    public void emitInit()
+    {
+        if (collector != null) {
+            collector.emitInit();
+        }
+    }
+
+    /**
+     * Allocate a constant number of bytes (a multiple of 4) into $v0
+     */
+    public void emitAlloc(int size)
+    {
+        int total = (collector != null) ? GarbageCollector.blockSize(size) : size;
+        String retry = beginAlloc(total);
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$t8", "$v0", total), "heap: new top");
+        emitBump(retry, total, null);
+    }
+
+    /**
+     * Allocate $a0 bytes (a multiple of 4) into $v0
+     */
+    public void emitAllocWords()
+    {
+        if (collector != null) {
+            emitRoundUp(4, 8);
+        }
+        String retry = beginAlloc(0);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t8", "$v0", "$a0"), "heap: new top");
+        emitBump(retry, 0, null);
+    }
+
+    /**
+     * Allocate $a0 bytes of data that holds no pointers (a string) into $v0
+     */
+    public void emitAllocBytes()
+    {
+        if (collector != null) {
+            emitRoundUp(4, 8);
+        } else {
+            emitRoundUp(0, 4);
+        }
+        String retry = beginAlloc(0);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t8", "$v0", "$a0"), "heap: new top");
+        emitBump(retry, 0, GarbageCollector.NOSCAN);
+    }
+
+    /**
+     * $a0 = (header + $a0) rounded up to a multiple of unit (4 or 8)
+     */
+    private void emitRoundUp(int header, int unit)
+    {
+        int shift = (unit == 8) ? 3 : 2;
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a0", "$a0", header + unit - 1));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SRL, "$a0", "$a0", shift));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SLL, "$a0", "$a0", shift), "heap blocks stay aligned");
+    }
+
+    /**
+     * Emit the retry label and load the current top into $v0
+     */
+    private String beginAlloc(int size)
+    {
+        used = true;
+        String retry = gen.getFreshLabel("alloc_retry");
+        pending.add(new SlowPath(gen.getFreshLabel("alloc_slow"), retry, size));
+        gen.emitLabel(retry);
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$v0", HEAP_PTR));
+        return retry;
+    }
+
+    /**
+     * The rest of the fast path, once $t8 holds the new top.
+     * flags: header flags for a register size (collecting only)
+     */
+    private void emitBump(String retry, int total, Integer flags)
+    {
+        SlowPath path = pending.get(pending.size() - 1);
+        gen.emit(MipsInstr.memLabel(MipsOpcode.LW, "$t9", HEAP_END));
+        gen.emit(MipsInstr.branch(MipsOpcode.BGTU, "$t8", "$t9", path.label), "chunk exhausted");
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t8", HEAP_PTR));
+        if (collector != null) {
+            String header = "$a0";
+            if (total != 0) {
+                gen.emit(MipsInstr.li("$t9", total));
+                header = "$t9";
+            } else if (flags != null) {
+                gen.emit(MipsInstr.opImm(MipsOpcode.ORI, "$t9", "$a0", flags));
+                header = "$t9";
+            }
+            gen.emit(MipsInstr.mem(MipsOpcode.SW, header, 0, "$v0"), "block header");
+            gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$v0", "$v0", 4));
+        }
+    }
+
+    /**
+     * Emit the slow paths of the allocations since the last call.
+     * Must follow an instruction that does not fall through.
+     */
+    public void emitSlowPaths()
+    {
+        for (SlowPath path : pending) {
+            gen.emitLabel(path.label);
+            if (path.size != 0) {
+                gen.emit(MipsInstr.li("$a0", path.size));
+            }
+            gen.emit(MipsInstr.jump(MipsOpcode.JAL, REFILL));
+            gen.emit(MipsInstr.jump(MipsOpcode.J, path.retry));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Emit the refill routine if anything was allocated
+     */
+    public void emitRoutines()
+    {
+        if (collector != null) {
+            collector.emitData();  // the entry point stores its $sp there
+        }
+        if (!used) {
+            return;
+        }
+        gen.emitData(".align 2");
+        gen.emitData(HEAP_PTR + ": .word 0");
+        gen.emitData(HEAP_END + ": .word 0");
+        if (collector != null) {
+            collector.emitRoutines();
+            return;
+        }
+
+        gen.beginFunction(REFILL);
+        gen.emitLabel(REFILL);
+        gen.emitComment("New chunk of at least $a0 bytes (keeps $a0, uses $t8, $t9)");
+        gen.emit(MipsInstr.move("$t9", "$a0"));
+        gen.emit(MipsInstr.li("$a0", CHUNK_SIZE));
+        gen.emit(MipsInstr.op3(MipsOpcode.SLTU, "$t8", "$a0", "$t9"));
+        gen.emit(MipsInstr.op3(MipsOpcode.MOVN, "$a0", "$t9", "$t8"), "larger than a chunk");
+        gen.emit(MipsInstr.li("$v0", 9), "sbrk");
+        gen.emit(MipsInstr.syscall());
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$v0", HEAP_PTR));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t8", "$v0", "$a0"));
+        gen.emit(MipsInstr.memLabel(MipsOpcode.SW, "$t8", HEAP_END));
+        gen.emit(MipsInstr.move("$a0", "$t9"));
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        gen.emitBlankLine();
+    }
+
+    /**
+     * Label the globals (roots of the collector) if collecting;
+     * called around the global variable words of the data section
+     */
+    public void emitGlobalsStart()
+    {
+        if (collector != null) {
+            gen.emitData(".align 2");
+            gen.emitData(GarbageCollector.GLOBALS_START + ":");
+        }
+    }
+
+    public void emitGlobalsEnd()
+    {
+        if (collector != null) {
+            gen.emitData(GarbageCollector.GLOBALS_END + ":");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package mips;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The instructions of one piece of the text section: a function, the
+ * program entry point, a library routine or the error handlers.
+ * Control never falls from one piece into the next, so passes may
+ * rewrite each list on its own.
+ */
+public class MipsFunction
+{
+    private final String name;
+    private List<MipsInstr> instructions = new ArrayList<>();
+
+    public MipsFunction(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<MipsInstr> getInstructions()
+    {
+        return instructions;
+    }
+
+    /**
+     * Replace the instruction list (used by rewriting passes)
+     */
+    public void setInstructions(List<MipsInstr> instructions)
+    {
+        this.instructions = instructions;
+    }
+
+    void add(MipsInstr instr)
+    {
+        instructions.add(instr);
+    }
+}
@@ -14,7 +14,7 @@ import java.util.*;
  *
  * Usage:
  *   MipsTranslator translator = new MipsTranslator("output.s");
- *   translator.translate(irCommands, registerAllocation);
+ *   translator.translate(ir.getFunctions(), ir.getVtables(), registerAllocation);
  *   translator.close();
  */
 public class MipsTranslator
@@ -22,31 +22,38 @@ public class MipsTranslator
     private MipsGenerator gen;
     private RuntimeChecks checks;
     private SaturationArithmetic sat;
+    private StringRuntime stringRuntime;
+    private HeapAllocator heap;
     private StringTable strings;
     private RegisterAllocation regAlloc;
-    private Set<String> allocatedVars = new HashSet<>();
+    private PeepholeOptimizer peephole = new PeepholeOptimizer();
 
-    // Stack-based locals support
+    // Variables: globals are words in .data, parameters and locals live in the frame
     private Set<String> globalVars = new HashSet<>();
-    private Map<String, Map<String, Integer>> functionLocals = new HashMap<>();  // func -> {varName -> offset}
+    private Map<IrFunction, Map<String, Integer>> frameOffsets = new HashMap<>();  // unit -> {varName -> $fp offset}
+    private Map<String, Integer> currentFrameOffsets = new HashMap<>();
+    private Set<String> currentLoadedVars = new HashSet<>();  // variables the current unit reads
     private String currentFunction = null;
+    private IrFunction currentUnit = null;
     private int currentStackSize = 0;
+    private List<String> currentSavedRegs = new ArrayList<>();  // callee-saved registers used by the unit
 
-    // Track which globals each function uses (for callee-save)
-    private Map<String, Set<String>> functionGlobals = new HashMap<>();  // func -> set of global vars used
+    // Frame layout of the current unit, as byte offsets from $sp
+    private int currentLinkOffset = 0;        // saved $fp, then $ra
+    private int currentCallerSaveOffset = 0;  // caller-saved registers live across a call
 
-    // For lookahead in translateStore
-    private List<IrCommand> currentCommands = null;
-    private int currentCommandIndex = -1;
+    // Library routines emitted below touch only $a0 and $v0
+    private static final Set<String> LEAF_ROUTINES = new HashSet<>(Arrays.asList("PrintInt", "PrintString"));
 
-    // Track variables saved before store-then-call patterns
-    private Stack<String> savedGlobalVars = new Stack<>();
+    private final IrVisitor dispatcher = new CommandDispatcher();
 
     public MipsTranslator(String outputFile) throws IOException
     {
         this.gen = new MipsGenerator(outputFile);
         this.checks = new RuntimeChecks(gen);
         this.sat = new SaturationArithmetic(gen);
+        this.heap = new HeapAllocator(gen);
+        this.stringRuntime = new StringRuntime(gen, heap);
         this.strings = new StringTable();
     }
 
@@ -65,64 +72,63 @@ public class MipsTranslator
     /**
      * Main translation method
      */
-    public void translate(List<IrCommand> commands, RegisterAllocation allocation)
+    public void translate(List<IrFunction> functions, Map<String, List<String>> vtables,
+                          RegisterAllocation allocation)
     {
         this.regAlloc = allocation;
-        this.currentCommands = commands;  // Store for lookahead in translateStore
 
-        // Check if allocation succeeded
-        if (!allocation.isSuccess()) {
-            System.err.println("Register Allocation Failed");
-            System.exit(1);
-        }
-
-        // Step 1: Collect all string literals and allocated variables
-        collectStrings(commands);
-        collectAllocatedVars(commands);
+        // Step 1: Collect all string literals and place all variables
+        collectStrings(functions);
+        collectVariables(functions);
 
-        // Step 2: Emit strings and variables to data section
+        // Step 2: Emit strings, global variables and dispatch tables to data section
         strings.emitAllStrings(gen);
-        emitAllocatedVars();
-
-        // Step 3: Emit entry point and global initialization
-        gen.emitLabel("main");
-
-        // Translate commands until we hit the first label (function or main)
-        // This executes global initialization code
-        int firstLabelIndex = -1;
-        for (int i = 0; i < commands.size(); i++) {
-            if (commands.get(i) instanceof IrCommandLabel) {
-                firstLabelIndex = i;
-                break;
+        emitGlobalVars();
+        emitVtables(vtables);
+
+        // Step 3: Translate each function unit.
+        // The global init unit comes first and holds the program entry point.
+        for (IrFunction function : functions) {
+            currentUnit = function;
+            currentFrameOffsets = frameOffsets.get(function);
+            currentLoadedVars = loadedVariables(function);
+            for (IrCommand cmd : function.getProgram()) {
+                translateCommand(cmd);
             }
         }
 
-        // Execute global init code (before first label)
-        if (firstLabelIndex > 0) {
-            for (int i = 0; i < firstLabelIndex; i++) {
-                currentCommandIndex = i;
-                translateCommand(commands.get(i));
-            }
-        }
+        // Step 4: Emit error handlers, library functions and the string routines used
+        gen.emitAllErrorHandlers();
+        emitLibraryFunctions();
+        stringRuntime.emitRoutines();
+        heap.emitRoutines();
 
-        // Jump to __user_main after global init
-        gen.emit("j __user_main", "Jump to main function");
+        // Step 5: Clean up the emitted code
+        peephole.run(gen.getFunctions());
+    }
 
-        // Step 4: Translate remaining commands (functions and main)
-        for (int i = firstLabelIndex >= 0 ? firstLabelIndex : 0; i < commands.size(); i++) {
-            currentCommandIndex = i;
-            translateCommand(commands.get(i));
-        }
+    /**
+     * The peephole pass run by translate (for its report)
+     */
+    public PeepholeOptimizer getPeephole()
+    {
+        return peephole;
+    }
 
-        // Add explicit exit after main completes (before error handlers)
-        gen.emitComment("Exit program");
-        gen.emit("li $v0, 10");
-        gen.emit("syscall");
-        gen.emitBlankLine();
+    /**
+     * Reclaim unreachable heap blocks at run time (see GarbageCollector)
+     */
+    public void setGarbageCollection(boolean collect)
+    {
+        heap.setCollecting(collect);
+    }
 
-        // Step 5: Emit error handlers and library functions
-        gen.emitAllErrorHandlers();
-        emitLibraryFunctions();
+    /**
+     * Keep the separate sign and length tests in array bounds checks
+     */
+    public void setLegacyBoundsCheck(boolean legacy)
+    {
+        checks.setLegacyBoundsCheck(legacy);
     }
 
     /**
@@ -131,139 +137,127 @@ public class MipsTranslator
     private void emitLibraryFunctions()
     {
         // PrintInt - prints integer and space
+        gen.beginFunction("PrintInt");
         gen.emitLabel("PrintInt");
-        gen.emitComment("Print integer (expects value in p_10 variable)");
-        gen.emit("lw $a0, p_10", "load value to print");
-        gen.emit("li $v0, 1", "syscall: print_int");
-        gen.emit("syscall");
-        gen.emit("li $a0, 32", "print space");
-        gen.emit("li $v0, 11", "syscall: print_char");
-        gen.emit("syscall");
-        gen.emit("jr $ra", "return");
+        gen.emitComment("Print integer (expects value in $a0)");
+        gen.emit(MipsInstr.li("$v0", 1), "syscall: print_int");
+        gen.emit(MipsInstr.syscall());
+        gen.emit(MipsInstr.li("$a0", 32), "print space");
+        gen.emit(MipsInstr.li("$v0", 11), "syscall: print_char");
+        gen.emit(MipsInstr.syscall());
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"), "return");
         gen.emitBlankLine();
 
-        // PrintString - prints string (expects value in p_10 variable)
+        // PrintString - prints string (expects address in argument 0)
+        gen.beginFunction("PrintString");
         gen.emitLabel("PrintString");
-        gen.emitComment("Print string (expects value in p_10 variable)");
-        gen.emit("lw $a0, p_10", "load string address to print");
-        gen.emit("li $v0, 4", "syscall: print_string");
-        gen.emit("syscall");
-        gen.emit("jr $ra", "return");
+        gen.emitComment("Print string (expects address in $a0)");
+        gen.emit(MipsInstr.li("$v0", 4), "syscall: print_string");
+        gen.emit(MipsInstr.syscall());
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"), "return");
+        gen.emitBlankLine();
     }
 
     /**
      * Collect all string literals from IR
      */
-    private void collectStrings(List<IrCommand> commands)
+    private void collectStrings(List<IrFunction> functions)
     {
-        for (IrCommand cmd : commands) {
-            if (cmd instanceof IrCommandConstString) {
-                IrCommandConstString strCmd = (IrCommandConstString) cmd;
-                strings.addString(strCmd.value);
+        for (IrFunction function : functions) {
+            for (IrCommand cmd : function.getProgram()) {
+                if (cmd.opcode == IrOpcode.CONST_STRING) {
+                    strings.addString(((IrCommandConstString) cmd).value);
+                }
             }
         }
     }
 
     /**
-     * Collect all allocated variables from IR
-     * Classify them as global or local (per-function)
+     * Decide where every variable lives.
+     * Parameters and variables declared (ALLOCATE) inside a function unit
+     * get a $fp-relative slot in its frame; every other variable (those of
+     * the global init unit) is a global word in the data section.
      */
-    private void collectAllocatedVars(List<IrCommand> commands)
-    {
-        String currentFunc = null;
-
-        for (IrCommand cmd : commands) {
-            // Track which function we're in
-            // Only consider it a function if it's NOT a jump label (which start with "Label_")
-            if (cmd instanceof IrCommandLabel) {
-                IrCommandLabel labelCmd = (IrCommandLabel) cmd;
-                String labelName = labelCmd.labelName;
-
-                // Function labels: main, fib, BubbleSort, etc.
-                // Jump labels: Label_1_end, Label_0_start, etc. (start with "Label_")
-                if (!labelName.isEmpty() && !labelName.startsWith("Label_")) {
-                    currentFunc = labelName;
-                    if (!functionLocals.containsKey(currentFunc)) {
-                        functionLocals.put(currentFunc, new HashMap<>());
-                    }
-                    if (!functionGlobals.containsKey(currentFunc)) {
-                        functionGlobals.put(currentFunc, new HashSet<>());
-                    }
+    private void collectVariables(List<IrFunction> functions)
+    {
+        for (IrFunction function : functions) {
+            Map<String, Integer> offsets = new HashMap<>();
+
+            if (!function.isGlobalInit()) {
+                List<String> params = function.getParameters();
+                for (int i = 0; i < params.size(); i++) {
+                    offsets.put(params.get(i), argumentOffset(i));
                 }
-            }
 
-            // Collect variable names
-            if (cmd instanceof IrCommandAllocate) {
-                IrCommandAllocate allocCmd = (IrCommandAllocate) cmd;
-                allocatedVars.add(allocCmd.varName);
-
-                // Variables starting with p_ are library function parameters (globals)
-                // If we're inside a function and it's not a p_ variable, it's local
-                if (currentFunc != null && !allocCmd.varName.startsWith("p_")) {
-                    Map<String, Integer> locals = functionLocals.get(currentFunc);
-                    if (!locals.containsKey(allocCmd.varName)) {
-                        // Assign stack offset: -12, -16, -20, ...
-                        // First two words are for $ra and $fp
-                        int offset = -12 - (locals.size() * 4);
-                        locals.put(allocCmd.varName, offset);
+                int locals = 0;
+                for (IrCommand cmd : function.getProgram()) {
+                    if (cmd.opcode == IrOpcode.ALLOCATE) {
+                        String varName = ((IrCommandAllocate) cmd).varName;
+                        if (!offsets.containsKey(varName)) {
+                            offsets.put(varName, localOffset(function, locals++));
+                        }
                     }
-                } else {
-                    globalVars.add(allocCmd.varName);
                 }
             }
-            else if (cmd instanceof IrCommandLoad) {
-                IrCommandLoad loadCmd = (IrCommandLoad) cmd;
-                allocatedVars.add(loadCmd.varName);
-
-                // If not allocated yet, decide if global or local
-                // p_ variables are always global
-                if (currentFunc != null && !globalVars.contains(loadCmd.varName) && !loadCmd.varName.startsWith("p_")) {
-                    Map<String, Integer> locals = functionLocals.get(currentFunc);
-                    if (!locals.containsKey(loadCmd.varName)) {
-                        int offset = -12 - (locals.size() * 4);
-                        locals.put(loadCmd.varName, offset);
-                    }
-                } else if (currentFunc == null || loadCmd.varName.startsWith("p_")) {
-                    globalVars.add(loadCmd.varName);
-                }
+            frameOffsets.put(function, offsets);
 
-                // Track global usage by function (excluding p_ which are for library calls)
-                if (currentFunc != null && !loadCmd.varName.startsWith("p_")) {
-                    functionGlobals.get(currentFunc).add(loadCmd.varName);
+            for (IrCommand cmd : function.getProgram()) {
+                String varName = variableOf(cmd);
+                if (varName != null && !offsets.containsKey(varName)) {
+                    globalVars.add(varName);
                 }
             }
-            else if (cmd instanceof IrCommandStore) {
-                IrCommandStore storeCmd = (IrCommandStore) cmd;
-                allocatedVars.add(storeCmd.varName);
-
-                // If not allocated yet, decide if global or local
-                // p_ variables are always global
-                if (currentFunc != null && !globalVars.contains(storeCmd.varName) && !storeCmd.varName.startsWith("p_")) {
-                    Map<String, Integer> locals = functionLocals.get(currentFunc);
-                    if (!locals.containsKey(storeCmd.varName)) {
-                        int offset = -12 - (locals.size() * 4);
-                        locals.put(storeCmd.varName, offset);
-                    }
-                } else if (currentFunc == null || storeCmd.varName.startsWith("p_")) {
-                    globalVars.add(storeCmd.varName);
-                }
+        }
+    }
 
-                // Track global usage by function (excluding p_ which are for library calls)
-                if (currentFunc != null && !storeCmd.varName.startsWith("p_")) {
-                    functionGlobals.get(currentFunc).add(storeCmd.varName);
-                }
+    /**
+     * Variables loaded anywhere in a unit
+     */
+    private static Set<String> loadedVariables(IrFunction function)
+    {
+        Set<String> loaded = new HashSet<>();
+        for (IrCommand cmd : function.getProgram()) {
+            if (cmd.opcode == IrOpcode.LOAD) {
+                loaded.add(((IrCommandLoad) cmd).varName);
             }
         }
+        return loaded;
     }
 
     /**
-     * Emit all allocated variables to .data section
+     * Variable named by an ALLOCATE, LOAD or STORE command, null for any other command
      */
-    private void emitAllocatedVars()
+    private static String variableOf(IrCommand cmd)
     {
-        for (String varName : allocatedVars) {
+        switch (cmd.opcode) {
+            case ALLOCATE: return ((IrCommandAllocate) cmd).varName;
+            case LOAD:     return ((IrCommandLoad) cmd).varName;
+            case STORE:    return ((IrCommandStore) cmd).varName;
+            default:       return null;
+        }
+    }
+
+    /**
+     * Emit all global variables to .data section
+     */
+    private void emitGlobalVars()
+    {
+        heap.emitGlobalsStart();
+        for (String varName : globalVars) {
             gen.emitData(varName + ": .word 0");
         }
+        heap.emitGlobalsEnd();
+    }
+
+    /**
+     * Emit one dispatch table per class: a word per method slot, holding
+     * the address of the code that implements it
+     */
+    private void emitVtables(Map<String, List<String>> vtables)
+    {
+        for (Map.Entry<String, List<String>> vtable : vtables.entrySet()) {
+            gen.emitData(vtable.getKey() + ": .word " + String.join(", ", vtable.getValue()));
+        }
     }
 
     /**
@@ -272,101 +266,58 @@ public class MipsTranslator
     private void translateCommand(IrCommand cmd)
     {
         // Don't emit comment for labels (to avoid SPIM parser issues)
-        if (!(cmd instanceof IrCommandLabel)) {
+        if (cmd.opcode != IrOpcode.LABEL) {
             gen.emitComment(cmd.toString());
         }
 
-        if (cmd instanceof IrCommandBinopAddIntegers) {
-            translateAdd((IrCommandBinopAddIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopSubIntegers) {
-            translateSub((IrCommandBinopSubIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopMulIntegers) {
-            translateMul((IrCommandBinopMulIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopDivIntegers) {
-            translateDiv((IrCommandBinopDivIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopEqIntegers) {
-            translateEq((IrCommandBinopEqIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopLtIntegers) {
-            translateLt((IrCommandBinopLtIntegers) cmd);
-        }
-        else if (cmd instanceof IrCommandBinopMinusInteger) {
-            translateNeg((IrCommandBinopMinusInteger) cmd);
-        }
-        else if (cmd instanceof IRcommandConstInt) {
-            translateConstInt((IRcommandConstInt) cmd);
-        }
-        else if (cmd instanceof IrCommandConstString) {
-            translateConstString((IrCommandConstString) cmd);
-        }
-        else if (cmd instanceof IrCommandNilConst) {
-            translateNilConst((IrCommandNilConst) cmd);
-        }
-        else if (cmd instanceof IrCommandStringConcat) {
-            translateStringConcat((IrCommandStringConcat) cmd);
-        }
-        else if (cmd instanceof IrCommandStringEqual) {
-            translateStringEqual((IrCommandStringEqual) cmd);
-        }
-        else if (cmd instanceof IrCommandArrayAccess) {
-            translateArrayAccess((IrCommandArrayAccess) cmd);
-        }
-        else if (cmd instanceof IrCommandArrayStore) {
-            translateArrayStore((IrCommandArrayStore) cmd);
-        }
-        else if (cmd instanceof IrCommandArrayLength) {
-            translateArrayLength((IrCommandArrayLength) cmd);
-        }
-        else if (cmd instanceof IrCommandNewArray) {
-            translateNewArray((IrCommandNewArray) cmd);
-        }
-        else if (cmd instanceof IrCommandFieldAccess) {
-            translateFieldAccess((IrCommandFieldAccess) cmd);
-        }
-        else if (cmd instanceof IrCommandFieldStore) {
-            translateFieldStore((IrCommandFieldStore) cmd);
-        }
-        else if (cmd instanceof IrCommandNewObject) {
-            translateNewObject((IrCommandNewObject) cmd);
-        }
-        else if (cmd instanceof IrCommandMethodCall) {
-            translateMethodCall((IrCommandMethodCall) cmd);
-        }
-        else if (cmd instanceof IrCommandLabel) {
-            translateLabel((IrCommandLabel) cmd);
-        }
-        else if (cmd instanceof IrCommandJumpLabel) {
-            translateJump((IrCommandJumpLabel) cmd);
-        }
-        else if (cmd instanceof IrCommandJumpIfEqToZero) {
-            translateJumpIfZero((IrCommandJumpIfEqToZero) cmd);
-        }
-        else if (cmd instanceof IrCommandReturn) {
-            translateReturn((IrCommandReturn) cmd);
-        }
-        else if (cmd instanceof IrCommandReturnVoid) {
-            translateReturnVoid((IrCommandReturnVoid) cmd);
-        }
-        else if (cmd instanceof IrCommandLoad) {
-            translateLoad((IrCommandLoad) cmd);
-        }
-        else if (cmd instanceof IrCommandStore) {
-            translateStore((IrCommandStore) cmd);
-        }
-        else if (cmd instanceof IrCommandCallFunc) {
-            translateCallFunc((IrCommandCallFunc) cmd);
-        }
-        else if (cmd instanceof IrCommandAllocate) {
-            translateAllocate((IrCommandAllocate) cmd);
-        }
+        cmd.accept(dispatcher);
 
         gen.emitBlankLine();
     }
 
+    /**
+     * Routes each IR command to its translate method
+     */
+    private class CommandDispatcher implements IrVisitor
+    {
+        public void visit(IrCommandBinopAddIntegers cmd) { translateAdd(cmd); }
+        public void visit(IrCommandBinopSubIntegers cmd) { translateSub(cmd); }
+        public void visit(IrCommandBinopMulIntegers cmd) { translateMul(cmd); }
+        public void visit(IrCommandBinopDivIntegers cmd) { translateDiv(cmd); }
+        public void visit(IrCommandBinopEqIntegers cmd) { translateEq(cmd); }
+        public void visit(IrCommandBinopLtIntegers cmd) { translateLt(cmd); }
+        public void visit(IrCommandBinopMinusInteger cmd) { translateNeg(cmd); }
+        public void visit(IRcommandConstInt cmd) { translateConstInt(cmd); }
+        public void visit(IrCommandConstString cmd) { translateConstString(cmd); }
+        public void visit(IrCommandNilConst cmd) { translateNilConst(cmd); }
+        public void visit(IrCommandStringConcat cmd) { translateStringConcat(cmd); }
+        public void visit(IrCommandStringEqual cmd) { translateStringEqual(cmd); }
+        public void visit(IrCommandArrayAccess cmd) { translateArrayAccess(cmd); }
+        public void visit(IrCommandArrayStore cmd) { translateArrayStore(cmd); }
+        public void visit(IrCommandArrayLength cmd) { translateArrayLength(cmd); }
+        public void visit(IrCommandNewArray cmd) { translateNewArray(cmd); }
+        public void visit(IrCommandFieldAccess cmd) { translateFieldAccess(cmd); }
+        public void visit(IrCommandFieldStore cmd) { translateFieldStore(cmd); }
+        public void visit(IrCommandNewObject cmd) { translateNewObject(cmd); }
+        public void visit(IrCommandMethodCall cmd) { translateMethodCall(cmd); }
+        public void visit(IrCommandFunctionEntry cmd) { translateFunctionEntry(cmd); }
+        public void visit(IrCommandFunctionExit cmd) { translateFunctionExit(cmd); }
+        public void visit(IrCommandLabel cmd) { translateLabel(cmd); }
+        public void visit(IrCommandJumpLabel cmd) { translateJump(cmd); }
+        public void visit(IrCommandJumpIfEqToZero cmd) { translateJumpIfZero(cmd); }
+        public void visit(IrCommandReturn cmd) { translateReturn(cmd); }
+        public void visit(IrCommandReturnVoid cmd) { translateReturnVoid(cmd); }
+        public void visit(IrCommandLoad cmd) { translateLoad(cmd); }
+        public void visit(IrCommandStore cmd) { translateStore(cmd); }
+        public void visit(IrCommandMove cmd) { translateMove(cmd); }
+        public void visit(IrCommandSpillLoad cmd) { translateSpillLoad(cmd); }
+        public void visit(IrCommandSpillStore cmd) { translateSpillStore(cmd); }
+        public void visit(IrCommandParameter cmd) { translateParameter(cmd); }
+        public void visit(IrCommandArgument cmd) { translateArgument(cmd); }
+        public void visit(IrCommandCallFunc cmd) { translateCallFunc(cmd); }
+        public void visit(IrCommandAllocate cmd) { translateAllocate(cmd); }
+    }
+
     // ==================== Integer Arithmetic ====================
 
     private void translateAdd(IrCommandBinopAddIntegers cmd)
@@ -423,18 +374,18 @@ public class MipsTranslator
             String temp1 = "$t8";
             String temp2 = "$t9";
             if (dst.equals(src1)) {
-                gen.emit(String.format("move %s, %s", temp1, src1));
+                gen.emit(MipsInstr.move(temp1, src1));
                 src1 = temp1;
             }
             if (dst.equals(src2)) {
-                gen.emit(String.format("move %s, %s", temp2, src2));
+                gen.emit(MipsInstr.move(temp2, src2));
                 src2 = temp2;
             }
         }
 
-        gen.emit(String.format("li %s, 0", dst), "assume not equal");
-        gen.emit(String.format("bne %s, %s, %s", src1, src2, labelDone));
-        gen.emit(String.format("li %s, 1", dst), "they are equal");
+        gen.emit(MipsInstr.li(dst, 0), "assume not equal");
+        gen.emit(MipsInstr.branch(MipsOpcode.BNE, src1, src2, labelDone));
+        gen.emit(MipsInstr.li(dst, 1), "they are equal");
         gen.emitLabel(labelDone);
     }
 
@@ -444,7 +395,7 @@ public class MipsTranslator
         String src1 = getReg(cmd.t1);
         String src2 = getReg(cmd.t2);
 
-        gen.emit(String.format("slt %s, %s, %s", dst, src1, src2));
+        gen.emit(MipsInstr.op3(MipsOpcode.SLT, dst, src1, src2));
     }
 
     private void translateNeg(IrCommandBinopMinusInteger cmd)
@@ -460,7 +411,7 @@ public class MipsTranslator
     private void translateConstInt(IRcommandConstInt cmd)
     {
         String dst = getReg(cmd.t);
-        gen.emit(String.format("li %s, %d", dst, cmd.value));
+        gen.emit(MipsInstr.li(dst, cmd.value));
     }
 
     private void translateConstString(IrCommandConstString cmd)
@@ -473,127 +424,25 @@ public class MipsTranslator
             label = strings.addString(cmd.value);
         }
 
-        gen.emit(String.format("la %s, %s", dst, label));
+        gen.emit(MipsInstr.la(dst, label));
     }
 
     private void translateNilConst(IrCommandNilConst cmd)
     {
         String dst = getReg(cmd.dst);
-        gen.emit(String.format("li %s, 0", dst), "nil = 0");
+        gen.emit(MipsInstr.li(dst, 0), "nil = 0");
     }
 
     // ==================== String Operations ====================
 
     private void translateStringConcat(IrCommandStringConcat cmd)
     {
-        String dst = getReg(cmd.dst);
-        String str1 = getReg(cmd.str1);
-        String str2 = getReg(cmd.str2);
-
-        // Use $s0-$s3 as scratch registers
-        String len1 = "$s0";
-        String len2 = "$s1";
-        String ptr = "$s2";
-        String str1Saved = "$s4";  // Save str1 in case dst clobbers it
-        String str2Saved = "$s5";  // Save str2 in case dst clobbers it
-
-        String labelLoop1 = gen.getFreshLabel("strlen1_loop");
-        String labelLoop1Done = gen.getFreshLabel("strlen1_done");
-        String labelLoop2 = gen.getFreshLabel("strlen2_loop");
-        String labelLoop2Done = gen.getFreshLabel("strlen2_done");
-        String labelCopy1 = gen.getFreshLabel("strcpy1_loop");
-        String labelCopy1Done = gen.getFreshLabel("strcpy1_done");
-        String labelCopy2 = gen.getFreshLabel("strcpy2_loop");
-        String labelCopy2Done = gen.getFreshLabel("strcpy2_done");
-
-        // Save str1 and str2 in case they get clobbered by dst assignment
-        gen.emit(String.format("move %s, %s", str1Saved, str1));
-        gen.emit(String.format("move %s, %s", str2Saved, str2));
-
-        gen.emitComment("Calculate strlen(str1)");
-        gen.emit(String.format("li %s, 0", len1));
-        gen.emit(String.format("move %s, %s", ptr, str1Saved));
-        gen.emitLabel(labelLoop1);
-        gen.emit(String.format("lb $t8, 0(%s)", ptr));
-        gen.emit(String.format("beq $t8, $zero, %s", labelLoop1Done));
-        gen.emit(String.format("addi %s, %s, 1", len1, len1));
-        gen.emit(String.format("addi %s, %s, 1", ptr, ptr));
-        gen.emit(String.format("j %s", labelLoop1));
-        gen.emitLabel(labelLoop1Done);
-
-        gen.emitComment("Calculate strlen(str2)");
-        gen.emit(String.format("li %s, 0", len2));
-        gen.emit(String.format("move %s, %s", ptr, str2Saved));
-        gen.emitLabel(labelLoop2);
-        gen.emit(String.format("lb $t8, 0(%s)", ptr));
-        gen.emit(String.format("beq $t8, $zero, %s", labelLoop2Done));
-        gen.emit(String.format("addi %s, %s, 1", len2, len2));
-        gen.emit(String.format("addi %s, %s, 1", ptr, ptr));
-        gen.emit(String.format("j %s", labelLoop2));
-        gen.emitLabel(labelLoop2Done);
-
-        gen.emitComment("Allocate memory for concatenated string");
-        gen.emit(String.format("add $a0, %s, %s", len1, len2));
-        gen.emit("addi $a0, $a0, 1", "+1 for null terminator");
-        gen.emit("li $v0, 9", "malloc syscall");
-        gen.emit("syscall");
-        gen.emit(String.format("move %s, $v0", dst));
-
-        gen.emitComment("Copy str1");
-        gen.emit(String.format("move %s, %s", ptr, dst));
-        gen.emit(String.format("move $s3, %s", str1Saved));
-        gen.emitLabel(labelCopy1);
-        gen.emit("lb $t8, 0($s3)");
-        gen.emit(String.format("beq $t8, $zero, %s", labelCopy1Done));
-        gen.emit(String.format("sb $t8, 0(%s)", ptr));
-        gen.emit(String.format("addi %s, %s, 1", ptr, ptr));
-        gen.emit("addi $s3, $s3, 1");
-        gen.emit(String.format("j %s", labelCopy1));
-        gen.emitLabel(labelCopy1Done);
-
-        gen.emitComment("Copy str2");
-        gen.emit(String.format("move $s3, %s", str2Saved));
-        gen.emitLabel(labelCopy2);
-        gen.emit("lb $t8, 0($s3)");
-        gen.emit(String.format("sb $t8, 0(%s)", ptr));
-        gen.emit(String.format("beq $t8, $zero, %s", labelCopy2Done));
-        gen.emit(String.format("addi %s, %s, 1", ptr, ptr));
-        gen.emit("addi $s3, $s3, 1");
-        gen.emit(String.format("j %s", labelCopy2));
-        gen.emitLabel(labelCopy2Done);
+        stringRuntime.emitConcat(getReg(cmd.dst), getReg(cmd.str1), getReg(cmd.str2));
     }
 
     private void translateStringEqual(IrCommandStringEqual cmd)
     {
-        String dst = getReg(cmd.dst);
-        String str1 = getReg(cmd.str1);
-        String str2 = getReg(cmd.str2);
-
-        String labelLoop = gen.getFreshLabel("streq_loop");
-        String labelNotEq = gen.getFreshLabel("streq_ne");
-        String labelEq = gen.getFreshLabel("streq_eq");
-        String labelDone = gen.getFreshLabel("streq_done");
-
-        gen.emit("move $s0, " + str1, "pointer to str1");
-        gen.emit("move $s1, " + str2, "pointer to str2");
-
-        gen.emitLabel(labelLoop);
-        gen.emit("lb $s2, 0($s0)", "load char from str1");
-        gen.emit("lb $s3, 0($s1)", "load char from str2");
-        gen.emit(String.format("bne $s2, $s3, %s", labelNotEq), "chars differ");
-        gen.emit(String.format("beq $s2, $zero, %s", labelEq), "both null = equal");
-        gen.emit("addi $s0, $s0, 1");
-        gen.emit("addi $s1, $s1, 1");
-        gen.emit(String.format("j %s", labelLoop));
-
-        gen.emitLabel(labelNotEq);
-        gen.emit(String.format("li %s, 0", dst), "not equal");
-        gen.emit(String.format("j %s", labelDone));
-
-        gen.emitLabel(labelEq);
-        gen.emit(String.format("li %s, 1", dst), "equal");
-
-        gen.emitLabel(labelDone);
+        stringRuntime.emitEqual(getReg(cmd.dst), getReg(cmd.str1), getReg(cmd.str2));
     }
 
     // ==================== Array Operations ====================
@@ -605,13 +454,12 @@ public class MipsTranslator
         int elemSize = cmd.elementSize;
 
         gen.emitComment("Allocate array");
-        gen.emit(String.format("li $s0, %d", elemSize));
-        gen.emit(String.format("mul $s0, %s, $s0", size), "size * elemSize");
-        gen.emit("addi $a0, $s0, 4", "+4 for length field");
-        gen.emit("li $v0, 9", "malloc");
-        gen.emit("syscall");
-        gen.emit(String.format("sw %s, 0($v0)", size), "store length");
-        gen.emit(String.format("move %s, $v0", dst));
+        gen.emit(MipsInstr.li("$t8", elemSize));
+        gen.emit(MipsInstr.op3(MipsOpcode.MUL, "$t8", size, "$t8"), "size * elemSize");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$a0", "$t8", 4), "+4 for length field");
+        heap.emitAllocWords();
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, size, 0, "$v0"), "store length");
+        gen.emit(MipsInstr.move(dst, "$v0"));
     }
 
     private void translateArrayAccess(IrCommandArrayAccess cmd)
@@ -620,12 +468,11 @@ public class MipsTranslator
         String array = getReg(cmd.array);
         String index = getReg(cmd.index);
 
-        checks.emitBoundsCheck(array, index, "$s0");
+        checks.emitBoundsCheck(array, index, "$t8");
 
-        gen.emit(String.format("sll $s0, %s, 2", index), "index * 4");
-        gen.emit("addi $s0, $s0, 4", "+ 4 (skip length)");
-        gen.emit(String.format("add $s0, %s, $s0", array));
-        gen.emit(String.format("lw %s, 0($s0)", dst));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SLL, "$t8", index, 2), "index * 4");
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t8", array, "$t8"));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, dst, 4, "$t8"), "+ 4 (skip length)");
     }
 
     private void translateArrayStore(IrCommandArrayStore cmd)
@@ -634,12 +481,11 @@ public class MipsTranslator
         String index = getReg(cmd.index);
         String value = getReg(cmd.value);
 
-        checks.emitBoundsCheck(array, index, "$s0");
+        checks.emitBoundsCheck(array, index, "$t8");
 
-        gen.emit(String.format("sll $s0, %s, 2", index));
-        gen.emit("addi $s0, $s0, 4");
-        gen.emit(String.format("add $s0, %s, $s0", array));
-        gen.emit(String.format("sw %s, 0($s0)", value));
+        gen.emit(MipsInstr.opImm(MipsOpcode.SLL, "$t8", index, 2));
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, "$t8", array, "$t8"));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, value, 4, "$t8"));
     }
 
     private void translateArrayLength(IrCommandArrayLength cmd)
@@ -648,7 +494,7 @@ public class MipsTranslator
         String array = getReg(cmd.array);
 
         checks.emitNullCheck(array);
-        gen.emit(String.format("lw %s, 0(%s)", dst, array));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, dst, 0, array));
     }
 
     // ==================== Object Operations ====================
@@ -659,14 +505,20 @@ public class MipsTranslator
         int size = cmd.sizeInBytes;
 
         gen.emitComment(String.format("Allocate object: %s", cmd.className));
-        gen.emit(String.format("li $a0, %d", size));
-        gen.emit("li $v0, 9", "malloc");
-        gen.emit("syscall");
-        gen.emit(String.format("move %s, $v0", dst));
+        heap.emitAlloc(size);
+        gen.emit(MipsInstr.move(dst, "$v0"));
+
+        // Point the object at its class's vtable
+        String vtable = "$zero";
+        if (cmd.vtableLabel != null) {
+            gen.emit(MipsInstr.la("$t8", cmd.vtableLabel), "vtable pointer");
+            vtable = "$t8";
+        }
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, vtable, 0, "$v0"));
 
         // Initialize fields to zero
-        for (int offset = 0; offset < size; offset += 4) {
-            gen.emit(String.format("sw $zero, %d($v0)", offset));
+        for (int offset = 4; offset < size; offset += 4) {
+            gen.emit(MipsInstr.mem(MipsOpcode.SW, "$zero", offset, "$v0"));
         }
     }
 
@@ -677,7 +529,7 @@ public class MipsTranslator
         int offset = cmd.fieldOffset;
 
         checks.emitFieldAccessCheck(object);
-        gen.emit(String.format("lw %s, %d(%s)", dst, offset, object));
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, dst, offset, object));
     }
 
     private void translateFieldStore(IrCommandFieldStore cmd)
@@ -687,92 +539,213 @@ public class MipsTranslator
         int offset = cmd.fieldOffset;
 
         checks.emitFieldAccessCheck(object);
-        gen.emit(String.format("sw %s, %d(%s)", value, offset, object));
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, value, offset, object));
     }
 
     private void translateMethodCall(IrCommandMethodCall cmd)
     {
-        // Simplified: treat as function call
-        // Full implementation would use vtable for dynamic dispatch
-
+        // The object is already in $a0 and the arguments in place
         String object = getReg(cmd.object);
         checks.emitNullCheck(object);
 
-        // Push arguments (if any)
-        // ...
+        List<String> saved = registersToSave(cmd);
+        emitCallerSaves(saved);
 
-        // Call method
-        gen.emit(String.format("jal method_%s", cmd.methodName));
+        // Dynamic dispatch: the object's vtable holds the method at a fixed slot
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t8", 0, object), "vtable of the object");
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$t8", cmd.vtableOffset, "$t8"), "method " + cmd.methodName);
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JALR, "$t8"));
 
-        // Get return value
-        if (cmd.dst != null) {
+        // Get return value (nothing to copy if it was coalesced with $v0)
+        if (cmd.dst != null && !getReg(cmd.dst).equals("$v0")) {
             String dst = getReg(cmd.dst);
-            gen.emit(String.format("move %s, $v0", dst));
+            gen.emit(MipsInstr.move(dst, "$v0"));
         }
+
+        emitCallerRestores(saved);
     }
 
     // ==================== Stack Frame Management ====================
 
-    private void emitFunctionPrologue(String funcName)
-    {
-        // Stack frame: just $ra and $fp
-        // NO callee-save for globals - we use caller-save instead
-        currentStackSize = 8;
+    /**
+     * Compute the frame of a unit. From $sp up:
+     *   outgoing arguments (the largest argument count of the unit's calls)
+     *   saved $fp, saved $ra
+     *   callee-saved registers the unit uses
+     *   save area for caller-saved registers live across a call
+     *   locals
+     *   spill slots
+     * and above it, from $fp up, the arguments pushed by the caller.
+     * Calls never move $sp: arguments and saved registers go to fixed slots.
+     */
+    private void layoutFrame(IrFunction function)
+    {
+        int outgoing = 0;
+        int callerSaves = 0;
+        for (IrCommand cmd : function.getProgram()) {
+            if (cmd.opcode == IrOpcode.CALL_FUNC) {
+                outgoing = Math.max(outgoing, ((IrCommandCallFunc) cmd).argumentCount);
+            } else if (cmd.opcode == IrOpcode.METHOD_CALL) {
+                outgoing = Math.max(outgoing, ((IrCommandMethodCall) cmd).argumentCount);
+            }
+            callerSaves = Math.max(callerSaves, registersToSave(cmd).size());
+        }
+        int locals = currentFrameOffsets.size() - function.getParameters().size();
 
+        currentLinkOffset = argumentOffset(outgoing);
+        currentCallerSaveOffset = currentLinkOffset + 8 + 4 * currentSavedRegs.size();
+        currentStackSize = currentCallerSaveOffset + 4 * (callerSaves + locals + function.getFrameSlotCount());
+    }
+
+    private void emitFunctionPrologue()
+    {
         gen.emitComment("Function prologue");
-        gen.emit(String.format("addi $sp, $sp, -%d", currentStackSize), "allocate stack frame");
-        gen.emit("sw $ra, 4($sp)", "save return address");
-        gen.emit("sw $fp, 0($sp)", "save frame pointer");
-        gen.emit(String.format("addi $fp, $sp, %d", currentStackSize), "set new frame pointer");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$sp", "$sp", -currentStackSize), "allocate stack frame");
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$ra", currentLinkOffset + 4, "$sp"), "save return address");
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, "$fp", currentLinkOffset, "$sp"), "save frame pointer");
+        for (int i = 0; i < currentSavedRegs.size(); i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.SW, currentSavedRegs.get(i), currentLinkOffset + 8 + 4 * i, "$sp"),
+                "save callee-saved register");
+        }
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$fp", "$sp", currentStackSize), "set new frame pointer");
     }
 
     private void emitFunctionEpilogue()
     {
-        // NO callee-save restoration - we use caller-save instead
         gen.emitComment("Function epilogue");
-        gen.emit("lw $ra, 4($sp)", "restore return address");
-        gen.emit("lw $fp, 0($sp)", "restore frame pointer");
-        gen.emit(String.format("addi $sp, $sp, %d", currentStackSize), "deallocate stack frame");
+        for (int i = 0; i < currentSavedRegs.size(); i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.LW, currentSavedRegs.get(i), currentLinkOffset + 8 + 4 * i, "$sp"),
+                "restore callee-saved register");
+        }
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$ra", currentLinkOffset + 4, "$sp"), "restore return address");
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, "$fp", currentLinkOffset, "$sp"), "restore frame pointer");
+        gen.emit(MipsInstr.opImm(MipsOpcode.ADDI, "$sp", "$sp", currentStackSize), "deallocate stack frame");
     }
 
-    // ==================== Control Flow ====================
-
-    private void translateLabel(IrCommandLabel cmd)
+    /**
+     * Callee-saved registers assigned to any temp of the unit, in ordinal order
+     */
+    private List<String> calleeSavedRegistersUsed(IrFunction function)
     {
-        // Check if this is a function entry label (has locals allocated)
-        boolean isFunctionEntry = functionLocals.containsKey(cmd.labelName);
-
-        if (isFunctionEntry) {
-            // If we're already in a function, emit an implicit return (epilogue + jr $ra)
-            // This handles void functions without explicit return statements
-            if (currentFunction != null) {
-                gen.emitComment("Implicit return for void function");
-                emitFunctionEpilogue();
-                gen.emit("jr $ra");
-                gen.emitBlankLine();
+        int mask = 0;
+        for (IrCommand cmd : function.getProgram()) {
+            for (Temp t : cmd.defs()) {
+                int reg = regAlloc.getRegisterOrdinal(t.getSerialNumber());
+                if (reg >= 0 && RegisterAllocation.isCalleeSaved(reg)) mask |= 1 << reg;
             }
+        }
+
+        List<String> regs = new ArrayList<>();
+        for (int reg = RegisterAllocation.FIRST_CALLEE_SAVED; reg < RegisterAllocation.NUM_REGISTERS; reg++) {
+            if ((mask & (1 << reg)) != 0) regs.add(RegisterAllocation.REGISTER_NAMES[reg]);
+        }
+        return regs;
+    }
+
+    /**
+     * Caller-saved registers a call must preserve: those holding values
+     * needed after it returns (see RegisterAllocation.getLiveAcrossCall).
+     * The library leaf routines clobber none of them; commands that are
+     * not calls need none.
+     */
+    private List<String> registersToSave(IrCommand cmd)
+    {
+        List<String> regs = new ArrayList<>();
+        if (cmd.opcode == IrOpcode.CALL_FUNC && LEAF_ROUTINES.contains(((IrCommandCallFunc) cmd).name)) {
+            return regs;
+        }
+        if (cmd.opcode != IrOpcode.CALL_FUNC && cmd.opcode != IrOpcode.METHOD_CALL) {
+            return regs;
+        }
 
-            // Update current function context
-            currentFunction = cmd.labelName;
+        int mask = regAlloc.getLiveAcrossCall(cmd);
+        for (int reg = 0; reg < RegisterAllocation.FIRST_CALLEE_SAVED; reg++) {
+            if ((mask & (1 << reg)) != 0) regs.add(RegisterAllocation.REGISTER_NAMES[reg]);
+        }
+        return regs;
+    }
+
+    private void emitCallerSaves(List<String> regs)
+    {
+        if (regs.isEmpty()) return;
+        gen.emitComment("Save caller-saved registers live across the call");
+        for (int i = 0; i < regs.size(); i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.SW, regs.get(i), currentCallerSaveOffset + 4 * i, "$sp"));
+        }
+    }
 
-            // Rename the IR's "main" label to avoid conflict with SPIM's entry point
-            if (cmd.labelName.equals("main")) {
-                gen.emitLabel("__user_main");
-            } else {
-                gen.emitLabel(cmd.labelName);
+    private void emitCallerRestores(List<String> regs)
+    {
+        if (regs.isEmpty()) return;
+        gen.emitComment("Restore caller-saved registers");
+        for (int i = 0; i < regs.size(); i++) {
+            gen.emit(MipsInstr.mem(MipsOpcode.LW, regs.get(i), currentCallerSaveOffset + 4 * i, "$sp"));
+        }
+    }
+
+    // ==================== Control Flow ====================
+
+    private void translateFunctionEntry(IrCommandFunctionEntry cmd)
+    {
+        // The global init unit is the program entry point: no frame
+        if (cmd.functionName.equals(IrFunction.GLOBAL_INIT)) {
+            currentFunction = null;
+            currentSavedRegs = new ArrayList<>();  // the entry point never returns
+            layoutFrame(currentUnit);
+            gen.beginFunction("main");
+            gen.emitLabel("main");
+            sat.emitBounds();
+            heap.emitInit();
+            // The entry point needs a frame only if it has arguments, saves or spill slots
+            if (currentStackSize > 8) {
+                emitFunctionPrologue();
             }
+            return;
+        }
+
+        currentFunction = cmd.functionName;
+        currentSavedRegs = calleeSavedRegistersUsed(currentUnit);
+        layoutFrame(currentUnit);
 
-            // Emit function prologue only for function entry
-            emitFunctionPrologue(currentFunction);
+        // Rename the IR's "main" label to avoid conflict with SPIM's entry point
+        gen.beginFunction(cmd.functionName);
+        if (cmd.functionName.equals("main")) {
+            gen.emitLabel("__user_main");
         } else {
-            // Regular label (not a function entry)
-            gen.emitLabel(cmd.labelName);
+            gen.emitLabel(cmd.functionName);
         }
+
+        emitFunctionPrologue();
+    }
+
+    private void translateFunctionExit(IrCommandFunctionExit cmd)
+    {
+        if (cmd.functionName.equals(IrFunction.GLOBAL_INIT)) {
+            // Globals are initialized: run main, then exit
+            gen.emit(MipsInstr.jump(MipsOpcode.JAL, "__user_main"), "Call main function");
+            gen.emitComment("Exit program");
+            gen.emit(MipsInstr.li("$v0", 10));
+            gen.emit(MipsInstr.syscall());
+            heap.emitSlowPaths();
+            return;
+        }
+
+        // Implicit return when control falls off the end of the body
+        gen.emitComment("Implicit return");
+        emitFunctionEpilogue();
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
+        heap.emitSlowPaths();
+        currentFunction = null;
+    }
+
+    private void translateLabel(IrCommandLabel cmd)
+    {
+        gen.emitLabel(cmd.labelName);
     }
 
     private void translateJump(IrCommandJumpLabel cmd)
     {
-        gen.emit(String.format("j %s", cmd.labelName));
+        gen.emit(MipsInstr.jump(MipsOpcode.J, cmd.labelName));
     }
 
     private void translateJumpIfZero(IrCommandJumpIfEqToZero cmd)
@@ -787,144 +760,152 @@ public class MipsTranslator
         }
 
         String cond = getReg(cmd.t);
-        gen.emit(String.format("beq %s, $zero, %s", cond, cmd.labelName));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, cond, "$zero", cmd.labelName));
     }
 
     private void translateReturn(IrCommandReturn cmd)
     {
         String value = getReg(cmd.returnValue);
-        gen.emit(String.format("move $v0, %s", value), "return value");
+        if (!value.equals("$v0")) {
+            gen.emit(MipsInstr.move("$v0", value), "return value");
+        }
         emitFunctionEpilogue();
-        gen.emit("jr $ra");
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
     }
 
     private void translateReturnVoid(IrCommandReturnVoid cmd)
     {
         emitFunctionEpilogue();
-        gen.emit("jr $ra");
+        gen.emit(MipsInstr.jumpReg(MipsOpcode.JR, "$ra"));
     }
 
     // ==================== Memory Operations ====================
 
     private void translateLoad(IrCommandLoad cmd)
     {
-        String dst = getReg(cmd.dst);
-        String varName = cmd.varName;
-
-        // All variables are global for now
-        gen.emit(String.format("lw %s, %s", dst, varName));
+        gen.emit(variableAccess(MipsOpcode.LW, getReg(cmd.dst), cmd.varName));
     }
 
     private void translateStore(IrCommandStore cmd)
     {
-        String varName = cmd.varName;
-        String src;
-
-        if (cmd.src == null) {
-            // Storing null/nil - use $zero register
-            src = "$zero";
-        } else {
-            src = getReg(cmd.src);
+        // A parameter or local the unit never loads (e.g. a parameter whose
+        // every read was forwarded from its argument register) is dead
+        if (currentFrameOffsets.containsKey(cmd.varName) && !currentLoadedVars.contains(cmd.varName)) {
+            gen.emitComment("Dead store to " + cmd.varName);
+            return;
         }
 
-        // CRITICAL FIX FOR RECURSION:
-        // Check if next command is a function call
-        // If so, save this global BEFORE we store to it
-        boolean nextIsCall = false;
-        if (currentCommands != null && currentCommandIndex + 1 < currentCommands.size()) {
-            IrCommand nextCmd = currentCommands.get(currentCommandIndex + 1);
-            if (nextCmd instanceof IrCommandCallFunc) {
-                nextIsCall = true;
-            }
-        }
+        // Storing null/nil uses the $zero register
+        String src = (cmd.src == null) ? "$zero" : getReg(cmd.src);
 
-        if (nextIsCall && currentFunction != null) {
-            // This store is immediately followed by a call
-            // Save the CURRENT value of the global before we overwrite it
-            Set<String> globalsSet = functionGlobals.getOrDefault(currentFunction, new HashSet<>());
-            if (globalsSet.contains(varName)) {
-                gen.emitComment("Save " + varName + " before store (recursive call ahead)");
-                gen.emit("addi $sp, $sp, -4", "allocate space");
-                gen.emit(String.format("lw $t8, %s", varName), "load current value");
-                gen.emit("sw $t8, 0($sp)", "save on stack");
+        gen.emit(variableAccess(MipsOpcode.SW, src, cmd.varName));
+    }
 
-                // Track that we saved this variable
-                savedGlobalVars.push(varName);
-            }
+    /**
+     * Load or store of a variable: at its frame slot if it is a parameter
+     * or local of the current unit, else at its global label
+     */
+    private MipsInstr variableAccess(MipsOpcode opcode, String reg, String varName)
+    {
+        Integer offset = currentFrameOffsets.get(varName);
+        return (offset == null)
+            ? MipsInstr.memLabel(opcode, reg, varName)
+            : MipsInstr.mem(opcode, reg, offset, "$fp");
+    }
+
+    private void translateMove(IrCommandMove cmd)
+    {
+        String dst = getReg(cmd.dst);
+        String src = getReg(cmd.src);
+
+        // Coalesced temps share a register: nothing to copy
+        if (!dst.equals(src)) {
+            gen.emit(MipsInstr.move(dst, src));
         }
+    }
 
-        // All variables are global for now
-        gen.emit(String.format("sw %s, %s", src, varName));
+    /**
+     * Frame slot k of a spilled temp lives at -4(k+1)($fp), just below
+     * the caller's $sp and above the saved $ra/$fp pair
+     */
+    private static int spillSlotOffset(int slot)
+    {
+        return -4 * (slot + 1);
+    }
+
+    /**
+     * Local j of a unit lives right below the unit's spill slots
+     */
+    private static int localOffset(IrFunction function, int local)
+    {
+        return spillSlotOffset(function.getFrameSlotCount() + local);
+    }
+
+    /**
+     * Argument i is written by the caller at 4i($sp), which is 4i($fp) in the callee
+     */
+    private static int argumentOffset(int argument)
+    {
+        return 4 * argument;
+    }
+
+    private void translateSpillLoad(IrCommandSpillLoad cmd)
+    {
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, getReg(cmd.dst), spillSlotOffset(cmd.slot), "$fp"), "reload spilled temp");
+    }
+
+    private void translateSpillStore(IrCommandSpillStore cmd)
+    {
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, getReg(cmd.src), spillSlotOffset(cmd.slot), "$fp"), "spill temp");
     }
 
     private void translateAllocate(IrCommandAllocate cmd)
     {
-        // IrCommandAllocate in ex4 only has varName, no dst or size
-        // This command might not be used in the actual IR generation
-        // Just emit a comment for now
-        gen.emitComment("Allocate " + cmd.varName);
+        // Every variable already has its place (see collectVariables):
+        // nothing to emit
     }
 
-    private void translateCallFunc(IrCommandCallFunc cmd)
+    private void translateParameter(IrCommandParameter cmd)
     {
-        // Determine which register will hold the return value (if any)
-        String dstReg = null;
-        int dstRegNum = -1;
-        if (cmd.t != null) {
-            dstReg = getReg(cmd.t);
-            // Extract register number if it's a $t register
-            if (dstReg.startsWith("$t") && dstReg.length() >= 3) {
-                try {
-                    dstRegNum = Integer.parseInt(dstReg.substring(2));
-                } catch (NumberFormatException e) {
-                    // Not a simple $tN register
-                }
-            }
+        // Register parameters are precolored with their $a register: nothing to copy
+        if (cmd.index >= IrCommandCallFunc.REGISTER_ARGUMENTS) {
+            gen.emit(MipsInstr.mem(MipsOpcode.LW, getReg(cmd.dst), argumentOffset(cmd.index), "$fp"), "stack parameter");
         }
+    }
 
-        // Save caller-saved registers ($t0-$t9) on stack before call
-        // This is necessary because recursive calls will clobber these registers
-        gen.emitComment("Save caller-saved registers");
-        int numRegs = 10;  // $t0 through $t9
-        gen.emit(String.format("addi $sp, $sp, -%d", numRegs * 4), "allocate space for $t0-$t9");
-        for (int i = 0; i < numRegs; i++) {
-            gen.emit(String.format("sw $t%d, %d($sp)", i, i * 4));
-        }
+    /**
+     * Stack argument i (i >= 4) goes to 4i($sp); slots 0-3 stay free as the
+     * callee's home area for its register parameters
+     */
+    private void translateArgument(IrCommandArgument cmd)
+    {
+        String src = (cmd.src == null) ? "$zero" : getReg(cmd.src);
+        gen.emit(MipsInstr.mem(MipsOpcode.SW, src, argumentOffset(cmd.index), "$sp"), "outgoing argument");
+    }
+
+    private void translateCallFunc(IrCommandCallFunc cmd)
+    {
+        // Only caller-saved registers holding values needed after the call
+        // are preserved (the result register is never among them)
+        List<String> saved = registersToSave(cmd);
 
-        // Make the function call
-        gen.emit(String.format("jal %s", cmd.name));
+        emitCallerSaves(saved);
 
-        // Move return value to destination FIRST
-        if (cmd.t != null) {
-            gen.emit(String.format("move %s, $v0", dstReg), "save return value");
-        }
+        // Make the function call (the arguments are already in place)
+        gen.emit(MipsInstr.jump(MipsOpcode.JAL, cmd.name));
 
-        // Restore caller-saved registers, EXCEPT the destination register
-        gen.emitComment("Restore caller-saved registers");
-        for (int i = 0; i < numRegs; i++) {
-            // Skip restoring the destination register since it now holds the return value
-            if (i != dstRegNum) {
-                gen.emit(String.format("lw $t%d, %d($sp)", i, i * 4));
-            }
+        // Move return value to destination (unless coalesced with $v0)
+        if (cmd.t != null && !getReg(cmd.t).equals("$v0")) {
+            gen.emit(MipsInstr.move(getReg(cmd.t), "$v0"), "save return value");
         }
-        gen.emit(String.format("addi $sp, $sp, %d", numRegs * 4), "deallocate register save area");
 
-        // Restore any globals that were saved by translateStore
-        // These are globals that were modified right before this call
-        // NOW the stack pointer is back to where the global was saved
-        if (!savedGlobalVars.isEmpty()) {
-            String varName = savedGlobalVars.pop();
-            gen.emitComment("Restore " + varName + " after call (from pre-store save)");
-            gen.emit("lw $t8, 0($sp)", "load saved value");
-            gen.emit(String.format("sw $t8, %s", varName), "restore global");
-            gen.emit("addi $sp, $sp, 4", "deallocate global save space");
-        }
+        emitCallerRestores(saved);
     }
 
     /**
      * Close and finalize output
      */
-    public void close()
+    public void close() throws IOException
     {
         gen.close();
     }
@@ -11,12 +11,22 @@ package mips;
 public class RuntimeChecks
 {
     private MipsGenerator gen;
+    private boolean legacyBoundsCheck = false;  // separate sign and length checks
 
     public RuntimeChecks(MipsGenerator gen)
     {
         this.gen = gen;
     }
 
+    /**
+     * Emit bounds checks as separate index < 0 and index >= length tests
+     * (for debugging the single unsigned compare)
+     */
+    public void setLegacyBoundsCheck(boolean legacy)
+    {
+        this.legacyBoundsCheck = legacy;
+    }
+
     /**
      * Emit division by zero check
      *
@@ -28,7 +38,7 @@ public class RuntimeChecks
     public void emitDivByZeroCheck(String divisorReg)
     {
         gen.emitComment("Check division by zero");
-        gen.emit(String.format("beq %s, $zero, error_div_by_zero", divisorReg));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, divisorReg, "$zero", "error_div_by_zero"));
     }
 
     /**
@@ -42,7 +52,7 @@ public class RuntimeChecks
     public void emitNullCheck(String pointerReg)
     {
         gen.emitComment("Check null pointer");
-        gen.emit(String.format("beq %s, $zero, error_null_pointer", pointerReg));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, pointerReg, "$zero", "error_null_pointer"));
     }
 
     /**
@@ -53,7 +63,11 @@ public class RuntimeChecks
      * 2. Index >= 0
      * 3. Index < array.length
      *
-     * If any check fails, jumps to error handler.
+     * If any check fails, jumps to error handler. Checks 2 and 3 are one
+     * unsigned compare: a negative index reads as an unsigned value of at
+     * least 2^31, which is never below a length. The null check is the
+     * same branch as emitNullCheck, so the peephole pass drops it when an
+     * earlier access in the same block already checked the array.
      *
      * @param arrayReg register containing array address
      * @param indexReg register containing index
@@ -64,14 +78,21 @@ public class RuntimeChecks
         gen.emitComment("Check array bounds");
 
         // Check null pointer
-        gen.emit(String.format("beq %s, $zero, error_null_pointer", arrayReg));
+        gen.emit(MipsInstr.branch(MipsOpcode.BEQ, arrayReg, "$zero", "error_null_pointer"));
+
+        if (legacyBoundsCheck) {
+            // Check index < 0
+            gen.emit(MipsInstr.branchZero(MipsOpcode.BLTZ, indexReg, "error_bounds"));
 
-        // Check index < 0
-        gen.emit(String.format("bltz %s, error_bounds", indexReg));
+            // Load array length and check index < length
+            gen.emit(MipsInstr.mem(MipsOpcode.LW, tempReg, 0, arrayReg), "load array length");
+            gen.emit(MipsInstr.branch(MipsOpcode.BGE, indexReg, tempReg, "error_bounds"));
+            return;
+        }
 
-        // Load array length and check index < length
-        gen.emit(String.format("lw %s, 0(%s)", tempReg, arrayReg), "load array length");
-        gen.emit(String.format("bge %s, %s, error_bounds", indexReg, tempReg));
+        // Load array length and check 0 <= index < length at once
+        gen.emit(MipsInstr.mem(MipsOpcode.LW, tempReg, 0, arrayReg), "load array length");
+        gen.emit(MipsInstr.branch(MipsOpcode.BGEU, indexReg, tempReg, "error_bounds"));
     }
 
     /**
@@ -8,6 +8,23 @@ package mips;
  *
  * For each operation ⊙ ∈ {+, −, *, /}:
  * result = clamp(a ⊙ b, -32768, 32767)
+ *
+ * The clamp is branchless: the bound is compared with slt and selected
+ * with movn, so no branch is taken and no label is created per operation:
+ *
+ *   op   dst, src1, src2
+ *   slt  $t8, MAX_REG, dst      # $t8 = (dst > 32767)
+ *   movn dst, MAX_REG, $t8      # if so, dst = 32767
+ *   slt  $t8, dst, MIN_REG      # $t8 = (dst < -32768)
+ *   movn dst, MIN_REG, $t8      # if so, dst = -32768
+ *
+ * Operands are 16-bit, so the 32-bit result of the operation itself never
+ * wraps. Division and negation can only exceed the upper bound
+ * (-32768 / -1, -(-32768)) and skip the lower clamp.
+ *
+ * The bounds live in MAX_REG and MIN_REG, which nothing else writes or
+ * allocates; emitBounds() loads them once at the program entry point, so
+ * they hold in every function without being reloaded.
  */
 public class SaturationArithmetic
 {
@@ -15,11 +32,25 @@ public class SaturationArithmetic
     private static final int MAX_VALUE = 32767;   // 2^15 - 1
     private static final int MIN_VALUE = -32768;  // -2^15
 
+    /** Holds MAX_VALUE for the whole program (no gp-relative data is used) */
+    public static final String MAX_REG = "$gp";
+    /** Holds MIN_VALUE for the whole program */
+    public static final String MIN_REG = "$v1";
+
     public SaturationArithmetic(MipsGenerator gen)
     {
         this.gen = gen;
     }
 
+    /**
+     * Load the bounds into their reserved registers (once, at the entry point)
+     */
+    public void emitBounds()
+    {
+        gen.emit(MipsInstr.li(MAX_REG, MAX_VALUE), "saturation upper bound");
+        gen.emit(MipsInstr.li(MIN_REG, MIN_VALUE), "saturation lower bound");
+    }
+
     /**
      * Emit saturated addition
      *
@@ -31,36 +62,9 @@ public class SaturationArithmetic
      */
     public void emitSaturatedAdd(String dst, String src1, String src2)
     {
-        String labelMax = gen.getFreshLabel("saturate_add_max");
-        String labelMin = gen.getFreshLabel("saturate_add_min");
-        String labelDone = gen.getFreshLabel("saturate_add_done");
-
-        gen.emitComment("Saturated addition");
-
-        // Perform addition
-        gen.emit(String.format("add %s, %s, %s", dst, src1, src2));
-
-        // Check overflow (result > MAX_VALUE)
-        gen.emit(String.format("li $t9, %d", MAX_VALUE));
-        gen.emit(String.format("bgt %s, $t9, %s", dst, labelMax));
-
-        // Check underflow (result < MIN_VALUE)
-        gen.emit(String.format("li $t9, %d", MIN_VALUE));
-        gen.emit(String.format("blt %s, $t9, %s", dst, labelMin));
-
-        // Normal case - no saturation needed
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MAX
-        gen.emitLabel(labelMax);
-        gen.emit(String.format("li %s, %d", dst, MAX_VALUE));
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MIN
-        gen.emitLabel(labelMin);
-        gen.emit(String.format("li %s, %d", dst, MIN_VALUE));
-
-        gen.emitLabel(labelDone);
+        gen.emit(MipsInstr.op3(MipsOpcode.ADD, dst, src1, src2), "saturated addition");
+        emitClampMax(dst);
+        emitClampMin(dst);
     }
 
     /**
@@ -70,36 +74,9 @@ public class SaturationArithmetic
      */
     public void emitSaturatedSub(String dst, String src1, String src2)
     {
-        String labelMax = gen.getFreshLabel("saturate_sub_max");
-        String labelMin = gen.getFreshLabel("saturate_sub_min");
-        String labelDone = gen.getFreshLabel("saturate_sub_done");
-
-        gen.emitComment("Saturated subtraction");
-
-        // Perform subtraction
-        gen.emit(String.format("sub %s, %s, %s", dst, src1, src2));
-
-        // Check overflow
-        gen.emit(String.format("li $t9, %d", MAX_VALUE));
-        gen.emit(String.format("bgt %s, $t9, %s", dst, labelMax));
-
-        // Check underflow
-        gen.emit(String.format("li $t9, %d", MIN_VALUE));
-        gen.emit(String.format("blt %s, $t9, %s", dst, labelMin));
-
-        // Normal case
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MAX
-        gen.emitLabel(labelMax);
-        gen.emit(String.format("li %s, %d", dst, MAX_VALUE));
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MIN
-        gen.emitLabel(labelMin);
-        gen.emit(String.format("li %s, %d", dst, MIN_VALUE));
-
-        gen.emitLabel(labelDone);
+        gen.emit(MipsInstr.op3(MipsOpcode.SUB, dst, src1, src2), "saturated subtraction");
+        emitClampMax(dst);
+        emitClampMin(dst);
     }
 
     /**
@@ -109,36 +86,9 @@ public class SaturationArithmetic
      */
     public void emitSaturatedMul(String dst, String src1, String src2)
     {
-        String labelMax = gen.getFreshLabel("saturate_mul_max");
-        String labelMin = gen.getFreshLabel("saturate_mul_min");
-        String labelDone = gen.getFreshLabel("saturate_mul_done");
-
-        gen.emitComment("Saturated multiplication");
-
-        // Perform multiplication
-        gen.emit(String.format("mul %s, %s, %s", dst, src1, src2));
-
-        // Check overflow
-        gen.emit(String.format("li $t9, %d", MAX_VALUE));
-        gen.emit(String.format("bgt %s, $t9, %s", dst, labelMax));
-
-        // Check underflow
-        gen.emit(String.format("li $t9, %d", MIN_VALUE));
-        gen.emit(String.format("blt %s, $t9, %s", dst, labelMin));
-
-        // Normal case
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MAX
-        gen.emitLabel(labelMax);
-        gen.emit(String.format("li %s, %d", dst, MAX_VALUE));
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MIN
-        gen.emitLabel(labelMin);
-        gen.emit(String.format("li %s, %d", dst, MIN_VALUE));
-
-        gen.emitLabel(labelDone);
+        gen.emit(MipsInstr.op3(MipsOpcode.MUL, dst, src1, src2), "saturated multiplication");
+        emitClampMax(dst);
+        emitClampMin(dst);
     }
 
     /**
@@ -149,36 +99,9 @@ public class SaturationArithmetic
      */
     public void emitSaturatedDiv(String dst, String src1, String src2)
     {
-        String labelMax = gen.getFreshLabel("saturate_div_max");
-        String labelMin = gen.getFreshLabel("saturate_div_min");
-        String labelDone = gen.getFreshLabel("saturate_div_done");
-
-        gen.emitComment("Saturated division");
-
-        // Perform division (assume div-by-zero already checked)
-        gen.emit(String.format("div %s, %s, %s", dst, src1, src2));
-
-        // Check overflow (rare, but can happen: -32768 / -1 = 32768)
-        gen.emit(String.format("li $t9, %d", MAX_VALUE));
-        gen.emit(String.format("bgt %s, $t9, %s", dst, labelMax));
-
-        // Check underflow
-        gen.emit(String.format("li $t9, %d", MIN_VALUE));
-        gen.emit(String.format("blt %s, $t9, %s", dst, labelMin));
-
-        // Normal case
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MAX
-        gen.emitLabel(labelMax);
-        gen.emit(String.format("li %s, %d", dst, MAX_VALUE));
-        gen.emit(String.format("j %s", labelDone));
-
-        // Saturate to MIN
-        gen.emitLabel(labelMin);
-        gen.emit(String.format("li %s, %d", dst, MIN_VALUE));
-
-        gen.emitLabel(labelDone);
+        // Only -32768 / -1 = 32768 leaves the range
+        gen.emit(MipsInstr.op3(MipsOpcode.DIV, dst, src1, src2), "saturated division");
+        emitClampMax(dst);
     }
 
     /**
@@ -189,23 +112,27 @@ public class SaturationArithmetic
      */
     public void emitSaturatedNeg(String dst, String src)
     {
-        String labelSaturate = gen.getFreshLabel("saturate_neg");
-        String labelDone = gen.getFreshLabel("saturate_neg_done");
-
-        gen.emitComment("Saturated negation");
-
-        // Check if src == MIN_VALUE
-        gen.emit(String.format("li $t9, %d", MIN_VALUE));
-        gen.emit(String.format("beq %s, $t9, %s", src, labelSaturate));
+        gen.emit(MipsInstr.op2(MipsOpcode.NEG, dst, src), "saturated negation");
+        emitClampMax(dst);
+    }
 
-        // Normal case: just negate
-        gen.emit(String.format("neg %s, %s", dst, src));
-        gen.emit(String.format("j %s", labelDone));
+    // ==================== Clamps ====================
 
-        // Special case: -MIN_VALUE saturates to MAX_VALUE
-        gen.emitLabel(labelSaturate);
-        gen.emit(String.format("li %s, %d", dst, MAX_VALUE));
+    /**
+     * dst = min(dst, MAX_VALUE)
+     */
+    private void emitClampMax(String dst)
+    {
+        gen.emit(MipsInstr.op3(MipsOpcode.SLT, "$t8", MAX_REG, dst));
+        gen.emit(MipsInstr.op3(MipsOpcode.MOVN, dst, MAX_REG, "$t8"));
+    }
 
-        gen.emitLabel(labelDone);
+    /**
+     * dst = max(dst, MIN_VALUE)
+     */
+    private void emitClampMin(String dst)
+    {
+        gen.emit(MipsInstr.op3(MipsOpcode.SLT, "$t8", dst, MIN_REG));
+        gen.emit(MipsInstr.op3(MipsOpcode.MOVN, dst, MIN_REG, "$t8"));
     }
 }
@@ -1,6 +1,6 @@
 package regalloc;
 
-import temp.Temp;
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -8,157 +8,521 @@ import java.util.*;
  *
  * Assigns colors (registers) to nodes (temporaries) in the interference graph.
  * Goal: No two adjacent nodes have the same color.
- * Constraint: Use at most K colors (K=10 for $t0-$t9).
+ * Constraint: Use at most K colors (K=16: $t0-$t7 and $s0-$s7).
  *
- * Algorithm: Simplification-based coloring
+ * Colors are not all alike: a temp live across a call costs a save and a
+ * restore around every such call if it sits in a caller-saved register,
+ * but only one save per function call if it sits in a callee-saved one.
+ * Select therefore prefers callee-saved colors for call-crossing temps and
+ * caller-saved colors for all others (see setCallCrossing).
+ *
+ * Algorithm: Optimistic (Chaitin-Briggs) coloring
  * 1. Repeatedly remove nodes with degree < K (push on stack)
- * 2. If all remaining nodes have degree >= K: FAILURE (spilling needed)
- * 3. If graph is empty: SUCCESS, proceed to color
- * 4. Pop nodes from stack and assign colors (always possible if we reached here)
+ * 2. If all remaining nodes have degree >= K: pick the node with the
+ *    lowest spill cost / degree and push it anyway (potential spill)
+ * 3. When the graph is empty, pop nodes from the stack and assign colors
+ * 4. A potential spill whose neighbors happen to use fewer than K colors
+ *    still gets a register; one with no free color is an actual spill
+ * 5. A temp created by spill rewriting is never an actual spill: if it
+ *    finds no free color, it takes the color whose spillable neighbors
+ *    are cheapest to spill, and those neighbors are spilled instead.
+ *    An IR command reads at most three temps outside $a0-$a3 and writes
+ *    one, so at most four spill temps are live at once; with K = 16
+ *    there is always a color that only spillable neighbors hold.
+ *
+ * Actual spills are reported through getSpilledNodes(); the allocator
+ * rewrites them to memory and colors again.
+ *
+ * Before simplification, coalesce() may merge the two temps of a move
+ * into one node, so they get the same register and the move becomes a
+ * no-op. Only conservative merges are made (Briggs or George test), so
+ * coalescing never turns a K-colorable graph into an uncolorable one.
+ *
+ * Remaining nodes are kept in degree buckets (doubly linked lists indexed
+ * by current degree, with every degree >= K sharing the last bucket), so
+ * finding a low-degree node and updating a neighbor's degree are O(1).
+ * Potential spills come from a binary min-heap on cost / degree over the
+ * high-degree nodes. A key goes stale when the node's degree drops; it is
+ * recomputed when the node reaches the top, at most once per lost edge.
+ * The simplify/select pass is therefore O(V + E) without potential
+ * spills and O((V + E) log V) with them.
  */
 public class GraphColoring
 {
-    private static final int NUM_REGISTERS = 10; // $t0 through $t9
-    private static final String[] REGISTER_NAMES = {
-        "$t0", "$t1", "$t2", "$t3", "$t4",
-        "$t5", "$t6", "$t7", "$t8", "$t9"
-    };
+    private static final int K = RegisterAllocation.NUM_REGISTERS;
 
     private InterferenceGraph graph;
+    private SpillCosts costs;
+    private int[] spilled = new int[0];
+    private int[] alias;        // node → node it was merged into (itself if none)
+    private boolean[] crossesCall;
+
+    // Degree buckets over the working graph
+    private int[] currentDegree;
+    private int[] bucketHead;   // bucket → first node, -1 if empty
+    private int[] next;         // node → next node in its bucket
+    private int[] prev;         // node → previous node in its bucket
+    private boolean[] removed;
 
-    public GraphColoring(InterferenceGraph graph)
+    // Potential spills: min-heap of the nodes whose degree was >= K when
+    // the buckets were built, keyed by cost / degree
+    private int[] spillHeap;
+    private int spillHeapSize;
+    private double[] spillKey;      // node → its key
+    private int[] spillKeyDegree;   // node → degree the key was computed with
+
+    public GraphColoring(InterferenceGraph graph, SpillCosts costs)
     {
         this.graph = graph;
+        this.costs = costs;
+        this.crossesCall = new boolean[graph.capacity()];
+        this.alias = new int[graph.capacity()];
+        for (int id = 0; id < alias.length; id++) {
+            alias[id] = id;
+        }
     }
 
     /**
-     * Perform graph coloring
-     * @return RegisterAllocation result (success + color mapping)
+     * Mark a node as live across some call, so select prefers a
+     * callee-saved color for it
      */
-    public RegisterAllocation color()
+    public void setCallCrossing(int id)
     {
-        // Make a copy of the graph (we'll modify it)
-        InterferenceGraph workingGraph = graph.copy();
+        crossesCall[id] = true;
+    }
 
-        // Stack to remember the order of removed nodes
-        Stack<Temp> stack = new Stack<>();
+    /**
+     * Conservative coalescing of move-related nodes.
+     * Repeats over the moves until no more merges are possible, since one
+     * merge can make another move pass the tests.
+     *
+     * @param moves pairs of node ids, moves[2k] := moves[2k+1]
+     * @param moveCount number of pairs
+     * @return number of moves whose two temps now share a node
+     */
+    public int coalesce(int[] moves, int moveCount)
+    {
+        boolean[] done = new boolean[moveCount];
+        int coalesced = 0;
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+            for (int m = 0; m < moveCount; m++) {
+                if (done[m]) continue;
+
+                int a = getAlias(moves[2 * m]);
+                int b = getAlias(moves[2 * m + 1]);
+                if (a == b) {
+                    // Already merged through other moves
+                    done[m] = true;
+                    coalesced++;
+                    continue;
+                }
+                if (graph.interferes(a, b)) {
+                    // Constrained move: can never be coalesced
+                    done[m] = true;
+                    continue;
+                }
+                if (costs.isUnspillable(a) || costs.isUnspillable(b)) {
+                    // Spill temps must stay single-instruction ranges
+                    done[m] = true;
+                    continue;
+                }
+
+                if (briggs(a, b) || george(a, b)) {
+                    merge(a, b);
+                } else if (george(b, a)) {
+                    merge(b, a);
+                } else {
+                    continue;
+                }
+                done[m] = true;
+                coalesced++;
+                changed = true;
+            }
+        }
+        return coalesced;
+    }
+
+    /**
+     * Briggs: the merged node has fewer than K neighbors of degree >= K,
+     * so it will be simplified once its low-degree neighbors are
+     */
+    private boolean briggs(int a, int b)
+    {
+        int significant = 0;
+        int[] adjA = graph.getAdjacency(a);
+        for (int k = graph.getDegree(a) - 1; k >= 0; k--) {
+            int n = adjA[k];
+            // A common neighbor loses one edge in the merge
+            int degree = graph.getDegree(n) - (graph.interferes(n, b) ? 1 : 0);
+            if (degree >= K) significant++;
+        }
+        int[] adjB = graph.getAdjacency(b);
+        for (int k = graph.getDegree(b) - 1; k >= 0; k--) {
+            int n = adjB[k];
+            if (graph.interferes(n, a)) continue;  // counted above
+            if (graph.getDegree(n) >= K) significant++;
+        }
+        return significant < K;
+    }
+
+    /**
+     * George: every neighbor of b either has degree < K or already
+     * interferes with a, so merging b into a adds no real constraint
+     */
+    private boolean george(int a, int b)
+    {
+        int[] adjB = graph.getAdjacency(b);
+        for (int k = graph.getDegree(b) - 1; k >= 0; k--) {
+            int n = adjB[k];
+            if (graph.getDegree(n) >= K && !graph.interferes(n, a)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Simplification phase
-        boolean success = simplify(workingGraph, stack);
+    private void merge(int a, int b)
+    {
+        graph.merge(a, b);
+        costs.merge(a, b);
+        crossesCall[a] |= crossesCall[b];
+        alias[b] = a;
+    }
 
-        if (!success) {
-            // Coloring failed - need more than 10 registers
-            return new RegisterAllocation(false, null);
+    /**
+     * Node an id was coalesced into (the id itself if it was not)
+     */
+    public int getAlias(int id)
+    {
+        while (alias[id] != id) {
+            alias[id] = alias[alias[id]];  // path halving
+            id = alias[id];
         }
+        return id;
+    }
+
+    /**
+     * Perform graph coloring
+     * @return node id → register ordinal, -1 for nodes that were spilled
+     *         (see getSpilledNodes)
+     */
+    public int[] color()
+    {
+        // Stack to remember the order of removed nodes
+        int[] stack = new int[graph.size()];
+
+        // Simplification phase (always empties the graph)
+        int depth = simplify(stack);
 
         // Coloring phase
-        Map<Temp, String> colors = assignColors(stack);
+        int[] colors = assignColors(stack, depth);
+        expandAliases(colors);
 
-        return new RegisterAllocation(true, colors);
+        return colors;
+    }
+
+    /**
+     * Give every coalesced temp the color of its node, and spill it along
+     * with its node
+     */
+    private void expandAliases(int[] colors)
+    {
+        int extra = 0;
+        int[] expanded = Arrays.copyOf(spilled, alias.length);
+        for (int id = 0; id < alias.length; id++) {
+            if (alias[id] == id) continue;
+            int node = getAlias(id);
+            colors[id] = colors[node];
+            if (colors[node] < 0 && graph.isNode(node)) {
+                expanded[spilled.length + extra++] = id;
+            }
+        }
+        if (extra > 0) {
+            spilled = Arrays.copyOf(expanded, spilled.length + extra);
+        }
+    }
+
+    /**
+     * Node ids that got no color in the last color() call,
+     * including temps coalesced into them
+     */
+    public int[] getSpilledNodes()
+    {
+        return spilled;
     }
 
     /**
      * Simplification phase
-     * Repeatedly remove nodes with degree < K
+     * Repeatedly remove nodes with degree < K; when there are none,
+     * remove the cheapest potential spill instead
      *
-     * @param graph working graph (will be modified)
      * @param stack stack to store removed nodes
-     * @return true if successful, false if all nodes have degree >= K
+     * @return stack depth
      */
-    private boolean simplify(InterferenceGraph graph, Stack<Temp> stack)
+    private int simplify(int[] stack)
     {
-        while (!graph.isEmpty()) {
+        buildBuckets();
+
+        int depth = 0;
+        int remaining = graph.size();
+        while (remaining > 0) {
             // Find a node with degree < K
-            Temp lowDegreeNode = graph.findNodeWithDegreeLessThan(NUM_REGISTERS);
+            int node = -1;
+            for (int d = 0; d < K && node < 0; d++) {
+                node = bucketHead[d];
+            }
 
-            if (lowDegreeNode != null) {
-                // Found one! Remove it and push on stack
-                stack.push(lowDegreeNode);
-                graph.removeNode(lowDegreeNode);
+            if (node < 0) {
+                // All remaining nodes have degree >= K: push a potential spill
+                node = selectSpillCandidate();
             }
-            else {
-                // All remaining nodes have degree >= K
-                // This means we can't color the graph with K colors
-                // In a real compiler, we'd choose a node to spill to memory
-                // For this exercise, we just fail
-                return false;
+
+            // Remove it and push on stack
+            stack[depth++] = node;
+            removeNode(node);
+            remaining--;
+        }
+
+        return depth;
+    }
+
+    /**
+     * Node of the high-degree bucket with the lowest cost / degree
+     * (cheap to spill, and spilling it relieves many neighbors).
+     * Only called when every remaining node has degree >= K, so all of
+     * them are in the heap.
+     *
+     * Degrees only drop, so a stale key is never above the node's real
+     * key: re-keying the top and sifting it down keeps the order exact.
+     */
+    private int selectSpillCandidate()
+    {
+        while (true) {
+            int node = spillHeap[0];
+            if (removed[node] || currentDegree[node] < K) {
+                // Simplified since it was pushed
+                spillHeap[0] = spillHeap[--spillHeapSize];
+                siftDown(0);
+            } else if (spillKeyDegree[node] != currentDegree[node]) {
+                setSpillKey(node);
+                siftDown(0);
+            } else {
+                spillHeap[0] = spillHeap[--spillHeapSize];
+                siftDown(0);
+                return node;
             }
         }
+    }
 
-        // Successfully simplified the entire graph
-        return true;
+    private void setSpillKey(int node)
+    {
+        spillKeyDegree[node] = currentDegree[node];
+        spillKey[node] = costs.get(node) / currentDegree[node];
+    }
+
+    /* Heap order: lower key first, lower id on ties */
+    private boolean spillsBefore(int a, int b)
+    {
+        return spillKey[a] < spillKey[b] || (spillKey[a] == spillKey[b] && a < b);
+    }
+
+    private void siftDown(int i)
+    {
+        int node = spillHeap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= spillHeapSize) break;
+            if (child + 1 < spillHeapSize && spillsBefore(spillHeap[child + 1], spillHeap[child])) {
+                child++;
+            }
+            if (!spillsBefore(spillHeap[child], node)) break;
+            spillHeap[i] = spillHeap[child];
+            i = child;
+        }
+        spillHeap[i] = node;
+    }
+
+    /**
+     * Heapify the nodes of the high-degree bucket
+     */
+    private void buildSpillHeap()
+    {
+        int n = graph.capacity();
+        spillHeap = new int[n];
+        spillKey = new double[n];
+        spillKeyDegree = new int[n];
+        spillHeapSize = 0;
+        for (int node = bucketHead[K]; node >= 0; node = next[node]) {
+            setSpillKey(node);
+            spillHeap[spillHeapSize++] = node;
+        }
+        for (int i = spillHeapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void buildBuckets()
+    {
+        int n = graph.capacity();
+        currentDegree = new int[n];
+        bucketHead = new int[K + 1];
+        next = new int[n];
+        prev = new int[n];
+        removed = new boolean[n];
+        Arrays.fill(bucketHead, -1);
+
+        for (int id = 0; id < n; id++) {
+            if (!graph.isNode(id)) {
+                removed[id] = true;
+                continue;
+            }
+            currentDegree[id] = graph.getDegree(id);
+            link(id);
+        }
+        buildSpillHeap();
+    }
+
+    private int bucketOf(int node)
+    {
+        return Math.min(currentDegree[node], K);
+    }
+
+    private void link(int node)
+    {
+        int b = bucketOf(node);
+        prev[node] = -1;
+        next[node] = bucketHead[b];
+        if (bucketHead[b] >= 0) prev[bucketHead[b]] = node;
+        bucketHead[b] = node;
+    }
+
+    private void unlink(int node)
+    {
+        if (prev[node] >= 0) next[prev[node]] = next[node];
+        else bucketHead[bucketOf(node)] = next[node];
+        if (next[node] >= 0) prev[next[node]] = prev[node];
+    }
+
+    /**
+     * Take a node out of the working graph, lowering its neighbors' degrees
+     */
+    private void removeNode(int node)
+    {
+        unlink(node);
+        removed[node] = true;
+
+        int[] adj = graph.getAdjacency(node);
+        for (int k = graph.getDegree(node) - 1; k >= 0; k--) {
+            int neighbor = adj[k];
+            if (removed[neighbor]) continue;
+
+            if (currentDegree[neighbor] <= K) {
+                // Degree crosses into (or moves within) the low buckets
+                unlink(neighbor);
+                currentDegree[neighbor]--;
+                link(neighbor);
+            } else {
+                currentDegree[neighbor]--;
+            }
+        }
     }
 
     /**
      * Coloring phase
      * Pop nodes from stack and assign colors
      *
-     * Since we removed nodes with degree < K, we're guaranteed
-     * that when we pop a node, it has < K neighbors, so we can
-     * always find a free color.
+     * A node removed with degree < K always finds a free color; a
+     * potential spill may not, and is then recorded as spilled.
      *
      * @param stack stack of nodes in reverse order
-     * @return mapping from temp to register name
+     * @param depth number of nodes on the stack
+     * @return mapping from node id to register ordinal (-1 if none)
      */
-    private Map<Temp, String> assignColors(Stack<Temp> stack)
+    private int[] assignColors(int[] stack, int depth)
     {
-        Map<Temp, String> colors = new HashMap<>();
-        Set<String> availableColors = new HashSet<>(Arrays.asList(REGISTER_NAMES));
+        int[] colors = new int[graph.capacity()];
+        Arrays.fill(colors, -1);
+        int[] spills = new int[depth];
+        int spillCount = 0;
 
-        while (!stack.isEmpty()) {
-            Temp node = stack.pop();
+        while (depth > 0) {
+            int node = stack[--depth];
 
             // Find which colors are used by neighbors
-            Set<String> usedColors = new HashSet<>();
-            for (Temp neighbor : graph.getNeighbors(node)) {
-                if (colors.containsKey(neighbor)) {
-                    usedColors.add(colors.get(neighbor));
-                }
+            int usedColors = 0;
+            int[] adj = graph.getAdjacency(node);
+            for (int k = graph.getDegree(node) - 1; k >= 0; k--) {
+                int c = colors[adj[k]];
+                if (c >= 0) usedColors |= 1 << c;
             }
 
-            // Find a free color
-            String chosenColor = null;
-            for (String color : availableColors) {
-                if (!usedColors.contains(color)) {
-                    chosenColor = color;
-                    break;
-                }
-            }
+            // Lowest free color of the preferred kind, else any free color
+            int preferred = crossesCall[node]
+                ? RegisterAllocation.CALLEE_SAVED_MASK
+                : RegisterAllocation.CALLER_SAVED_MASK;
+            int free = ~usedColors & preferred;
+            int chosenColor = Integer.numberOfTrailingZeros(free != 0 ? free : ~usedColors);
 
-            if (chosenColor == null) {
-                // This should never happen if simplification succeeded
-                System.err.println("ERROR: No free color found during coloring phase!");
-                System.err.format("Node: Temp_%d, Neighbors: %d, Used colors: %s\n",
-                    node.getSerialNumber(),
-                    graph.getNeighbors(node).size(),
-                    usedColors);
-                return null;
+            if (chosenColor >= K) {
+                if (!costs.isUnspillable(node)) {
+                    // Actual spill: the node stays uncolored
+                    spills[spillCount++] = node;
+                    continue;
+                }
+                // A spill temp must get a register: spill the neighbors holding one
+                chosenColor = cheapestColorToFree(node, colors);
+                for (int k = graph.getDegree(node) - 1; k >= 0; k--) {
+                    int neighbor = adj[k];
+                    if (colors[neighbor] == chosenColor) {
+                        colors[neighbor] = -1;
+                        spills[spillCount++] = neighbor;
+                    }
+                }
             }
 
-            colors.put(node, chosenColor);
+            colors[node] = chosenColor;
         }
 
+        spilled = Arrays.copyOf(spills, spillCount);
         return colors;
     }
 
     /**
-     * Print coloring result for debugging
+     * Color whose neighbors of node cost least to spill together
+     * (infinite if a spill temp holds it)
      */
-    public static void printColoring(RegisterAllocation allocation)
+    private int cheapestColorToFree(int node, int[] colors)
     {
-        if (!allocation.success) {
-            System.out.println("=== REGISTER ALLOCATION FAILED ===");
-            return;
+        double[] held = new double[K];
+        int[] adj = graph.getAdjacency(node);
+        for (int k = graph.getDegree(node) - 1; k >= 0; k--) {
+            int c = colors[adj[k]];
+            if (c >= 0) held[c] += costs.get(adj[k]);
         }
 
-        System.out.println("=== REGISTER ALLOCATION ===");
-        Map<Temp, String> colors = allocation.assignment;
-
-        List<Temp> temps = new ArrayList<>(colors.keySet());
-        temps.sort(Comparator.comparingInt(Temp::getSerialNumber));
+        int best = 0;
+        for (int c = 1; c < K; c++) {
+            if (held[c] < held[best]) best = c;
+        }
+        return best;
+    }
 
-        for (Temp t : temps) {
-            System.out.format("Temp_%d → %s\n", t.getSerialNumber(), colors.get(t));
+    /**
+     * Print coloring result for debugging
+     */
+    public void printColoring(int[] colors, PrintStream out)
+    {
+        out.println(spilled.length == 0
+            ? "=== REGISTER ALLOCATION ==="
+            : "=== REGISTER ALLOCATION (with spills) ===");
+        for (int id = 0; id < colors.length; id++) {
+            if (colors[id] >= 0 && graph.isNode(id)) {
+                out.format("Temp_%d → %s\n", graph.getTemp(id).getSerialNumber(),
+                    RegisterAllocation.REGISTER_NAMES[colors[id]]);
+            }
         }
     }
 }
@@ -2,6 +2,7 @@ package regalloc;
 
 import ir.*;
 import temp.Temp;
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -10,310 +11,567 @@ import java.util.*;
  * Computes which temporaries are "live" at each point in the program.
  * A temporary is live if it holds a value that will be used in the future.
  *
- * Algorithm: Backward dataflow analysis
- * 1. Initialize all IN/OUT sets to empty
- * 2. Compute USE and DEF sets for each instruction
- * 3. Iterate backwards through instructions updating IN/OUT until fixpoint
+ * Algorithm: Backward dataflow analysis over one function
+ * 1. Renumber the function's temps densely (0 .. tempCount-1), in order
+ *    of first appearance, so temps added later by spill rewriting (which
+ *    have large serial numbers) do not widen the bit vectors
+ * 2. Encode USE/DEF of each instruction as index arrays and resolve
+ *    every jump to a successor index once, through a label table
+ * 3. Run a worklist over bit-vector IN/OUT rows until the exact fixpoint
  *
  * Dataflow equations:
  * IN[i] = USE[i] ∪ (OUT[i] - DEF[i])
  * OUT[i] = ∪ IN[successor of i]
+ *
+ * The worklist is ordered by postorder of the control flow graph (reverse
+ * postorder of the reversed graph), so an instruction is normally visited
+ * after its successors and loops converge in a couple of passes. IN/OUT
+ * are rows of a long[] matrix, so no sets are allocated while iterating.
+ *
+ * analyzeBlocks() is the cheaper alternative for clients that walk the
+ * code themselves (linear scan): IN/OUT only per basic block, so memory
+ * is blocks × temps bits instead of commands × temps. The per-command
+ * queries (isLiveOut, nextLiveOut, ...) need analyze(); after
+ * analyzeBlocks() a client starts from getBlockLiveOut and steps
+ * backward through the block with getUse/getDef.
  */
 public class LivenessAnalysis
 {
-    private List<IrCommand> commands;
-    private Map<IrCommand, LivenessInfo> livenessMap;
+    private static final int[] NO_INDICES = new int[0];
+
+    private final List<IrCommand> commands;
+    private final int size;
+
+    // Dense temp numbering: serial number → index, and index → temp
+    private final Map<Integer, Integer> indexBySerial = new HashMap<>();
+    private int tempCount;
+    private Temp[] temps;
+
+    // Per-instruction USE/DEF as temp indices, and control flow as instruction indices
+    private int[][] use;
+    private int[][] def;
+    private int[][] succ;
+    private int[][] pred;
+
+    // IN/OUT bit vectors: row i occupies words [i * words, (i + 1) * words)
+    private int words;
+    private long[] liveIn;
+    private long[] liveOut;
+
+    // analyzeBlocks(): block b is commands [blockStart[b], blockStart[b + 1]),
+    // with IN/OUT rows laid out like the per-command ones
+    private int[] blockStart;
+    private long[] blockIn;
+    private long[] blockOut;
+
+    private int visits = 0;
+
+    /**
+     * Liveness of one function unit; jump targets come from the unit's label table
+     */
+    public LivenessAnalysis(IrFunction function)
+    {
+        this(function.getCommands(), function::getLabelIndex);
+    }
 
+    /**
+     * Liveness of an arbitrary command sequence
+     */
     public LivenessAnalysis(List<IrCommand> commands)
+    {
+        this(commands, buildLabelTable(commands));
+    }
+
+    private LivenessAnalysis(List<IrCommand> commands, LabelTable labels)
     {
         this.commands = commands;
-        this.livenessMap = new HashMap<>();
+        this.size = commands.size();
 
-        // Initialize liveness info for each command
-        for (IrCommand cmd : commands) {
-            livenessMap.put(cmd, new LivenessInfo());
+        numberTemps();
+        computeUseDefSets();
+        computeSuccessors(labels);
+    }
+
+    /**
+     * Resolves a label name to the index of its IrCommandLabel (-1 if unknown)
+     */
+    private interface LabelTable
+    {
+        int indexOf(String labelName);
+    }
+
+    private static LabelTable buildLabelTable(List<IrCommand> commands)
+    {
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            IrCommand cmd = commands.get(i);
+            if (cmd.opcode == IrOpcode.LABEL) {
+                labels.put(((IrCommandLabel) cmd).labelName, i);
+            }
         }
+        return name -> labels.getOrDefault(name, -1);
     }
 
     /**
-     * Perform liveness analysis
-     * @return map from IR command to liveness information
+     * Perform liveness analysis (exact fixpoint)
      */
-    public Map<IrCommand, LivenessInfo> analyze()
+    public void analyze()
     {
-        // Step 1: Compute USE and DEF sets for each instruction
-        computeUseDefSets();
+        liveIn = new long[size * words];
+        liveOut = new long[size * words];
+        if (size == 0) {
+            return;
+        }
 
-        // Step 2: Iterate until fixpoint
-        boolean changed = true;
-        int iterations = 0;
-        int maxIterations = 1000; // Safety limit
+        // order[k] = instruction processed k-th; rank is its inverse
+        int[] order = postorder();
+        int[] rank = new int[size];
+        for (int k = 0; k < size; k++) {
+            rank[order[k]] = k;
+        }
 
-        while (changed && iterations < maxIterations) {
-            changed = false;
-            iterations++;
+        long[] newIn = new long[words];
+        BitSet pending = new BitSet(size);
+        pending.set(0, size);
+        int cursor = 0;
 
-            // Process commands in REVERSE order (backwards analysis)
-            for (int i = commands.size() - 1; i >= 0; i--) {
-                IrCommand cmd = commands.get(i);
-                LivenessInfo info = livenessMap.get(cmd);
+        while (!pending.isEmpty()) {
+            int k = pending.nextSetBit(cursor);
+            if (k < 0) {
+                k = pending.nextSetBit(0);
+            }
+            pending.clear(k);
+            cursor = k + 1;
+            visits++;
 
-                // Update OUT[i] = ∪ IN[successor of i]
-                Set<Temp> newOut = new HashSet<>();
+            int i = order[k];
+            int row = i * words;
 
-                // Get successors (next instruction, or jump targets)
-                List<IrCommand> successors = getSuccessors(i);
-                for (IrCommand succ : successors) {
-                    LivenessInfo succInfo = livenessMap.get(succ);
-                    newOut.addAll(succInfo.in);
+            // OUT[i] = ∪ IN[successor of i]
+            Arrays.fill(liveOut, row, row + words, 0L);
+            for (int s : succ[i]) {
+                int srow = s * words;
+                for (int w = 0; w < words; w++) {
+                    liveOut[row + w] |= liveIn[srow + w];
                 }
+            }
 
-                if (!newOut.equals(info.out)) {
-                    info.out = newOut;
-                    changed = true;
-                }
+            // IN[i] = USE[i] ∪ (OUT[i] - DEF[i])
+            System.arraycopy(liveOut, row, newIn, 0, words);
+            for (int d : def[i]) {
+                newIn[d >>> 6] &= ~(1L << d);
+            }
+            for (int u : use[i]) {
+                newIn[u >>> 6] |= 1L << u;
+            }
 
-                // Update IN[i] = USE[i] ∪ (OUT[i] - DEF[i])
-                if (info.updateIn()) {
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                if (liveIn[row + w] != newIn[w]) {
+                    liveIn[row + w] = newIn[w];
                     changed = true;
                 }
             }
-        }
 
-        if (iterations >= maxIterations) {
-            System.err.println("Warning: Liveness analysis did not converge after " + maxIterations + " iterations");
+            // A changed IN only affects the predecessors' OUT
+            if (changed) {
+                for (int p : pred[i]) {
+                    pending.set(rank[p]);
+                }
+            }
         }
-
-        return livenessMap;
     }
 
     /**
-     * Compute USE and DEF sets for each IR command
+     * Liveness at basic block boundaries only (see the class comment).
+     * Blocks are visited in reverse order until nothing changes; straight
+     * line code is one block and needs a single pass.
      */
-    private void computeUseDefSets()
+    public void analyzeBlocks()
     {
-        for (IrCommand cmd : commands) {
-            LivenessInfo info = livenessMap.get(cmd);
-
-            // Extract USE and DEF based on command type
-            if (cmd instanceof IrCommandBinopAddIntegers) {
-                IrCommandBinopAddIntegers binop = (IrCommandBinopAddIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IrCommandBinopSubIntegers) {
-                IrCommandBinopSubIntegers binop = (IrCommandBinopSubIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IrCommandBinopMulIntegers) {
-                IrCommandBinopMulIntegers binop = (IrCommandBinopMulIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IrCommandBinopDivIntegers) {
-                IrCommandBinopDivIntegers binop = (IrCommandBinopDivIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IrCommandBinopEqIntegers) {
-                IrCommandBinopEqIntegers binop = (IrCommandBinopEqIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IrCommandBinopLtIntegers) {
-                IrCommandBinopLtIntegers binop = (IrCommandBinopLtIntegers) cmd;
-                info.use.add(binop.t1);
-                info.use.add(binop.t2);
-                info.def.add(binop.dst);
-            }
-            else if (cmd instanceof IRcommandConstInt) {
-                IRcommandConstInt constCmd = (IRcommandConstInt) cmd;
-                info.def.add(constCmd.t);
-            }
-            else if (cmd instanceof IrCommandConstString) {
-                IrCommandConstString constCmd = (IrCommandConstString) cmd;
-                info.def.add(constCmd.dst);
-            }
-            else if (cmd instanceof IrCommandNilConst) {
-                IrCommandNilConst constCmd = (IrCommandNilConst) cmd;
-                info.def.add(constCmd.dst);
-            }
-            else if (cmd instanceof IrCommandStringConcat) {
-                IrCommandStringConcat strCmd = (IrCommandStringConcat) cmd;
-                info.use.add(strCmd.str1);
-                info.use.add(strCmd.str2);
-                info.def.add(strCmd.dst);
-            }
-            else if (cmd instanceof IrCommandStringEqual) {
-                IrCommandStringEqual strCmd = (IrCommandStringEqual) cmd;
-                info.use.add(strCmd.str1);
-                info.use.add(strCmd.str2);
-                info.def.add(strCmd.dst);
-            }
-            else if (cmd instanceof IrCommandArrayAccess) {
-                IrCommandArrayAccess arrCmd = (IrCommandArrayAccess) cmd;
-                info.use.add(arrCmd.array);
-                info.use.add(arrCmd.index);
-                info.def.add(arrCmd.dst);
-            }
-            else if (cmd instanceof IrCommandArrayStore) {
-                IrCommandArrayStore arrCmd = (IrCommandArrayStore) cmd;
-                info.use.add(arrCmd.array);
-                info.use.add(arrCmd.index);
-                info.use.add(arrCmd.value);
-                // No DEF (store doesn't define a new temp)
-            }
-            else if (cmd instanceof IrCommandArrayLength) {
-                IrCommandArrayLength arrCmd = (IrCommandArrayLength) cmd;
-                info.use.add(arrCmd.array);
-                info.def.add(arrCmd.dst);
-            }
-            else if (cmd instanceof IrCommandNewArray) {
-                IrCommandNewArray arrCmd = (IrCommandNewArray) cmd;
-                info.use.add(arrCmd.size);
-                info.def.add(arrCmd.dst);
-            }
-            else if (cmd instanceof IrCommandFieldAccess) {
-                IrCommandFieldAccess fieldCmd = (IrCommandFieldAccess) cmd;
-                info.use.add(fieldCmd.object);
-                info.def.add(fieldCmd.dst);
-            }
-            else if (cmd instanceof IrCommandFieldStore) {
-                IrCommandFieldStore fieldCmd = (IrCommandFieldStore) cmd;
-                info.use.add(fieldCmd.object);
-                info.use.add(fieldCmd.value);
-                // No DEF
-            }
-            else if (cmd instanceof IrCommandNewObject) {
-                IrCommandNewObject objCmd = (IrCommandNewObject) cmd;
-                info.def.add(objCmd.dst);
-            }
-            else if (cmd instanceof IrCommandJumpIfEqToZero) {
-                IrCommandJumpIfEqToZero jumpCmd = (IrCommandJumpIfEqToZero) cmd;
-                info.use.add(jumpCmd.t);
-                // No DEF
-            }
-            else if (cmd instanceof IrCommandReturn) {
-                IrCommandReturn retCmd = (IrCommandReturn) cmd;
-                info.use.add(retCmd.returnValue);
-                // No DEF
-            }
-            else if (cmd instanceof IrCommandCallFunc) {
-                IrCommandCallFunc callCmd = (IrCommandCallFunc) cmd;
-                // If function returns a value, it defines a temp
-                if (callCmd.t != null) {
-                    info.def.add(callCmd.t);
+        int[] blockOf = splitBlocks();
+        int blocks = blockStart.length - 1;
+        blockIn = new long[blocks * words];
+        blockOut = new long[blocks * words];
+
+        long[] live = new long[words];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = blocks - 1; b >= 0; b--) {
+                visits++;
+                int row = b * words;
+                int last = blockStart[b + 1] - 1;
+
+                // OUT[b] = ∪ IN[successor block]
+                Arrays.fill(blockOut, row, row + words, 0L);
+                for (int s : succ[last]) {
+                    int srow = blockOf[s] * words;
+                    for (int w = 0; w < words; w++) {
+                        blockOut[row + w] |= blockIn[srow + w];
+                    }
                 }
-                // No USE (arguments would need to be added if supported)
-            }
-            else if (cmd instanceof IrCommandMethodCall) {
-                IrCommandMethodCall callCmd = (IrCommandMethodCall) cmd;
-                info.use.add(callCmd.object);
-                // If method returns a value, it defines a temp
-                if (callCmd.dst != null) {
-                    info.def.add(callCmd.dst);
+
+                // IN[b]: OUT[b] carried backward through the block
+                System.arraycopy(blockOut, row, live, 0, words);
+                for (int i = last; i >= blockStart[b]; i--) {
+                    for (int d : def[i]) {
+                        live[d >>> 6] &= ~(1L << d);
+                    }
+                    for (int u : use[i]) {
+                        live[u >>> 6] |= 1L << u;
+                    }
                 }
-                // No USE for arguments (would need to be added if supported)
-            }
-            else if (cmd instanceof IrCommandLoad) {
-                IrCommandLoad loadCmd = (IrCommandLoad) cmd;
-                if (loadCmd.dst != null) {
-                    info.def.add(loadCmd.dst);
+                for (int w = 0; w < words; w++) {
+                    if (blockIn[row + w] != live[w]) {
+                        blockIn[row + w] = live[w];
+                        changed = true;
+                    }
                 }
-                // No USE (loading from memory)
             }
-            else if (cmd instanceof IrCommandStore) {
-                IrCommandStore storeCmd = (IrCommandStore) cmd;
-                if (storeCmd.src != null) {
-                    info.use.add(storeCmd.src);
-                }
-                // No DEF
+        }
+    }
+
+    /**
+     * Fill blockStart: a block starts at the first command, at every
+     * label and after every command that does not just fall through
+     * @return command index → block index
+     */
+    private int[] splitBlocks()
+    {
+        int[] blockOf = new int[size];
+        int[] starts = new int[size + 1];
+        int blocks = 0;
+        for (int i = 0; i < size; i++) {
+            boolean leader = (i == 0)
+                || commands.get(i).opcode == IrOpcode.LABEL
+                || succ[i - 1].length != 1 || succ[i - 1][0] != i;
+            if (leader) {
+                starts[blocks++] = i;
             }
-            // IrCommandLabel, IrCommandJumpLabel, IrCommandReturnVoid, IrCommandAllocate have no USE/DEF
+            blockOf[i] = blocks - 1;
         }
+        starts[blocks] = size;
+        blockStart = Arrays.copyOf(starts, blocks + 1);
+        return blockOf;
     }
 
     /**
-     * Get successors of a command
-     * For most commands, it's just the next command
-     * For jumps, it's the jump target AND the next command (conditional jump)
-     * For unconditional jumps and returns, it's just the jump target or exit
+     * Assign every temp of the command sequence a dense index
      */
-    private List<IrCommand> getSuccessors(int index)
-    {
-        List<IrCommand> successors = new ArrayList<>();
-        IrCommand cmd = commands.get(index);
-
-        // Check if this is a jump
-        if (cmd instanceof IrCommandJumpLabel) {
-            // Unconditional jump: only successor is the target
-            IrCommandJumpLabel jump = (IrCommandJumpLabel) cmd;
-            IrCommand target = findLabelTarget(jump.labelName);
-            if (target != null) {
-                successors.add(target);
+    private void numberTemps()
+    {
+        List<Temp> seen = new ArrayList<>();
+        for (IrCommand cmd : commands) {
+            for (Temp t : cmd.uses()) {
+                number(t, seen);
             }
+            for (Temp t : cmd.defs()) {
+                number(t, seen);
+            }
+        }
+
+        tempCount = seen.size();
+        words = Math.max(1, (tempCount + 63) >>> 6);
+        temps = seen.toArray(new Temp[tempCount]);
+    }
+
+    private void number(Temp t, List<Temp> seen)
+    {
+        if (indexBySerial.putIfAbsent(t.getSerialNumber(), seen.size()) == null) {
+            seen.add(t);
         }
-        else if (cmd instanceof IrCommandJumpIfEqToZero) {
-            // Conditional jump: successors are BOTH next instruction AND jump target
-            IrCommandJumpIfEqToZero jump = (IrCommandJumpIfEqToZero) cmd;
+    }
 
-            // Add next instruction
-            if (index + 1 < commands.size()) {
-                successors.add(commands.get(index + 1));
+    /**
+     * Compute USE and DEF index arrays for each IR command
+     */
+    private void computeUseDefSets()
+    {
+        use = new int[size][];
+        def = new int[size][];
+        for (int i = 0; i < size; i++) {
+            IrCommand cmd = commands.get(i);
+            use[i] = indicesOf(cmd.uses());
+            def[i] = indicesOf(cmd.defs());
+        }
+    }
+
+    private int[] indicesOf(Temp[] ts)
+    {
+        if (ts.length == 0) {
+            return NO_INDICES;
+        }
+        int[] result = new int[ts.length];
+        for (int k = 0; k < ts.length; k++) {
+            result[k] = indexBySerial.get(ts[k].getSerialNumber());
+        }
+        return result;
+    }
+
+    /**
+     * Resolve successors (and predecessors) of every command once
+     * For most commands, it's just the next command
+     * For conditional jumps, it's the jump target AND the next command
+     * For unconditional jumps it's the target; returns have none
+     */
+    private void computeSuccessors(LabelTable labels)
+    {
+        succ = new int[size][];
+        int[] predCount = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            IrCommand cmd = commands.get(i);
+            int next = (i + 1 < size) ? i + 1 : -1;
+
+            switch (cmd.opcode) {
+                case JUMP:
+                    succ[i] = targets(labels.indexOf(((IrCommandJumpLabel) cmd).labelName), -1);
+                    break;
+                case JUMP_IF_EQ_TO_ZERO:
+                    succ[i] = targets(next, labels.indexOf(((IrCommandJumpIfEqToZero) cmd).labelName));
+                    break;
+                case RETURN:
+                case RETURN_VOID:
+                case FUNCTION_EXIT:
+                    // Return has no successors (exits function)
+                    succ[i] = NO_INDICES;
+                    break;
+                default:
+                    succ[i] = targets(next, -1);
+                    break;
             }
 
-            // Add jump target
-            IrCommand target = findLabelTarget(jump.labelName);
-            if (target != null) {
-                successors.add(target);
+            for (int s : succ[i]) {
+                predCount[s]++;
             }
         }
-        else if (cmd instanceof IrCommandReturn || cmd instanceof IrCommandReturnVoid) {
-            // Return has no successors (exits function)
-            // Leave empty
+
+        pred = new int[size][];
+        for (int i = 0; i < size; i++) {
+            pred[i] = (predCount[i] == 0) ? NO_INDICES : new int[predCount[i]];
+            predCount[i] = 0;
         }
-        else {
-            // Normal command: successor is next instruction
-            if (index + 1 < commands.size()) {
-                successors.add(commands.get(index + 1));
+        for (int i = 0; i < size; i++) {
+            for (int s : succ[i]) {
+                pred[s][predCount[s]++] = i;
             }
         }
+    }
 
-        return successors;
+    private static int[] targets(int a, int b)
+    {
+        if (a < 0 && b < 0) return NO_INDICES;
+        if (b < 0 || a == b) return new int[] { a };
+        if (a < 0) return new int[] { b };
+        return new int[] { a, b };
     }
 
     /**
-     * Find the IR command that corresponds to a label
+     * Postorder of the CFG from the first command (iterative DFS).
+     * Commands not reachable from the entry follow, in reverse program order.
      */
-    private IrCommand findLabelTarget(String labelName)
+    private int[] postorder()
     {
-        for (IrCommand cmd : commands) {
-            if (cmd instanceof IrCommandLabel) {
-                IrCommandLabel label = (IrCommandLabel) cmd;
-                if (label.labelName.equals(labelName)) {
-                    return cmd;
+        int[] order = new int[size];
+        int count = 0;
+        boolean[] seen = new boolean[size];
+        int[] stack = new int[size];
+        int[] nextChild = new int[size];
+        int top = 0;
+
+        stack[top++] = 0;
+        seen[0] = true;
+        while (top > 0) {
+            int node = stack[top - 1];
+            if (nextChild[node] < succ[node].length) {
+                int s = succ[node][nextChild[node]++];
+                if (!seen[s]) {
+                    seen[s] = true;
+                    stack[top++] = s;
                 }
+            } else {
+                order[count++] = node;
+                top--;
             }
         }
-        return null;
+
+        for (int i = size - 1; i >= 0; i--) {
+            if (!seen[i]) {
+                order[count++] = i;
+            }
+        }
+        return order;
+    }
+
+    // ==================== Results ====================
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Number of dense temp indices used by this function
+     */
+    public int getTempCount()
+    {
+        return tempCount;
+    }
+
+    /**
+     * The temp with the given dense index
+     */
+    public Temp getTemp(int index)
+    {
+        return temps[index];
+    }
+
+    /**
+     * Dense index of a temp, or -1 if no command of this function mentions it
+     */
+    public int indexOf(Temp t)
+    {
+        Integer index = indexBySerial.get(t.getSerialNumber());
+        return (index == null) ? -1 : index;
+    }
+
+    public IrCommand getCommand(int command)
+    {
+        return commands.get(command);
+    }
+
+    /**
+     * Instruction indices that may execute right after the command
+     */
+    public int[] getSuccessors(int command)
+    {
+        return succ[command];
+    }
+
+    public int[] getUse(int command)
+    {
+        return use[command];
+    }
+
+    public int[] getDef(int command)
+    {
+        return def[command];
+    }
+
+    /**
+     * Number of basic blocks (after analyzeBlocks)
+     */
+    public int getBlockCount()
+    {
+        return blockStart.length - 1;
+    }
+
+    /**
+     * First command of a block
+     */
+    public int getBlockStart(int block)
+    {
+        return blockStart[block];
+    }
+
+    /**
+     * One past the last command of a block
+     */
+    public int getBlockEnd(int block)
+    {
+        return blockStart[block + 1];
+    }
+
+    /**
+     * Temps live at the end of a block (a fresh set the caller may modify)
+     */
+    public BitSet getBlockLiveOut(int block)
+    {
+        return BitSet.valueOf(Arrays.copyOfRange(blockOut, block * words, (block + 1) * words));
+    }
+
+    public boolean isLiveOut(int command, int temp)
+    {
+        return (liveOut[command * words + (temp >>> 6)] & (1L << temp)) != 0;
+    }
+
+    public boolean isLiveIn(int command, int temp)
+    {
+        return (liveIn[command * words + (temp >>> 6)] & (1L << temp)) != 0;
+    }
+
+    /**
+     * Next temp index >= from that is live after the command, or -1.
+     * Iterate with: for (t = nextLiveOut(i, 0); t >= 0; t = nextLiveOut(i, t + 1))
+     */
+    public int nextLiveOut(int command, int from)
+    {
+        return nextSet(liveOut, command, from);
+    }
+
+    public int nextLiveIn(int command, int from)
+    {
+        return nextSet(liveIn, command, from);
+    }
+
+    private int nextSet(long[] matrix, int command, int from)
+    {
+        if (from >= tempCount) return -1;
+        int row = command * words;
+        int w = from >>> 6;
+        long bits = matrix[row + w] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int t = (w << 6) + Long.numberOfTrailingZeros(bits);
+                return (t < tempCount) ? t : -1;
+            }
+            if (++w == words) return -1;
+            bits = matrix[row + w];
+        }
+    }
+
+    /**
+     * Number of instruction visits the worklist needed to reach the fixpoint
+     * (block visits after analyzeBlocks)
+     */
+    public int getVisitCount()
+    {
+        return visits;
     }
 
     /**
      * Print liveness information for debugging
      */
-    public void printLiveness()
+    public void printLiveness(PrintStream out)
     {
-        System.out.println("=== LIVENESS ANALYSIS ===");
-        for (int i = 0; i < commands.size(); i++) {
-            IrCommand cmd = commands.get(i);
-            LivenessInfo info = livenessMap.get(cmd);
-            System.out.format("[%3d] %-50s %s\n", i, cmd.toString(), info.toString());
+        out.println("=== LIVENESS ANALYSIS ===");
+        out.format("%d commands, %d temps, %d visits to fixpoint\n", size, tempCount, visits);
+        for (int i = 0; i < size; i++) {
+            out.format("[%3d] %-50s USE=%s DEF=%s IN=%s OUT=%s\n", i, commands.get(i).toString(),
+                indicesToString(use[i]), indicesToString(def[i]), rowToString(liveIn, i), rowToString(liveOut, i));
+        }
+    }
+
+    private String indicesToString(int[] indices)
+    {
+        StringBuilder sb = new StringBuilder("{");
+        for (int k = 0; k < indices.length; k++) {
+            if (k > 0) sb.append(", ");
+            sb.append("Temp_").append(temps[indices[k]].getSerialNumber());
+        }
+        return sb.append("}").toString();
+    }
+
+    private String rowToString(long[] matrix, int command)
+    {
+        StringBuilder sb = new StringBuilder("{");
+        boolean first = true;
+        for (int t = nextSet(matrix, command, 0); t >= 0; t = nextSet(matrix, command, t + 1)) {
+            if (!first) sb.append(", ");
+            sb.append("Temp_").append(temps[t].getSerialNumber());
+            first = false;
         }
+        return sb.append("}").toString();
     }
 }
@@ -0,0 +1,158 @@
+package regalloc;
+
+import ir.*;
+import temp.Temp;
+import java.util.*;
+
+/**
+ * Load Forwarding
+ *
+ * Turns variable loads whose value is already in a temp into moves:
+ *
+ *   x := Temp_3                 x := Temp_3
+ *   ...               becomes   ...
+ *   Temp_5 := x                 Temp_5 := MOVE Temp_3
+ *
+ * and likewise for a second load of x after a first one. The moves are
+ * then candidates for coalescing, which gives both temps one register
+ * and removes the copy altogether (a memory load saved).
+ *
+ * The pass tracks, along straight-line code, which temp holds the
+ * current value of each variable. The table is cleared:
+ * - at labels (another path may join with different values)
+ * - at calls (the callee may write any global, and the translator
+ *   restores saved globals around calls)
+ * A conditional jump does not clear it: its fall-through path has
+ * executed exactly the same commands.
+ *
+ * Parameters that are only stored once, by the copy out of their
+ * argument register at the top of the function, are pinned: that
+ * store reaches every point of the function and no callee can write
+ * the frame, so their entry survives labels and calls.
+ *
+ * Forwarding lengthens the source temp's live range. If that makes a
+ * function spill, the allocator calls revert() to turn the moves back
+ * into loads (rematerialization), which is cheaper than a spill.
+ */
+public class LoadForwarding
+{
+    private int forwarded = 0;
+
+    /**
+     * Rewrite one function unit in place
+     * @return number of loads replaced by moves
+     */
+    public int run(IrFunction function)
+    {
+        Map<String, Temp> available = new HashMap<>();  // variable → temp holding its value
+        Set<String> pinned = pinnedParameters(function);
+        IrProgram rewritten = new IrProgram(function.getProgram().size());
+        int count = 0;
+
+        for (IrCommand cmd : function.getProgram()) {
+            switch (cmd.opcode) {
+                case LABEL:
+                case CALL_FUNC:
+                case METHOD_CALL:
+                    available.keySet().retainAll(pinned);
+                    break;
+
+                case LOAD: {
+                    IrCommandLoad load = (IrCommandLoad) cmd;
+                    Temp value = available.get(load.varName);
+                    if (value != null && load.dst != null) {
+                        cmd = new IrCommandMove(load.dst, value, load.varName);
+                        count++;
+                    }
+                    break;
+                }
+
+                default:
+                    break;
+            }
+
+            // A temp that is written again no longer holds the variable's value
+            for (Temp d : cmd.defs()) {
+                available.values().removeIf(t -> t == d);
+            }
+
+            if (cmd.opcode == IrOpcode.STORE) {
+                IrCommandStore store = (IrCommandStore) cmd;
+                if (store.src != null) {
+                    available.put(store.varName, store.src);
+                } else {
+                    available.remove(store.varName);
+                }
+            } else if (cmd.opcode == IrOpcode.LOAD) {
+                IrCommandLoad load = (IrCommandLoad) cmd;
+                if (load.dst != null) {
+                    available.put(load.varName, load.dst);
+                }
+            }
+
+            rewritten.add(cmd);
+        }
+
+        if (count > 0) {
+            function.replaceCommands(rewritten);
+        }
+        forwarded += count;
+        return count;
+    }
+
+    /**
+     * Parameters stored exactly once, before the first label of the function
+     */
+    private static Set<String> pinnedParameters(IrFunction function)
+    {
+        Set<String> pinned = new HashSet<>(function.getParameters());
+        Set<String> storedAtEntry = new HashSet<>();
+        boolean entry = true;
+
+        for (IrCommand cmd : function.getProgram()) {
+            if (cmd.opcode == IrOpcode.LABEL) {
+                entry = false;
+            } else if (cmd.opcode == IrOpcode.STORE) {
+                IrCommandStore store = (IrCommandStore) cmd;
+                if (!entry || store.src == null || !storedAtEntry.add(store.varName)) {
+                    pinned.remove(store.varName);
+                }
+            }
+        }
+        pinned.retainAll(storedAtEntry);
+        return pinned;
+    }
+
+    /**
+     * Turn the moves this pass created in a function back into loads
+     * @return number of moves reverted
+     */
+    public int revert(IrFunction function)
+    {
+        IrProgram rewritten = new IrProgram(function.getProgram().size());
+        int count = 0;
+
+        for (IrCommand cmd : function.getProgram()) {
+            if (cmd.opcode == IrOpcode.MOVE && ((IrCommandMove) cmd).varName != null) {
+                IrCommandMove move = (IrCommandMove) cmd;
+                cmd = new IrCommandLoad(move.dst, move.varName);
+                count++;
+            }
+            rewritten.add(cmd);
+        }
+
+        if (count > 0) {
+            function.replaceCommands(rewritten);
+        }
+        forwarded -= count;
+        return count;
+    }
+
+    /**
+     * Number of loads currently replaced by moves
+     */
+    public int getForwardedCount()
+    {
+        return forwarded;
+    }
+}
@@ -0,0 +1,104 @@
+package regalloc;
+
+import ir.*;
+import temp.Temp;
+import temp.TempFactory;
+import java.util.*;
+
+/**
+ * Spill Rewriter
+ *
+ * Moves spilled temporaries from registers to stack frame slots.
+ * Every spilled temp gets one slot in the frame of the function that
+ * uses it. Then, in that function:
+ * - before an instruction that reads the temp: load the slot into a
+ *   fresh temp and read that instead
+ * - after an instruction that writes the temp: write a fresh temp
+ *   instead and store it to the slot
+ *
+ * The fresh temps live across a single instruction, so the next round
+ * of coloring can always find them a register.
+ *
+ * Example (Temp_7 spilled to slot 0):
+ *   Temp_9 := Temp_7 + Temp_8
+ * becomes
+ *   Temp_40 := SPILL_LOAD [slot 0]
+ *   Temp_9 := Temp_40 + Temp_8
+ */
+public class SpillRewriter
+{
+    private final Set<Integer> spilled = new HashSet<>();
+    private int loads = 0;
+    private int stores = 0;
+
+    /**
+     * @param spilledNodes temp ids (serial numbers) to move to memory
+     */
+    public SpillRewriter(int[] spilledNodes)
+    {
+        for (int id : spilledNodes) {
+            spilled.add(id);
+        }
+    }
+
+    /**
+     * Rewrite one function unit in place
+     * @return true if the function mentioned a spilled temp
+     */
+    public boolean rewrite(IrFunction function)
+    {
+        Map<Integer, Integer> slots = new HashMap<>();  // serial number → frame slot
+        IrProgram rewritten = new IrProgram(function.getProgram().size() + 16);
+        Set<Temp> handled = new HashSet<>();  // a command may read the same temp twice
+        boolean changed = false;
+
+        for (IrCommand cmd : function.getProgram()) {
+            handled.clear();
+            // Reload spilled operands (replaceUse swaps the uses() array,
+            // so iterating the old one is safe)
+            for (Temp t : cmd.uses()) {
+                if (!spilled.contains(t.getSerialNumber()) || !handled.add(t)) continue;
+                Temp fresh = TempFactory.getInstance().getFreshTemp();
+                rewritten.add(new IrCommandSpillLoad(fresh, slotOf(t, slots, function)));
+                cmd.replaceUse(t, fresh);
+                loads++;
+                changed = true;
+            }
+
+            rewritten.add(cmd);
+
+            // Store spilled results right after they are computed
+            for (Temp t : cmd.defs()) {
+                if (!spilled.contains(t.getSerialNumber())) continue;
+                Temp fresh = TempFactory.getInstance().getFreshTemp();
+                cmd.replaceDef(t, fresh);
+                rewritten.add(new IrCommandSpillStore(slotOf(t, slots, function), fresh));
+                stores++;
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            function.replaceCommands(rewritten);
+        }
+        return changed;
+    }
+
+    private static int slotOf(Temp t, Map<Integer, Integer> slots, IrFunction function)
+    {
+        return slots.computeIfAbsent(t.getSerialNumber(), id -> function.newFrameSlot());
+    }
+
+    /**
+     * Number of SPILL_LOAD / SPILL_STORE commands inserted so far
+     */
+    public int getLoadCount()
+    {
+        return loads;
+    }
+
+    public int getStoreCount()
+    {
+        return stores;
+    }
+}
@@ -0,0 +1,77 @@
+package symboltable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes symbol table snapshots (Graphviz dot) on a background thread.
+ *
+ * SymbolTable.snapshot renders the table to a string at the point it is
+ * called and hands it over through one queue; the writer thread creates
+ * the files, so semantic analysis never waits on file I/O. close() waits
+ * until every queued snapshot is written.
+ */
+public class SymbolTableDump
+{
+	private static final String[] END = new String[0];
+
+	private final String dirname;
+	private final BlockingQueue<String[]> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private int count = 0;
+
+	public SymbolTableDump(String dirname)
+	{
+		this.dirname = dirname;
+		new File(dirname).mkdirs();
+		this.writer = new Thread(this::drain, "symbol-table-dump");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/* Queue one snapshot; label says where it was taken */
+	void submit(String label, String dot)
+	{
+		String filename = String.format("SYMBOL_TABLE_%d_%s_IN_GRAPHVIZ_DOT_FORMAT.txt", count++, label);
+		queue.add(new String[] { filename, dot });
+	}
+
+	/* Wait for the queued snapshots to be written */
+	public void close()
+	{
+		queue.add(END);
+		try
+		{
+			writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain()
+	{
+		try
+		{
+			for (String[] item = queue.take(); item != END; item = queue.take())
+			{
+				try (BufferedWriter out = new BufferedWriter(new FileWriter(new File(dirname, item[0]))))
+				{
+					out.write(item[1]);
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -4,23 +4,22 @@ import types.*;
 
 public class SymbolTableEntry
 {
-	int index;
+	Symbol symbol;
 	public String name;
 	public Type type;
 	public SymbolTableEntry prevtop;
-	public SymbolTableEntry next;
-	public int prevtopIndex;
-	
+	public SymbolTableEntry next;   // the entry this one shadows (same name)
+	public int prevtopIndex;        // depth of the entry on the stack
+
 	public SymbolTableEntry(
-		String name,
+		Symbol symbol,
 		Type type,
-		int index,
 		SymbolTableEntry next,
 		SymbolTableEntry prevtop,
 		int prevtopIndex)
 	{
-		this.index = index;
-		this.name = name;
+		this.symbol = symbol;
+		this.name = symbol.name;
 		this.type = type;
 		this.next = next;
 		this.prevtop = prevtop;
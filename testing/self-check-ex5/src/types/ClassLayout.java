@@ -0,0 +1,123 @@
+package types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The members of a class with everything inherited flattened in,
+ * indexed by name:
+ * - members: the nearest declaration of each name (this class first)
+ * - fieldOffsets: byte offset of each data field; word 0 of every
+ *   object points to its vtable, then come the father's fields, then
+ *   this class's, 4 bytes each
+ * - methodNames: dispatch table order, the father's slots first, then
+ *   the methods this class adds (an override keeps its father's slot)
+ * - definingClasses: the nearest class (this one or an ancestor) that
+ *   defines each method
+ *
+ * A layout is built from the father's layout and the class's own member
+ * list, and never changes afterwards (see TypeClass.freeze).
+ */
+public final class ClassLayout
+{
+	private final Map<String, Type> members = new HashMap<>();
+	private final Map<String, Integer> fieldOffsets = new HashMap<>();
+	private final Map<String, Integer> methodSlots = new HashMap<>();
+	private final Map<String, TypeClass> definingClasses = new HashMap<>();
+	private final List<String> methodNames;
+	private final int fieldCount;
+
+	ClassLayout(TypeClass cls)
+	{
+		ClassLayout father = (cls.father != null) ? cls.father.getLayout() : null;
+		List<String> methods = new ArrayList<>();
+		int fields = 0;
+
+		if (father != null)
+		{
+			methods.addAll(father.methodNames);
+			methodSlots.putAll(father.methodSlots);
+			definingClasses.putAll(father.definingClasses);
+			fieldOffsets.putAll(father.fieldOffsets);
+			fields = father.fieldCount;
+		}
+
+		// Own members come first in lookups: the first declaration of a name wins
+		Map<String, Type> own = new HashMap<>();
+		Map<String, Integer> ownOffsets = new HashMap<>();
+		for (TypeList it = cls.dataMembers; it != null; it = it.tail)
+		{
+			if (it.head == null)
+			{
+				continue;
+			}
+			String name = it.head.name;
+			own.putIfAbsent(name, it.head);
+			if (it.head instanceof TypeFunction)
+			{
+				if (!methodSlots.containsKey(name))
+				{
+					methodSlots.put(name, methods.size());
+					methods.add(name);
+				}
+				definingClasses.put(name, cls);  // an override replaces the father's definer
+			}
+			else
+			{
+				ownOffsets.putIfAbsent(name, 4 + 4 * fields);
+				fields++;
+			}
+		}
+		members.putAll(own);
+		fieldOffsets.putAll(ownOffsets);
+		if (father != null)
+		{
+			for (Map.Entry<String, Type> e : father.members.entrySet())
+			{
+				members.putIfAbsent(e.getKey(), e.getValue());
+			}
+		}
+
+		this.methodNames = Collections.unmodifiableList(methods);
+		this.fieldCount = fields;
+	}
+
+	/* The nearest member called name, or null */
+	public Type find(String name)
+	{
+		return members.get(name);
+	}
+
+	/* Byte offset of a data field in the object, or -1 */
+	public int getFieldOffset(String name)
+	{
+		Integer offset = fieldOffsets.get(name);
+		return (offset != null) ? offset : -1;
+	}
+
+	/* Byte offset of a method's slot in the dispatch table, or -1 */
+	public int getMethodOffset(String name)
+	{
+		Integer slot = methodSlots.get(name);
+		return (slot != null) ? slot * 4 : -1;
+	}
+
+	/* The class whose code a method's slot runs, or null */
+	public TypeClass getDefiningClass(String name)
+	{
+		return definingClasses.get(name);
+	}
+
+	public List<String> getMethodNames()
+	{
+		return methodNames;
+	}
+
+	public int getFieldCount()
+	{
+		return fieldCount;
+	}
+}
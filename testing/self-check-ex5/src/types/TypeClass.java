@@ -1,6 +1,8 @@
 package types;
 
 import symboltable.SymbolTable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TypeClass extends Type
 {
@@ -16,27 +18,30 @@ public class TypeClass extends Type
 
     public boolean isClass(){ return true;}
 
-    // Find a member in the class, traversing the inheritance chain
-    public Type find(String memberName)
-    {
-        // First, try to find the member in current class
-        for (TypeList it = dataMembers; it != null; it = it.tail)
-        {
-            if (it.head != null && memberName.equals(it.head.name))
-            {
-                return it.head;
-            }
-        }
+    /*
+     * Member lookups and offsets come from the class's layout: frozen
+     * once the declaration is complete (AstDecClass calls freeze), so
+     * every query is a hash lookup. While the class is still being
+     * declared its member list can grow, so a fresh layout is built
+     * per query instead.
+     */
+    private ClassLayout layout = null;
 
-        // If not found, recursively search in parent class
-        if (father != null)
-        {
-            return father.find(memberName);
-        }
+    public void freeze()
+    {
+        layout = new ClassLayout(this);
+    }
 
-        return null;
+    public ClassLayout getLayout()
+    {
+        return (layout != null) ? layout : new ClassLayout(this);
     }
 
+    // Find a member in the class or its ancestors (the nearest declaration)
+    public Type find(String memberName)
+    {
+        return getLayout().find(memberName);
+    }
 
     public void enterToSymbolTable()
     {
@@ -80,60 +85,55 @@ public class TypeClass extends Type
     }
 
     // Get the offset of a field in bytes
-    // Fields are laid out in order, 4 bytes each
+    // Word 0 of every object points to its class's vtable;
+    // fields are laid out in order after it, 4 bytes each
     public int getFieldOffset(String fieldName)
     {
-        int offset = 0;
-
-        // First, count fields from parent class
-        if (father != null)
-        {
-            offset = father.getTotalFieldCount() * 4;
-        }
-
-        // Then find the field in this class
-        for (TypeList it = dataMembers; it != null; it = it.tail)
-        {
-            // Skip methods, only count data fields
-            if (!(it.head instanceof TypeFunction))
-            {
-                if (it.head.name.equals(fieldName))
-                {
-                    return offset;
-                }
-                offset += 4; // Each field is 4 bytes
-            }
-        }
+        int offset = getLayout().getFieldOffset(fieldName);
+        return (offset < 0) ? 4 : offset; // Field not found (shouldn't happen if semantic analysis passed)
+    }
 
-        // If not found in this class, search in parent
-        if (father != null)
-        {
-            return father.getFieldOffset(fieldName);
-        }
+    // Size of an object in bytes: the vtable pointer and every data field
+    public int getObjectSize()
+    {
+        return 4 + getTotalFieldCount() * 4;
+    }
 
-        return 0; // Field not found (shouldn't happen if semantic analysis passed)
+    // Label of the class's dispatch table in the data section
+    public String getVtableLabel()
+    {
+        return "vtable_" + name;
     }
 
-    // Get total number of data fields (excluding methods)
-    public int getTotalFieldCount()
+    // Method names in dispatch table order: the father's slots first,
+    // then the methods this class adds (an override keeps its father's slot)
+    public List<String> getMethodNames()
     {
-        int count = 0;
+        return getLayout().getMethodNames();
+    }
 
-        // Count fields from parent
-        if (father != null)
-        {
-            count = father.getTotalFieldCount();
-        }
+    // Byte offset of a method's slot in the dispatch table (-1 if there is none)
+    public int getMethodOffset(String methodName)
+    {
+        return getLayout().getMethodOffset(methodName);
+    }
 
-        // Count fields in this class (excluding methods)
-        for (TypeList it = dataMembers; it != null; it = it.tail)
+    // Code label of every slot of the dispatch table: Definer_method,
+    // where Definer is the nearest class (this one or an ancestor) defining it
+    public List<String> getVtable()
+    {
+        ClassLayout l = getLayout();
+        List<String> labels = new ArrayList<>();
+        for (String method : l.getMethodNames())
         {
-            if (!(it.head instanceof TypeFunction))
-            {
-                count++;
-            }
+            labels.add(l.getDefiningClass(method).name + "_" + method);
         }
+        return labels;
+    }
 
-        return count;
+    // Get total number of data fields (excluding methods)
+    public int getTotalFieldCount()
+    {
+        return getLayout().getFieldCount();
     }
 }
@@ -8,6 +8,7 @@ public class TypeFunction extends Type
 	public Type returnType;
 	public TypeList params;
 	public List<String> paramVarNames; // Parameter variable names with offsets (e.g., "p_7", "start_8")
+	public boolean method = false;     // declared in a class: called through a vtable
 
 	public TypeFunction(Type returnType, String name, TypeList params)
 	{